@@ -0,0 +1,96 @@
+package aerospike.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.common.BatchAccess;
+import aerospike.standin.StandInClient;
+
+/**
+ * Reading {@code keyCount} records one get at a time against BatchAccess.
+ * Each operation reads every key once; on the stand-in the client calls
+ * per operation are printed at the end of each iteration. A real client
+ * splits each batch call per node, which the stand-in does not model.
+ */
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "100" })
+	public long latencyMicros;
+
+	@Param({ "10000" })
+	public int keyCount;
+
+	@Param({ "100", "1000" })
+	public int batchSize;
+
+	@Param({ "1", "8" })
+	public int concurrency;
+
+	private AerospikeClient client;
+	private Key[] keys;
+	private BatchAccess batch;
+	private long operations;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		WritePolicy writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		keys = new Key[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = new Key("test", "batch", "key-" + i);
+			client.put(writePolicy, keys[i], new Bin("value", i));
+		}
+		batch = new BatchAccess(client, null, batchSize, concurrency);
+	}
+
+	@Setup(Level.Iteration)
+	public void resetCounts() {
+		operations = 0;
+		if (client instanceof StandInClient) {
+			((StandInClient) client).resetRoundTrips();
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void reportRoundTrips() {
+		if (client instanceof StandInClient && operations > 0) {
+			System.out.println(String.format("%n%.1f client calls per %d keys",
+					(double) ((StandInClient) client).getRoundTrips() / operations, keyCount));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public void singleGets(Blackhole bh) {
+		operations++;
+		for (Key key : keys) {
+			bh.consume(client.get(null, key, "value"));
+		}
+	}
+
+	@Benchmark
+	public Record[] batchGets() {
+		operations++;
+		return batch.get(keys, "value");
+	}
+}
@@ -0,0 +1,40 @@
+package aerospike.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the suites with the reporting we want for every operation:
+ * throughput, sampled latency (p50, p99 and friends) and, through the GC
+ * profiler, allocation per operation ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Usage: java -jar target/benchmarks.jar [regexp] [target]
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		String include = args.length > 0 ? args[0] : "aerospike.benchmarks.*";
+		String target = args.length > 1 ? args[1] : Targets.STANDIN;
+
+		Options options = new OptionsBuilder()
+				.include(include)
+				.param("target", target)
+				.mode(Mode.Throughput)
+				.mode(Mode.SampleTime)
+				.timeUnit(TimeUnit.MICROSECONDS)
+				.addProfiler(GCProfiler.class)
+				.warmupIterations(3)
+				.warmupTime(TimeValue.seconds(2))
+				.measurementIterations(5)
+				.measurementTime(TimeValue.seconds(2))
+				.forks(1)
+				.build();
+		new Runner(options).run();
+	}
+}
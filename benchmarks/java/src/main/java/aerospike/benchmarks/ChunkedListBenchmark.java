@@ -0,0 +1,94 @@
+package aerospike.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.lists.ChunkedList;
+
+/**
+ * Appending to a list that already holds {@code length} elements, kept in
+ * one bin as ListsAnswers does and spread over a {@link ChunkedList}. The
+ * list is rebuilt before every iteration.
+ */
+@State(Scope.Benchmark)
+public class ChunkedListBenchmark {
+	private static final String LIST_BIN = "list-of-things";
+
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	@Param({ "1000", "100000", "1000000" })
+	public int length;
+
+	@Param({ "single", "chunked" })
+	public String layout;
+
+	@Param({ "1000" })
+	public int chunkSize;
+
+	private AerospikeClient client;
+	private WritePolicy writePolicy;
+	private Key key;
+	private ChunkedList chunked;
+	private Value value = Value.get(99L);
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		key = new Key("test", "lists", "a-long-list");
+		chunked = new ChunkedList(client, writePolicy, "test", "lists", "a-long-chunked-list", chunkSize);
+	}
+
+	@Setup(Level.Iteration)
+	public void fill() {
+		if ("single".equals(layout)) {
+			List<Long> list = new ArrayList<Long>(length);
+			for (int i = 0; i < length; i++) {
+				list.add(250L + i % 200);
+			}
+			client.put(writePolicy, key, new Bin(LIST_BIN, list));
+		} else {
+			chunked.clear();
+			for (int from = 0; from < length; from += chunkSize) {
+				List<Value> values = new ArrayList<Value>(chunkSize);
+				for (int i = from; i < Math.min(from + chunkSize, length); i++) {
+					values.add(Value.get(250L + i % 200));
+				}
+				chunked.appendItems(values);
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public long append() {
+		if ("single".equals(layout)) {
+			return client.operate(writePolicy, key, ListOperation.append(LIST_BIN, value)).getLong(LIST_BIN);
+		}
+		return chunked.append(value);
+	}
+}
@@ -0,0 +1,113 @@
+package aerospike.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.maps.CompactMapBin;
+import aerospike.maps.FieldSchema;
+import aerospike.maps.SchemaRegistry;
+
+/**
+ * Putting and getting the 23 field fare map of MapsAnswers, keyed by field
+ * name as it is today and keyed by id through a {@link FieldSchema}. The
+ * packed size of each is printed at setup.
+ */
+@State(Scope.Benchmark)
+public class CompactMapBenchmark {
+	private static final String MAP_BIN = "map-of-things";
+
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	private AerospikeClient client;
+	private WritePolicy writePolicy;
+	private Map<String, Object> fare;
+	private Key namedKey;
+	private Key compactKey;
+	private CompactMapBin compact;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		fare = fare();
+		namedKey = new Key("test", "maps", "a-named-fare");
+		compactKey = new Key("test", "maps", "a-compact-fare");
+		FieldSchema schema = new SchemaRegistry(client, "test", "schemas")
+				.register("fares", fare.keySet().toArray(new String[0]));
+		compact = new CompactMapBin(client, schema, MAP_BIN);
+		client.put(writePolicy, namedKey, new Bin(MAP_BIN, fare));
+		compact.put(writePolicy, compactKey, fare);
+		System.out.println(String.format("%nfare map: %d bytes keyed by name, %d bytes keyed by id",
+				FieldSchema.packedSize(fare), FieldSchema.packedSize(schema.encode(fare))));
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public void putNamed() {
+		client.put(writePolicy, namedKey, new Bin(MAP_BIN, fare));
+	}
+
+	@Benchmark
+	public void putCompact() {
+		compact.put(writePolicy, compactKey, fare);
+	}
+
+	@Benchmark
+	public Map<?, ?> getNamed() {
+		return client.get(null, namedKey, MAP_BIN).getMap(MAP_BIN);
+	}
+
+	@Benchmark
+	public Map<String, Object> getCompact() {
+		return compact.get(null, compactKey);
+	}
+
+	private static Map<String, Object> fare() {
+		Map<String, Object> fare = new HashMap<String, Object>();
+		fare.put("ersionsnummer", 1);
+		fare.put("ieferant", "B");
+		fare.put("eisebeginn", "016-10-11");
+		fare.put("eiseende", "016-10-11");
+		fare.put("bflughafen_Hin", "AH");
+		fare.put("nkunfsthafen_Hin", "CN");
+		fare.put("luglinie_Hin", "B");
+		fare.put("bflugzeit_Hin", 925);
+		fare.put("nkunftszeit_Hin", 1720);
+		fare.put("bflugzeit_Rueck", 0);
+		fare.put("nkunftszeit_Rueck", 0);
+		fare.put("lugnummer_Hin", 385);
+		fare.put("aehrung", "UR");
+		fare.put("preis", 861.0f);
+		fare.put("nfant_Preis", 126);
+		fare.put("lter_von_1", 2);
+		fare.put("lter_bis_1", 11);
+		fare.put("reis_Kinderstufe1", 61);
+		fare.put("lter_von_2", 0);
+		fare.put("lter_bis_2", 0);
+		fare.put("otelkategorie", 0);
+		fare.put("eisetypkürzel", "F");
+		fare.put("eisetyp_Langtext", "ur Flug");
+		return fare;
+	}
+}
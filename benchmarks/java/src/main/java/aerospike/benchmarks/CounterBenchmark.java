@@ -0,0 +1,53 @@
+package aerospike.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+
+/**
+ * Counter increments, as in CountersAnswers.
+ */
+@State(Scope.Benchmark)
+public class CounterBenchmark {
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	private AerospikeClient client;
+	private Key key;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		key = new Key("test", "counters", "a-record-with-two-counters");
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public Record add() {
+		return client.operate(null, key, Operation.add(new Bin("cat-counter", 1)));
+	}
+
+	@Benchmark
+	public Record addTwoAndGet() {
+		return client.operate(null, key,
+				Operation.add(new Bin("cat-counter", 3)),
+				Operation.add(new Bin("dog-counter", 2)),
+				Operation.get());
+	}
+}
@@ -0,0 +1,75 @@
+package aerospike.benchmarks;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.aerospike.client.Key;
+
+import aerospike.common.DigestSet;
+
+/**
+ * Dedup of a collection index query result, where every record comes
+ * back {@code repeats} times: DigestSet against a HashSet of Keys.
+ * {@code gc.alloc.rate.norm} shows the memory each needs per query.
+ */
+@State(Scope.Benchmark)
+public class DigestSetBenchmark {
+	@Param({ "1000", "100000" })
+	public int records;
+
+	@Param({ "10" })
+	public int repeats;
+
+	private Key[] results;
+
+	@Setup
+	public void setup() {
+		Key[] keys = new Key[records];
+		for (int i = 0; i < records; i++) {
+			keys[i] = new Key("test", "lists", "list-" + i);
+		}
+		// each record repeated, in shuffled order, as a query returns them
+		results = new Key[records * repeats];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = keys[i % records];
+		}
+		Random rand = new Random(300);
+		for (int i = results.length - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			Key swap = results[i];
+			results[i] = results[j];
+			results[j] = swap;
+		}
+	}
+
+	@Benchmark
+	public int digestSet() {
+		DigestSet seen = new DigestSet();
+		int unique = 0;
+		for (Key key : results) {
+			if (seen.add(key.digest)) {
+				unique++;
+			}
+		}
+		return unique;
+	}
+
+	@Benchmark
+	public int hashSet() {
+		Set<Key> seen = new HashSet<Key>();
+		int unique = 0;
+		for (Key key : results) {
+			if (seen.add(key)) {
+				unique++;
+			}
+		}
+		return unique;
+	}
+}
@@ -0,0 +1,94 @@
+package aerospike.benchmarks;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.geo.GeoJsonEncoder;
+
+/**
+ * Loads the airports and countries from geo/data the way GeoAnswers does,
+ * so the benchmarks query the same records.
+ */
+public final class GeoData {
+	public static final String NS = "test";
+	public static final String AIRPORT_SET = "airport";
+	public static final String REGION_SET = "region";
+	public static final String LOCATION_BIN = "geo-location";
+	public static final String REGION_BIN = "geo-region";
+
+	private GeoData() {
+	}
+
+	/**
+	 * @return the airport keys, in file order
+	 */
+	public static List<Key> loadAirports(AerospikeClient client, String dataDir) throws IOException {
+		WritePolicy writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		List<Key> keys = new ArrayList<Key>();
+		try (Reader in = new FileReader(dataDir + "/airports.csv")) {
+			for (CSVRecord record : CSVFormat.DEFAULT.parse(in)) {
+				String IATA = record.get(4);
+				String ICAO = record.get(5);
+				double lat = Double.parseDouble(record.get(6));
+				double lon = Double.parseDouble(record.get(7));
+				Key key = new Key(NS, AIRPORT_SET, IATA + ":" + ICAO);
+				client.put(writePolicy, key,
+						new Bin("id", Long.parseLong(record.get(0))),
+						new Bin("name", record.get(1)),
+						new Bin("city", record.get(2)),
+						new Bin("country", record.get(3)),
+						new Bin("IATA", IATA),
+						new Bin("ICAO", ICAO),
+						new Bin(LOCATION_BIN, GeoJsonEncoder.local().pointValue(lon, lat)),
+						new Bin("elevation", Long.parseLong(record.get(8))),
+						new Bin("region", record.get(11)));
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the country keys
+	 */
+	public static List<Key> loadCountries(AerospikeClient client, String dataDir) throws IOException, ParseException {
+		WritePolicy writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		List<Key> keys = new ArrayList<Key>();
+		JSONParser parser = new JSONParser();
+		File[] files = new File(dataDir + "/countries").listFiles((dir, name) -> name.endsWith(".json"));
+		for (File file : files) {
+			try (Reader in = new FileReader(file)) {
+				JSONObject country = (JSONObject) parser.parse(in);
+				JSONObject feature = (JSONObject) ((JSONArray) country.get("features")).get(0);
+				String id = (String) feature.get("id");
+				Key key = new Key(NS, REGION_SET, id);
+				client.put(writePolicy, key,
+						new Bin("id", id),
+						new Bin("name", (String) ((JSONObject) feature.get("properties")).get("name")),
+						new Bin("type", "country"),
+						new Bin(REGION_BIN, Value.getAsGeoJSON(feature.get("geometry").toString())));
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,55 @@
+package aerospike.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.aerospike.client.Value;
+
+import aerospike.geo.GeoJsonEncoder;
+
+/**
+ * Building a GeoJSON point with String.format, as GeoAnswers used to,
+ * against GeoJsonEncoder. Compare {@code gc.alloc.rate.norm} as well as
+ * throughput.
+ */
+@State(Scope.Thread)
+public class GeoJsonBenchmark {
+	private final GeoJsonEncoder encoder = new GeoJsonEncoder();
+	private final double[] square = { 150.0, -34.0, 152.0, -34.0, 152.0, -33.0, 150.0, -33.0 };
+	private double lon = 151.20732d;
+	private double lat = -33.86785d;
+
+	@Benchmark
+	public Value formatPoint() {
+		next();
+		return Value.getAsGeoJSON(String.format("{ \"type\": \"Point\", \"coordinates\": [%f, %f] }", lon, lat));
+	}
+
+	@Benchmark
+	public Value encodePoint() {
+		next();
+		return encoder.pointValue(lon, lat);
+	}
+
+	@Benchmark
+	public Value formatPolygon() {
+		StringBuilder sb = new StringBuilder("{ \"type\": \"Polygon\", \"coordinates\": [[");
+		for (int i = 0; i < square.length; i += 2) {
+			sb.append(String.format("[%f, %f], ", square[i], square[i + 1]));
+		}
+		sb.append(String.format("[%f, %f]]] }", square[0], square[1]));
+		return Value.getAsGeoJSON(sb.toString());
+	}
+
+	@Benchmark
+	public Value encodePolygon() {
+		return encoder.polygonValue(square);
+	}
+
+	// vary the input so nothing is constant folded
+	private void next() {
+		lon = lon > 179.0 ? -179.0 : lon + 0.000123;
+		lat = lat > 89.0 ? -89.0 : lat + 0.000071;
+	}
+}
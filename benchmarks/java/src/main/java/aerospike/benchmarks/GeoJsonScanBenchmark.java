@@ -0,0 +1,71 @@
+package aerospike.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import aerospike.geo.GeoJsonScanner;
+
+/**
+ * Extracting id, name and geometry from every country file: a json-simple
+ * parse with the geometry serialized again, as GeoAnswers used to, against
+ * GeoJsonScanner. The files are read into memory in setup, so only the
+ * parsing is measured; divide the bytes by the time per operation for MB/s.
+ */
+@State(Scope.Benchmark)
+public class GeoJsonScanBenchmark {
+	@Param({ "../../geo/data" })
+	public String dataDir;
+
+	private byte[][] files;
+
+	@Setup
+	public void setup() throws Exception {
+		File[] countries = new File(dataDir + "/countries").listFiles((dir, name) -> name.endsWith(".json"));
+		files = new byte[countries.length][];
+		long bytes = 0;
+		for (int i = 0; i < countries.length; i++) {
+			files[i] = Files.readAllBytes(countries[i].toPath());
+			bytes += files[i].length;
+		}
+		System.out.println(files.length + " files, " + bytes + " bytes");
+	}
+
+	@Benchmark
+	public void jsonSimple(Blackhole bh) throws Exception {
+		JSONParser parser = new JSONParser();
+		for (byte[] file : files) {
+			JSONObject country = (JSONObject) parser.parse(
+					new InputStreamReader(new ByteArrayInputStream(file), StandardCharsets.UTF_8));
+			for (Object obj : (JSONArray) country.get("features")) {
+				JSONObject feature = (JSONObject) obj;
+				bh.consume(feature.get("id"));
+				bh.consume(((JSONObject) feature.get("properties")).get("name"));
+				bh.consume(feature.get("geometry").toString());
+			}
+		}
+	}
+
+	@Benchmark
+	public void scanner(Blackhole bh) {
+		for (byte[] file : files) {
+			GeoJsonScanner.scan(file, feature -> {
+				bh.consume(feature.getId());
+				bh.consume(feature.getName());
+				bh.consume(feature.getGeometry());
+			});
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package aerospike.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+
+import aerospike.geo.RegionIndex;
+
+/**
+ * The two geo queries in GeoAnswers, over the airports and countries
+ * loaded from {@code dataDir}, and the point-in-region lookup against a
+ * local RegionIndex.
+ */
+@State(Scope.Benchmark)
+public class GeoQueryBenchmark {
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	@Param({ "../../geo/data" })
+	public String dataDir;
+
+	private AerospikeClient client;
+	private Statement airportsNearSydney;
+	private Statement regionsContainingSydney;
+	private RegionIndex regionIndex;
+
+	@Setup
+	public void setup() throws Exception {
+		client = Targets.connect(target, latencyMicros);
+		if (!Targets.isStandIn(client)) {
+			client.createIndex(null, GeoData.NS, GeoData.AIRPORT_SET, "geoLocation", GeoData.LOCATION_BIN,
+					IndexType.GEO2DSPHERE).waitTillComplete();
+			client.createIndex(null, GeoData.NS, GeoData.REGION_SET, "geoRegion", GeoData.REGION_BIN,
+					IndexType.GEO2DSPHERE).waitTillComplete();
+		}
+		GeoData.loadAirports(client, dataDir);
+		GeoData.loadCountries(client, dataDir);
+
+		airportsNearSydney = new Statement();
+		airportsNearSydney.setNamespace(GeoData.NS);
+		airportsNearSydney.setSetName(GeoData.AIRPORT_SET);
+		airportsNearSydney.setBinNames("ICAO", "IATA", "name", "city", "country");
+		airportsNearSydney.setFilters(Filter.geoWithinRadius(GeoData.LOCATION_BIN, 151.20732d, -33.86785d, 150000));
+
+		regionsContainingSydney = new Statement();
+		regionsContainingSydney.setNamespace(GeoData.NS);
+		regionsContainingSydney.setSetName(GeoData.REGION_SET);
+		regionsContainingSydney.setBinNames("name", "type");
+		regionsContainingSydney.setFilters(Filter.geoContains(GeoData.REGION_BIN,
+				"{ \"type\": \"Point\", \"coordinates\": [151.207320, -33.867850] }"));
+
+		regionIndex = new RegionIndex(client, GeoData.NS, GeoData.REGION_SET, GeoData.REGION_BIN);
+		regionIndex.setFallback(false);
+		regionIndex.refresh();
+	}
+
+	@TearDown
+	public void tearDown() {
+		regionIndex.close();
+		client.close();
+	}
+
+	@Benchmark
+	public void withinRadius(Blackhole bh) {
+		drain(client.query(null, airportsNearSydney), bh);
+	}
+
+	@Benchmark
+	public void containsPoint(Blackhole bh) {
+		drain(client.query(null, regionsContainingSydney), bh);
+	}
+
+	@Benchmark
+	public Object containsPointIndexed() {
+		return regionIndex.lookup(151.20732d, -33.86785d);
+	}
+
+	private static void drain(RecordSet recordSet, Blackhole bh) {
+		try {
+			while (recordSet.next()) {
+				bh.consume(recordSet.getRecord());
+			}
+		} finally {
+			recordSet.close();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package aerospike.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+import aerospike.common.InstrumentedClient;
+import aerospike.common.OperationMetrics;
+
+/**
+ * The cost of timing every command: the same get straight to the client
+ * and through an {@link InstrumentedClient}. The difference in
+ * {@code gc.alloc.rate.norm} should be zero.
+ */
+@State(Scope.Benchmark)
+public class InstrumentedClientBenchmark {
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	private AerospikeClient client;
+	private InstrumentedClient instrumented;
+	private Key key;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		instrumented = new InstrumentedClient(client, new OperationMetrics(false));
+		key = new Key("test", "metrics", "a-record");
+		client.put(null, key, new Bin("value", 1));
+		// create the timer outside the measurement
+		instrumented.get(null, key);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println();
+		System.out.print(instrumented.getMetrics().prometheus());
+		client.close();
+	}
+
+	@Benchmark
+	public Record plain() {
+		return client.get(null, key);
+	}
+
+	@Benchmark
+	public Record timed() {
+		return instrumented.get(null, key);
+	}
+}
@@ -0,0 +1,98 @@
+package aerospike.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * List operations, as in ListsAnswers, on a list of {@code listSize}
+ * elements that is reset before every iteration.
+ */
+@State(Scope.Benchmark)
+public class ListBenchmark {
+	private static final String LIST_BIN = "list-of-things";
+
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	@Param({ "100" })
+	public int listSize;
+
+	private AerospikeClient client;
+	private WritePolicy writePolicy;
+	private Key key;
+	private List<Value> items;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		key = new Key("test", "lists", "a-benchmark-list");
+		items = new ArrayList<Value>();
+		items.add(Value.get(55));
+		items.add(Value.get(77));
+	}
+
+	@Setup(Level.Iteration)
+	public void resetList() {
+		Random rand = new Random(300);
+		List<Long> list = new ArrayList<Long>();
+		for (int i = 0; i < listSize; i++) {
+			list.add(rand.nextInt(200) + 250L);
+		}
+		client.put(writePolicy, key, new Bin(LIST_BIN, list));
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public Record append() {
+		return client.operate(writePolicy, key, ListOperation.append(LIST_BIN, Value.get(99L)));
+	}
+
+	@Benchmark
+	public Record appendItems() {
+		return client.operate(writePolicy, key, ListOperation.appendItems(LIST_BIN, items));
+	}
+
+	/**
+	 * Pops the last element and returns the size, as ListsAnswers does.
+	 * The element is appended again in the same command so the list does
+	 * not run dry during the iteration.
+	 */
+	@Benchmark
+	public Record pop() {
+		return client.operate(writePolicy, key,
+				ListOperation.pop(LIST_BIN, -1),
+				ListOperation.size(LIST_BIN),
+				ListOperation.append(LIST_BIN, Value.get(99L)));
+	}
+
+	@Benchmark
+	public Record size() {
+		return client.operate(writePolicy, key, ListOperation.size(LIST_BIN));
+	}
+}
@@ -0,0 +1,63 @@
+package aerospike.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.aerospike.client.Value;
+
+import aerospike.common.LongArray;
+
+/**
+ * The ListsAnswers generation loop, 100 lists of 100 values, taken as far
+ * as the bytes that go into the write command: boxed through
+ * {@code List<Long>} and {@code Value.get(List)} as before, and from a
+ * reused {@link LongArray}. Run with the GC profiler (as BenchmarkMain
+ * does) and compare {@code gc.alloc.rate.norm}. No server is needed.
+ */
+@State(Scope.Thread)
+public class ListEncodingBenchmark {
+	private static final int RECORDS = 100;
+	private static final int VALUES = 100;
+
+	private final Random rand = new Random();
+	private final byte[] buffer = new byte[VALUES * 9 + 5];
+	private final LongArray array = new LongArray(VALUES);
+
+	@Benchmark
+	public int boxed() {
+		int bytes = 0;
+		for (int i = 0; i < RECORDS; i++) {
+			rand.setSeed(300 + i);
+			List<Long> aList = new ArrayList<Long>();
+			for (int j = 0; j < VALUES; j++) {
+				Long newInt = rand.nextInt(200) + 250L;
+				aList.add(newInt);
+			}
+			Value value = Value.get(aList);
+			value.estimateSize();
+			bytes += value.write(buffer, 0);
+		}
+		return bytes;
+	}
+
+	@Benchmark
+	public int primitive() {
+		int bytes = 0;
+		for (int i = 0; i < RECORDS; i++) {
+			rand.setSeed(300 + i);
+			array.clear();
+			for (int j = 0; j < VALUES; j++) {
+				array.add(rand.nextInt(200) + 250L);
+			}
+			Value value = array.toValue();
+			value.estimateSize();
+			bytes += value.write(buffer, 0);
+		}
+		return bytes;
+	}
+}
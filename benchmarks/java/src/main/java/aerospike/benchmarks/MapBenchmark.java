@@ -0,0 +1,102 @@
+package aerospike.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapOrder;
+import com.aerospike.client.cdt.MapPolicy;
+import com.aerospike.client.cdt.MapReturnType;
+import com.aerospike.client.cdt.MapWriteMode;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Map operations, as in MapsAnswers, on a map of {@code mapSize} entries
+ * that is reset before every iteration.
+ */
+@State(Scope.Benchmark)
+public class MapBenchmark {
+	private static final String MAP_BIN = "map-of-things";
+
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	@Param({ "200" })
+	public int mapSize;
+
+	private AerospikeClient client;
+	private WritePolicy writePolicy;
+	private MapPolicy mapPolicy;
+	private Key key;
+	private Map<Value, Value> items;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		mapPolicy = new MapPolicy(MapOrder.KEY_ORDERED, MapWriteMode.UPDATE);
+		key = new Key("test", "maps", "a-benchmark-map");
+		items = new HashMap<Value, Value>();
+		items.put(Value.get("dogs"), Value.get(1));
+		items.put(Value.get("mice"), Value.get("B"));
+	}
+
+	@Setup(Level.Iteration)
+	public void resetMap() {
+		Map<Value, Value> map = new HashMap<Value, Value>();
+		for (int i = 0; i < mapSize / 2; i++) {
+			map.put(Value.get("dogs" + i), Value.get(250 + i % 100));
+			map.put(Value.get("mice" + i), Value.get(250 + i % 100));
+		}
+		client.put(writePolicy, key, new Bin(MAP_BIN, map));
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public Record put() {
+		return client.operate(writePolicy, key, MapOperation.put(mapPolicy, MAP_BIN, Value.get("cat"), Value.get(7)));
+	}
+
+	@Benchmark
+	public Record putItems() {
+		return client.operate(writePolicy, key, MapOperation.putItems(mapPolicy, MAP_BIN, items));
+	}
+
+	/**
+	 * Removes a key and returns the size, as MapsAnswers does. The key is
+	 * put back first, in the same command, so every remove finds it.
+	 */
+	@Benchmark
+	public Record removeByKey() {
+		return client.operate(writePolicy, key,
+				MapOperation.put(mapPolicy, MAP_BIN, Value.get("dogs"), Value.get(1)),
+				MapOperation.removeByKey(MAP_BIN, Value.get("dogs"), MapReturnType.KEY),
+				MapOperation.size(MAP_BIN));
+	}
+
+	@Benchmark
+	public Record size() {
+		return client.operate(writePolicy, key, MapOperation.size(MAP_BIN));
+	}
+}
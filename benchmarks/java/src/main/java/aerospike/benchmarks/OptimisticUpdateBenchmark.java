@@ -0,0 +1,87 @@
+package aerospike.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+import aerospike.common.OptimisticUpdater;
+
+/**
+ * Eight threads moving an amount between two bins of the same few
+ * {@code records}: fewer records, more contention. Each update reads both
+ * bins and writes both, once through an {@link OptimisticUpdater} and once
+ * under a lock per record around a blind read and write. The lock only
+ * works inside one process; the generation check works across clients.
+ * Give the stand-in some {@code latencyMicros} so that updates overlap as
+ * they would over a network. The conflicts are printed at the end.
+ */
+@State(Scope.Benchmark)
+@Threads(8)
+public class OptimisticUpdateBenchmark {
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0", "200" })
+	public long latencyMicros;
+
+	@Param({ "1", "8", "64" })
+	public int records;
+
+	private AerospikeClient client;
+	private OptimisticUpdater updater;
+	private Key[] keys;
+	private Object[] locks;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		updater = new OptimisticUpdater(client, null, 1000, 50);
+		keys = new Key[records];
+		locks = new Object[records];
+		for (int i = 0; i < records; i++) {
+			keys[i] = new Key("test", "contention", "account-" + i);
+			locks[i] = new Object();
+			client.put(null, keys[i], new Bin("checking", 1000000L), new Bin("savings", 1000000L));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println();
+		System.out.println("Optimistic: " + updater.summary());
+		client.close();
+	}
+
+	private static Bin[] transfer(Record record) {
+		long checking = record.getLong("checking");
+		long savings = record.getLong("savings");
+		return new Bin[] { new Bin("checking", checking - 1), new Bin("savings", savings + 1) };
+	}
+
+	@Benchmark
+	public boolean optimistic() {
+		Key key = keys[ThreadLocalRandom.current().nextInt(records)];
+		return updater.update(key, OptimisticUpdateBenchmark::transfer);
+	}
+
+	@Benchmark
+	public boolean locked() {
+		int index = ThreadLocalRandom.current().nextInt(records);
+		synchronized (locks[index]) {
+			Record record = client.get(null, keys[index]);
+			client.put(null, keys[index], transfer(record));
+		}
+		return true;
+	}
+}
@@ -0,0 +1,84 @@
+package aerospike.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+
+import aerospike.lists.OrderedListBin;
+
+/**
+ * Values between 300 and 350 from a list of {@code size} values in
+ * 250..449: fetching the whole list and filtering it on the client,
+ * against a value range read on the server, and the largest ten by rank.
+ */
+@State(Scope.Benchmark)
+public class OrderedListBenchmark {
+	private static final String LIST_BIN = "list-of-things";
+
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0" })
+	public long latencyMicros;
+
+	@Param({ "10000" })
+	public int size;
+
+	private AerospikeClient client;
+	private Key key;
+	private OrderedListBin ordered;
+	private final Value begin = Value.get(300);
+	private final Value end = Value.get(351);
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		key = new Key("test", "lists", "an-ordered-list");
+		ordered = new OrderedListBin(client, null, LIST_BIN);
+		Random rand = new Random(300);
+		List<Value> values = new ArrayList<Value>(size);
+		for (int i = 0; i < size; i++) {
+			values.add(Value.get(rand.nextInt(200) + 250L));
+		}
+		ordered.write(key, values);
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public List<Long> fetchAndFilter() {
+		List<?> list = client.get(null, key, LIST_BIN).getList(LIST_BIN);
+		List<Long> range = new ArrayList<Long>();
+		for (Object value : list) {
+			long v = (Long) value;
+			if (v >= 300 && v <= 350) {
+				range.add(v);
+			}
+		}
+		return range;
+	}
+
+	@Benchmark
+	public List<?> valueRange() {
+		return ordered.getByValueRange(key, begin, end);
+	}
+
+	@Benchmark
+	public List<?> largestByRank() {
+		return ordered.getLargest(key, 10);
+	}
+}
@@ -0,0 +1,88 @@
+package aerospike.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.Statement;
+
+import aerospike.common.ParallelQuery;
+import aerospike.standin.StandInClient;
+
+/**
+ * The LIST range query from ListsAnswers, run through ParallelQuery with
+ * a growing number of workers. On the stand-in, {@code serviceMicros} is
+ * charged per record returned, standing in for the server's work.
+ */
+@State(Scope.Benchmark)
+public class ParallelQueryBenchmark {
+	private static final String SET = "lists";
+	private static final String LIST_BIN = "list-of-things";
+
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "100" })
+	public long latencyMicros;
+
+	@Param({ "10" })
+	public long serviceMicros;
+
+	@Param({ "1", "2", "4", "8", "16" })
+	public int workers;
+
+	@Param({ "1000" })
+	public int records;
+
+	private AerospikeClient client;
+	private Statement stmt;
+
+	@Setup
+	public void setup() {
+		client = Targets.connect(target, latencyMicros);
+		if (client instanceof StandInClient) {
+			((StandInClient) client).setServiceTime(serviceMicros);
+		} else {
+			client.createIndex(null, "test", SET, "benchmarkListIndex", LIST_BIN, IndexType.NUMERIC,
+					IndexCollectionType.LIST).waitTillComplete();
+		}
+		WritePolicy writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+		for (int i = 0; i < records; i++) {
+			Random rand = new Random(300 + i);
+			List<Long> list = new ArrayList<Long>();
+			for (int j = 0; j < 100; j++) {
+				list.add(rand.nextInt(200) + 250L);
+			}
+			client.put(writePolicy, new Key("test", SET, "benchmark-list-" + i), new Bin(LIST_BIN, list));
+		}
+		stmt = new Statement();
+		stmt.setNamespace("test");
+		stmt.setSetName(SET);
+	}
+
+	@TearDown
+	public void tearDown() {
+		client.close();
+	}
+
+	@Benchmark
+	public long range(Blackhole bh) {
+		ParallelQuery query = new ParallelQuery(client, ParallelQuery.subQueryPolicy(5000), workers);
+		return query.range(stmt, LIST_BIN, IndexCollectionType.LIST, 300, 350, (key, record) -> bh.consume(record));
+	}
+}
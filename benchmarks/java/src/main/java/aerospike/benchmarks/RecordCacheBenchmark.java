@@ -0,0 +1,100 @@
+package aerospike.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+import aerospike.common.CachingClient;
+
+/**
+ * Gets of airports by key, picked with a Zipfian distribution (exponent
+ * {@code skew}) so that a few airports take most of the reads, as
+ * reference data does. Straight to the client and through a
+ * {@link CachingClient} of {@code cacheBytes}; the airports take about
+ * 4 MB, so the smaller size makes the cache choose what to keep. Give the
+ * stand-in some {@code latencyMicros} to see what a hit saves. The hit
+ * ratio and size are printed at the end.
+ */
+@State(Scope.Benchmark)
+public class RecordCacheBenchmark {
+	@Param({ Targets.STANDIN })
+	public String target;
+
+	@Param({ "0", "200" })
+	public long latencyMicros;
+
+	@Param({ "../../geo/data" })
+	public String dataDir;
+
+	@Param({ "1048576", "16777216" })
+	public long cacheBytes;
+
+	@Param({ "0.99" })
+	public double skew;
+
+	private AerospikeClient client;
+	private CachingClient cached;
+	private Key[] keys;
+	private double[] cumulative;
+
+	@State(Scope.Thread)
+	public static class Picker {
+		private final SplittableRandom random = new SplittableRandom();
+
+		Key next(RecordCacheBenchmark benchmark) {
+			int rank = Arrays.binarySearch(benchmark.cumulative, random.nextDouble());
+			return benchmark.keys[rank < 0 ? Math.min(-rank - 1, benchmark.keys.length - 1) : rank];
+		}
+	}
+
+	@Setup
+	public void setup() throws Exception {
+		client = Targets.connect(target, latencyMicros);
+		List<Key> airports = GeoData.loadAirports(client, dataDir);
+		// the popular airports are spread through the file
+		Collections.shuffle(airports, new Random(1));
+		keys = airports.toArray(new Key[airports.size()]);
+
+		cumulative = new double[keys.length];
+		double sum = 0;
+		for (int i = 0; i < keys.length; i++) {
+			sum += 1 / Math.pow(i + 1, skew);
+			cumulative[i] = sum;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			cumulative[i] /= sum;
+		}
+
+		cached = new CachingClient(client, cacheBytes, 600);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.println();
+		System.out.println("Cache: " + cached.summary());
+		client.close();
+	}
+
+	@Benchmark
+	public Record uncached(Picker picker) {
+		return client.get(null, picker.next(this));
+	}
+
+	@Benchmark
+	public Record cached(Picker picker) {
+		return cached.get(null, picker.next(this));
+	}
+}
@@ -0,0 +1,108 @@
+package aerospike.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+import aerospike.common.RecordRenderer;
+
+/**
+ * Prints 1,000 records like the ListsAnswers query results, with the
+ * {@code String.format} printRecord the answers used before and with a
+ * {@link RecordRenderer} as text, JSON lines and CSV. Output goes to a
+ * discarding stream, so this measures formatting alone; the score is
+ * records per second. No server is needed.
+ */
+@State(Scope.Thread)
+public class RecordRenderBenchmark {
+	private static final int RECORDS = 1000;
+
+	private final Key[] keys = new Key[RECORDS];
+	private final Record[] records = new Record[RECORDS];
+	private final PrintStream console = new PrintStream(OutputStream.nullOutputStream());
+	private final RecordRenderer text = new RecordRenderer(Writer.nullWriter(), RecordRenderer.Format.TEXT);
+	private final RecordRenderer json = new RecordRenderer(Writer.nullWriter(), RecordRenderer.Format.JSON_LINES);
+	private final RecordRenderer csv = new RecordRenderer(Writer.nullWriter(), RecordRenderer.Format.CSV);
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(300);
+		for (int i = 0; i < RECORDS; i++) {
+			Long[] values = new Long[10];
+			for (int j = 0; j < values.length; j++) {
+				values[j] = rand.nextInt(200) + 250L;
+			}
+			Map<String, Object> bins = new HashMap<String, Object>();
+			bins.put("name", "a-record-with-a-list-" + i);
+			bins.put("count", (long) i);
+			bins.put("price", rand.nextDouble() * 1000);
+			bins.put("list-of-things", Arrays.asList((Object[]) values));
+			keys[i] = new Key("test", "lists", "a-record-with-a-list-" + i);
+			records[i] = new Record(bins, 1, 300);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public void format() {
+		for (int i = 0; i < RECORDS; i++) {
+			printRecord(keys[i], records[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public long text() throws IOException {
+		return render(text);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public long jsonLines() throws IOException {
+		return render(json);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(RECORDS)
+	public long csv() throws IOException {
+		return render(csv);
+	}
+
+	private long render(RecordRenderer renderer) throws IOException {
+		for (int i = 0; i < RECORDS; i++) {
+			renderer.render(keys[i], records[i]);
+		}
+		renderer.flush();
+		return renderer.getRecords();
+	}
+
+	private void printRecord(Key key, Record record) {
+		console.println("Key");
+		console.println(String.format("\tNamespace: %s", key.namespace));
+		console.println(String.format("\t      Set: %s", key.setName));
+		console.println(String.format("\t      Key: %s", key.userKey));
+		console.println(String.format("\t   Digest: %s", key.digest.toString()));
+		console.println("Record");
+		console.println(String.format("\tGeneration: %d", record.generation));
+		console.println(String.format("\tExpiration: %d", record.expiration));
+		console.println(String.format("\t       TTL: %d", record.getTimeToLive()));
+		console.println("Bins");
+		for (Map.Entry<String, Object> entry : record.bins.entrySet()) {
+			console.println(String.format("\t%s = %s", entry.getKey(), entry.getValue().toString()));
+		}
+	}
+}
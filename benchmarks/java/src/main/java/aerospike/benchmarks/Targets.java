@@ -0,0 +1,37 @@
+package aerospike.benchmarks;
+
+import com.aerospike.client.AerospikeClient;
+
+import aerospike.common.ClientRegistry;
+import aerospike.standin.StandInClient;
+
+/**
+ * Connects a benchmark to what it measures. Every suite has a
+ * {@code target} parameter: "standin" runs against the in-process
+ * stand-in, "host:port" (several separated by commas) against a real
+ * cluster.
+ */
+public final class Targets {
+	public static final String STANDIN = "standin";
+
+	private Targets() {
+	}
+
+	/**
+	 * @param target "standin" or "host:port"
+	 * @param latencyMicros simulated round trip, stand-in only
+	 */
+	public static AerospikeClient connect(String target, long latencyMicros) {
+		if (STANDIN.equals(target)) {
+			StandInClient client = new StandInClient();
+			client.setNetworkLatency(latencyMicros);
+			return client;
+		}
+		// the settings in aerospike.properties, connections warmed before the first operation
+		return ClientRegistry.connect(ClientRegistry.parseHosts(target));
+	}
+
+	public static boolean isStandIn(AerospikeClient client) {
+		return client instanceof StandInClient;
+	}
+}
@@ -0,0 +1,127 @@
+package aerospike.common;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Reads many records with batch commands instead of one get per key.
+ * <p>
+ * Keys are cut into chunks of at most {@code batchSize}, and up to
+ * {@code concurrency} chunks run at once on {@link Workers}. This class
+ * does not group keys by node: each chunk is one client batch call, and
+ * the client itself splits it into one request per node that holds some
+ * of its keys. {@code batchSize} therefore bounds a client call, not the
+ * request any one node receives. Results come back in the order of the
+ * keys.
+ * <p>
+ * Client 4.x has no batch write, so {@link #operate} runs one
+ * {@code operate} per key, concurrently. Put the read of a write in the
+ * same operate (for example {@code Operation.get(bin)} after the write)
+ * rather than reading it back afterwards.
+ */
+public class BatchAccess {
+	private final AerospikeClient client;
+	private final BatchPolicy batchPolicy;
+	private final int batchSize;
+	private final int concurrency;
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong keys = new AtomicLong();
+
+	public BatchAccess(AerospikeClient client, BatchPolicy batchPolicy, int batchSize, int concurrency) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		this.client = client;
+		this.batchPolicy = batchPolicy;
+		this.batchSize = batchSize;
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Reads the bins of every key, all bins if none are given.
+	 *
+	 * @return the records in key order, null where a key was not found
+	 */
+	public Record[] get(Key[] keys, String... binNames) {
+		Record[] records = new Record[keys.length];
+		try (Workers workers = new Workers(concurrency)) {
+			for (int from = 0; from < keys.length; from += batchSize) {
+				int start = from;
+				int end = Math.min(from + batchSize, keys.length);
+				workers.submit(() -> {
+					Key[] chunk = Arrays.copyOfRange(keys, start, end);
+					Record[] result = binNames == null || binNames.length == 0
+							? client.get(batchPolicy, chunk)
+							: client.get(batchPolicy, chunk, binNames);
+					System.arraycopy(result, 0, records, start, result.length);
+					count(chunk.length);
+				});
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Reads records that each want different bins; the results are set on
+	 * the BatchRead entries.
+	 */
+	public void get(List<BatchRead> reads) {
+		try (Workers workers = new Workers(concurrency)) {
+			for (int from = 0; from < reads.size(); from += batchSize) {
+				List<BatchRead> chunk = reads.subList(from, Math.min(from + batchSize, reads.size()));
+				workers.submit(() -> {
+					client.get(batchPolicy, chunk);
+					count(chunk.size());
+				});
+			}
+		}
+	}
+
+	/**
+	 * Runs the same operations on every key, {@code concurrency} at a
+	 * time.
+	 *
+	 * @return the results in key order
+	 */
+	public Record[] operate(WritePolicy writePolicy, Key[] keys, Operation... operations) {
+		Record[] records = new Record[keys.length];
+		try (Workers workers = new Workers(concurrency)) {
+			for (int i = 0; i < keys.length; i++) {
+				int index = i;
+				workers.submit(() -> {
+					records[index] = client.operate(writePolicy, keys[index], operations);
+					count(1);
+				});
+			}
+		}
+		return records;
+	}
+
+	private void count(int keyCount) {
+		calls.incrementAndGet();
+		keys.addAndGet(keyCount);
+	}
+
+	/**
+	 * Client calls made so far: one per batch chunk and one per operate.
+	 * The client splits each batch call by node, so this counts calls, not
+	 * network requests.
+	 */
+	public long getBatchCalls() {
+		return calls.get();
+	}
+
+	public long getKeys() {
+		return keys.get();
+	}
+}
@@ -0,0 +1,802 @@
+package aerospike.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Language;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.Value;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.listener.BatchListListener;
+import com.aerospike.client.listener.BatchSequenceListener;
+import com.aerospike.client.listener.DeleteListener;
+import com.aerospike.client.listener.ExecuteListener;
+import com.aerospike.client.listener.ExistsArrayListener;
+import com.aerospike.client.listener.ExistsListener;
+import com.aerospike.client.listener.ExistsSequenceListener;
+import com.aerospike.client.listener.RecordArrayListener;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.listener.RecordSequenceListener;
+import com.aerospike.client.listener.WriteListener;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.InfoPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.ResultSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.aerospike.client.task.IndexTask;
+import com.aerospike.client.task.RegisterTask;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * A client that keeps the records it reads in a local cache, for reference
+ * data such as airports and regions that is read far more often than it
+ * changes.
+ * <p>
+ * Whole-record gets, batch gets and exists are answered from the cache when
+ * the record is there; a get of some bins is answered from a cached whole
+ * record. A get of some bins that misses reads just those bins and does not
+ * cache them, since a partial record cannot answer other reads: read the
+ * whole record once to have subset reads answered locally. Records are keyed by namespace and digest, which is what a Key
+ * is compared by, so the user key is not kept. The cache is a Caffeine
+ * cache, bounded by an estimate of the bytes the records take and evicted
+ * by W-TinyLFU, which keeps the frequently read records when a scan or a
+ * burst of one-off reads passes through.
+ * <p>
+ * An entry expires with its record's TTL, and after {@code maxAgeSeconds}
+ * at most, since writes from other clients are not seen. Every write made
+ * through this client (put, add, append, prepend, touch, delete, operate,
+ * UDF execute) drops the record from the cache, and a background UDF
+ * execute or a truncate drops the whole cache. Cached records are shared:
+ * do not change their bins.
+ * <p>
+ * Like {@link InstrumentedClient}, it extends {@link AerospikeClient}
+ * without a cluster of its own, so every other command is overridden and
+ * passed on to the wrapped client. Asynchronous reads, batch reads, scans
+ * and queries go to the server and do not use the cache; asynchronous
+ * writes drop the record when they are issued and when they complete.
+ */
+public class CachingClient extends AerospikeClient {
+
+	/**
+	 * Namespace and digest, without the user key.
+	 */
+	private static final class CacheKey {
+		final String namespace;
+		final byte[] digest;
+		final int hash;
+
+		CacheKey(Key key) {
+			this.namespace = key.namespace;
+			this.digest = key.digest;
+			// digests are hashes already
+			this.hash = (digest[0] & 0xFF) | (digest[1] & 0xFF) << 8 | (digest[2] & 0xFF) << 16
+					| (digest[3] & 0xFF) << 24;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return hash == other.hash && Arrays.equals(digest, other.digest)
+					&& namespace.equals(other.namespace);
+		}
+	}
+
+	private final AerospikeClient client;
+	private final Cache<CacheKey, Record> cache;
+	private final long maxAgeNanos;
+	// bumped by every write, so a read that raced one is not cached
+	private final AtomicLong writes = new AtomicLong();
+
+	/**
+	 * @param maximumBytes the estimated size the cached records may take
+	 * @param maxAgeSeconds the longest a record is kept, whatever its TTL
+	 */
+	public CachingClient(AerospikeClient client, long maximumBytes, int maxAgeSeconds) {
+		super(new ClientPolicy());
+		this.client = client;
+		this.maxAgeNanos = TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+		this.cache = Caffeine.newBuilder()
+				.maximumWeight(maximumBytes)
+				.weigher((CacheKey key, Record record) -> (int) Math.min(Integer.MAX_VALUE, estimateBytes(record)))
+				.expireAfter(new Expiry<CacheKey, Record>() {
+					@Override
+					public long expireAfterCreate(CacheKey key, Record record, long currentTime) {
+						return lifetimeNanos(record);
+					}
+
+					@Override
+					public long expireAfterUpdate(CacheKey key, Record record, long currentTime, long currentDuration) {
+						return lifetimeNanos(record);
+					}
+
+					@Override
+					public long expireAfterRead(CacheKey key, Record record, long currentTime, long currentDuration) {
+						return currentDuration;
+					}
+				})
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * The client the commands go to.
+	 */
+	public AerospikeClient getClient() {
+		return client;
+	}
+
+	private long lifetimeNanos(Record record) {
+		// -1 is never expires
+		int ttl = record.getTimeToLive();
+		return ttl < 0 ? maxAgeNanos : Math.min(maxAgeNanos, TimeUnit.SECONDS.toNanos(ttl));
+	}
+
+	private void remember(Key key, Record record, long writesBefore) {
+		if (record == null) {
+			return;
+		}
+		CacheKey cacheKey = new CacheKey(key);
+		cache.put(cacheKey, record);
+		if (writes.get() != writesBefore) {
+			// a write finished while the record was read; it may be older
+			cache.invalidate(cacheKey);
+		}
+	}
+
+	private void forget(Key key) {
+		writes.incrementAndGet();
+		cache.invalidate(new CacheKey(key));
+	}
+
+	/**
+	 * Drops every cached record.
+	 */
+	public void invalidateAll() {
+		writes.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	@Override
+	public boolean isConnected() {
+		return client.isConnected();
+	}
+
+	@Override
+	public Node[] getNodes() {
+		return client.getNodes();
+	}
+
+	@Override
+	public void close() {
+		client.close();
+	}
+
+	@Override
+	public Node getNode(String nodeName) throws AerospikeException.InvalidNode {
+		return client.getNode(nodeName);
+	}
+
+	@Override
+	public List<String> getNodeNames() {
+		return client.getNodeNames();
+	}
+
+	@Override
+	public Record get(Policy policy, Key key) throws AerospikeException {
+		Record record = cache.getIfPresent(new CacheKey(key));
+		if (record != null) {
+			return record;
+		}
+		long before = writes.get();
+		record = client.get(policy, key);
+		remember(key, record, before);
+		return record;
+	}
+
+	/**
+	 * Served from a cached whole record; otherwise read from the server and
+	 * not cached.
+	 */
+	@Override
+	public Record get(Policy policy, Key key, String... binNames) throws AerospikeException {
+		Record record = cache.getIfPresent(new CacheKey(key));
+		if (record == null) {
+			return client.get(policy, key, binNames);
+		}
+		Map<String, Object> bins = new HashMap<String, Object>();
+		for (String binName : binNames) {
+			Object value = record.bins == null ? null : record.bins.get(binName);
+			if (value != null) {
+				bins.put(binName, value);
+			}
+		}
+		return new Record(bins, record.generation, record.expiration);
+	}
+
+	@Override
+	public Record getHeader(Policy policy, Key key) throws AerospikeException {
+		Record record = cache.getIfPresent(new CacheKey(key));
+		if (record == null) {
+			return client.getHeader(policy, key);
+		}
+		return new Record(null, record.generation, record.expiration);
+	}
+
+	@Override
+	public boolean exists(Policy policy, Key key) throws AerospikeException {
+		return cache.getIfPresent(new CacheKey(key)) != null || client.exists(policy, key);
+	}
+
+	/**
+	 * Reads the keys that are not cached in one batch and caches them.
+	 */
+	@Override
+	public Record[] get(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		Record[] records = new Record[keys.length];
+		List<Integer> missing = new ArrayList<Integer>();
+		for (int i = 0; i < keys.length; i++) {
+			records[i] = cache.getIfPresent(new CacheKey(keys[i]));
+			if (records[i] == null) {
+				missing.add(i);
+			}
+		}
+		if (missing.isEmpty()) {
+			return records;
+		}
+		Key[] misses = new Key[missing.size()];
+		for (int i = 0; i < misses.length; i++) {
+			misses[i] = keys[missing.get(i)];
+		}
+		long before = writes.get();
+		Record[] read = client.get(policy, misses);
+		for (int i = 0; i < misses.length; i++) {
+			records[missing.get(i)] = read[i];
+			remember(misses[i], read[i], before);
+		}
+		return records;
+	}
+
+	@Override
+	public Record[] get(BatchPolicy policy, Key[] keys, String... binNames) throws AerospikeException {
+		return client.get(policy, keys, binNames);
+	}
+
+	@Override
+	public void get(BatchPolicy policy, List<BatchRead> records) throws AerospikeException {
+		client.get(policy, records);
+	}
+
+	@Override
+	public Record[] getHeader(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		return client.getHeader(policy, keys);
+	}
+
+	@Override
+	public boolean[] exists(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		return client.exists(policy, keys);
+	}
+
+	@Override
+	public void put(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		try {
+			client.put(policy, key, bins);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public void add(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		try {
+			client.add(policy, key, bins);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public void append(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		try {
+			client.append(policy, key, bins);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public void prepend(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		try {
+			client.prepend(policy, key, bins);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public void touch(WritePolicy policy, Key key) throws AerospikeException {
+		try {
+			client.touch(policy, key);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public boolean delete(WritePolicy policy, Key key) throws AerospikeException {
+		try {
+			return client.delete(policy, key);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public Record operate(WritePolicy policy, Key key, Operation... operations) throws AerospikeException {
+		try {
+			return client.operate(policy, key, operations);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public Object execute(WritePolicy policy, Key key, String packageName, String functionName, Value... args)
+			throws AerospikeException {
+		try {
+			return client.execute(policy, key, packageName, functionName, args);
+		} finally {
+			forget(key);
+		}
+	}
+
+	@Override
+	public ExecuteTask execute(WritePolicy policy, Statement statement, String packageName, String functionName,
+			Value... functionArgs) throws AerospikeException {
+		// any record the query matches may change
+		try {
+			return client.execute(policy, statement, packageName, functionName, functionArgs);
+		} finally {
+			invalidateAll();
+		}
+	}
+
+	@Override
+	public void truncate(InfoPolicy policy, String ns, String set, Calendar beforeLastUpdate)
+			throws AerospikeException {
+		try {
+			client.truncate(policy, ns, set, beforeLastUpdate);
+		} finally {
+			invalidateAll();
+		}
+	}
+
+	@Override
+	public RecordSet query(QueryPolicy policy, Statement statement) throws AerospikeException {
+		return client.query(policy, statement);
+	}
+
+	@Override
+	public RecordSet queryNode(QueryPolicy policy, Statement statement, Node node) throws AerospikeException {
+		return client.queryNode(policy, statement, node);
+	}
+
+	@Override
+	public void scanAll(ScanPolicy policy, String namespace, String setName, ScanCallback callback,
+			String... binNames) throws AerospikeException {
+		client.scanAll(policy, namespace, setName, callback, binNames);
+	}
+
+	@Override
+	public ResultSet queryAggregate(QueryPolicy policy, Statement statement, String packageName,
+			String functionName, Value... functionArgs) throws AerospikeException {
+		return client.queryAggregate(policy, statement, packageName, functionName, functionArgs);
+	}
+
+	@Override
+	public void scanNode(ScanPolicy policy, String nodeName, String namespace, String setName,
+			ScanCallback callback, String... binNames) throws AerospikeException {
+		client.scanNode(policy, nodeName, namespace, setName, callback, binNames);
+	}
+
+	@Override
+	public void scanNode(ScanPolicy policy, Node node, String namespace, String setName,
+			ScanCallback callback, String... binNames) throws AerospikeException {
+		client.scanNode(policy, node, namespace, setName, callback, binNames);
+	}
+
+	@Override
+	public RegisterTask register(Policy policy, String clientPath, String serverPath, Language language)
+			throws AerospikeException {
+		return client.register(policy, clientPath, serverPath, language);
+	}
+
+	@Override
+	public RegisterTask register(Policy policy, ClassLoader resourceLoader, String resourcePath, String serverPath,
+			Language language) throws AerospikeException {
+		return client.register(policy, resourceLoader, resourcePath, serverPath, language);
+	}
+
+	@Override
+	public RegisterTask registerUdfString(Policy policy, String code, String serverPath, Language language)
+			throws AerospikeException {
+		return client.registerUdfString(policy, code, serverPath, language);
+	}
+
+	@Override
+	public void removeUdf(InfoPolicy policy, String serverPath) throws AerospikeException {
+		client.removeUdf(policy, serverPath);
+	}
+
+	@Override
+	public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName,
+			String binName, IndexType indexType) throws AerospikeException {
+		return client.createIndex(policy, namespace, setName, indexName, binName, indexType);
+	}
+
+	@Override
+	public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName,
+			String binName, IndexType indexType, IndexCollectionType indexCollectionType) throws AerospikeException {
+		return client.createIndex(policy, namespace, setName, indexName, binName, indexType, indexCollectionType);
+	}
+
+	@Override
+	public void dropIndex(Policy policy, String namespace, String setName, String indexName) throws AerospikeException {
+		client.dropIndex(policy, namespace, setName, indexName);
+	}
+
+	@Override
+	public void put(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		forget(key);
+		client.put(eventLoop, forgetting(key, listener), policy, key, bins);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordListener listener, Policy policy, Key key, String... binNames)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, key, binNames);
+	}
+
+	@Override
+	public void operate(EventLoop eventLoop, RecordListener listener, WritePolicy policy, Key key,
+			Operation... operations) throws AerospikeException {
+		forget(key);
+		client.operate(eventLoop, forgetting(key, listener), policy, key, operations);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordListener listener, Policy policy, Key key)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void getHeader(EventLoop eventLoop, RecordListener listener, Policy policy, Key key)
+			throws AerospikeException {
+		client.getHeader(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void exists(EventLoop eventLoop, ExistsListener listener, Policy policy, Key key)
+			throws AerospikeException {
+		client.exists(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, BatchListListener listener, BatchPolicy policy, List<BatchRead> records)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, records);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, BatchSequenceListener listener, BatchPolicy policy, List<BatchRead> records)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, records);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordArrayListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordArrayListener listener, BatchPolicy policy, Key[] keys,
+			String... binNames)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys, binNames);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys,
+			String... binNames)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys, binNames);
+	}
+
+	@Override
+	public void getHeader(EventLoop eventLoop, RecordArrayListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.getHeader(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void getHeader(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.getHeader(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void exists(EventLoop eventLoop, ExistsArrayListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.exists(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void exists(EventLoop eventLoop, ExistsSequenceListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.exists(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void scanAll(EventLoop eventLoop, RecordSequenceListener listener, ScanPolicy policy, String namespace,
+			String setName, String... binNames)
+			throws AerospikeException {
+		client.scanAll(eventLoop, listener, policy, namespace, setName, binNames);
+	}
+
+	@Override
+	public void query(EventLoop eventLoop, RecordSequenceListener listener, QueryPolicy policy, Statement statement)
+			throws AerospikeException {
+		client.query(eventLoop, listener, policy, statement);
+	}
+
+	@Override
+	public void append(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		forget(key);
+		client.append(eventLoop, forgetting(key, listener), policy, key, bins);
+	}
+
+	@Override
+	public void prepend(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		forget(key);
+		client.prepend(eventLoop, forgetting(key, listener), policy, key, bins);
+	}
+
+	@Override
+	public void add(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		forget(key);
+		client.add(eventLoop, forgetting(key, listener), policy, key, bins);
+	}
+
+	@Override
+	public void touch(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key)
+			throws AerospikeException {
+		forget(key);
+		client.touch(eventLoop, forgetting(key, listener), policy, key);
+	}
+
+	@Override
+	public void delete(EventLoop eventLoop, DeleteListener listener, WritePolicy policy, Key key)
+			throws AerospikeException {
+		forget(key);
+		client.delete(eventLoop, forgetting(key, listener), policy, key);
+	}
+
+	@Override
+	public void execute(EventLoop eventLoop, ExecuteListener listener, WritePolicy policy, Key key,
+			String packageName, String functionName, Value... functionArgs)
+			throws AerospikeException {
+		forget(key);
+		client.execute(eventLoop, forgetting(key, listener), policy, key, packageName, functionName, functionArgs);
+	}
+
+	/**
+	 * Drops the record again when the asynchronous write completes, since a
+	 * read may have cached the old record while the write was in flight. The
+	 * listener may be null, for a write nobody waits for.
+	 */
+	private WriteListener forgetting(Key key, WriteListener listener) {
+		return new WriteListener() {
+			@Override
+			public void onSuccess(Key k) {
+				forget(key);
+				if (listener != null) {
+					listener.onSuccess(k);
+				}
+			}
+
+			@Override
+			public void onFailure(AerospikeException e) {
+				forget(key);
+				if (listener != null) {
+					listener.onFailure(e);
+				}
+			}
+		};
+	}
+
+	private RecordListener forgetting(Key key, RecordListener listener) {
+		return new RecordListener() {
+			@Override
+			public void onSuccess(Key k, Record record) {
+				forget(key);
+				if (listener != null) {
+					listener.onSuccess(k, record);
+				}
+			}
+
+			@Override
+			public void onFailure(AerospikeException e) {
+				forget(key);
+				if (listener != null) {
+					listener.onFailure(e);
+				}
+			}
+		};
+	}
+
+	private DeleteListener forgetting(Key key, DeleteListener listener) {
+		return new DeleteListener() {
+			@Override
+			public void onSuccess(Key k, boolean existed) {
+				forget(key);
+				if (listener != null) {
+					listener.onSuccess(k, existed);
+				}
+			}
+
+			@Override
+			public void onFailure(AerospikeException e) {
+				forget(key);
+				if (listener != null) {
+					listener.onFailure(e);
+				}
+			}
+		};
+	}
+
+	private ExecuteListener forgetting(Key key, ExecuteListener listener) {
+		return new ExecuteListener() {
+			@Override
+			public void onSuccess(Key k, Object result) {
+				forget(key);
+				if (listener != null) {
+					listener.onSuccess(k, result);
+				}
+			}
+
+			@Override
+			public void onFailure(AerospikeException e) {
+				forget(key);
+				if (listener != null) {
+					listener.onFailure(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * A rough size of a cached record on the heap: the entry, the bin map
+	 * and the values in it.
+	 */
+	static long estimateBytes(Record record) {
+		long bytes = 128;
+		if (record.bins != null) {
+			for (Map.Entry<String, Object> entry : record.bins.entrySet()) {
+				bytes += 48 + 2L * entry.getKey().length() + estimateBytes(entry.getValue());
+			}
+		}
+		return bytes;
+	}
+
+	private static long estimateBytes(Object value) {
+		if (value == null) {
+			return 0;
+		}
+		if (value instanceof String) {
+			return 40 + ((String) value).length();
+		}
+		if (value instanceof byte[]) {
+			return 16 + ((byte[]) value).length;
+		}
+		if (value instanceof List) {
+			long bytes = 40;
+			for (Object element : (List<?>) value) {
+				bytes += 8 + estimateBytes(element);
+			}
+			return bytes;
+		}
+		if (value instanceof Map) {
+			long bytes = 48;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+				bytes += 32 + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+			}
+			return bytes;
+		}
+		if (value instanceof Value) {
+			// GeoJSON and other particle values
+			return 16 + estimateBytes(((Value) value).getObject());
+		}
+		return 16;
+	}
+
+	public long getHits() {
+		return cache.stats().hitCount();
+	}
+
+	public long getMisses() {
+		return cache.stats().missCount();
+	}
+
+	public double getHitRatio() {
+		return cache.stats().hitRate();
+	}
+
+	public long getEvictions() {
+		return cache.stats().evictionCount();
+	}
+
+	public long getEntries() {
+		return cache.estimatedSize();
+	}
+
+	/**
+	 * The estimated bytes the cached records take.
+	 */
+	public long getEstimatedBytes() {
+		return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+	}
+
+	/**
+	 * A one line summary of the metrics.
+	 */
+	public String summary() {
+		CacheStats stats = cache.stats();
+		return String.format("%d records, %d KB, hit ratio %.3f (%d hits, %d misses), %d evicted",
+				getEntries(), getEstimatedBytes() / 1024, stats.hitRate(), stats.hitCount(), stats.missCount(),
+				stats.evictionCount());
+	}
+}
@@ -0,0 +1,291 @@
+package aerospike.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Host;
+import com.aerospike.client.Info;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.Policy;
+
+/**
+ * Creates clients from one configuration and shares them, so every
+ * workload in a process uses the same cluster connection.
+ * <p>
+ * The configuration is read from {@code aerospike.properties} on the
+ * class path, and any {@code aerospike.*} system property overrides it:
+ * <ul>
+ * <li>{@code aerospike.hosts}: seeds, {@code host:port,host:port}</li>
+ * <li>{@code aerospike.timeout}: connect and info timeout, ms</li>
+ * <li>{@code aerospike.maxConnsPerNode}, {@code aerospike.connPoolsPerNode}</li>
+ * <li>{@code aerospike.tendInterval}: ms between cluster tends</li>
+ * <li>{@code aerospike.socketTimeout}, {@code aerospike.totalTimeout}: ms,
+ * for the default read, write, scan, query and batch policies</li>
+ * <li>{@code aerospike.warmConnections}: connections per node to open
+ * before the client is handed out</li>
+ * <li>{@code aerospike.metricsPort}: if set, commands are timed by an
+ * {@link InstrumentedClient} and the metrics served on this local port</li>
+ * </ul>
+ * Settings that are not given keep the client's defaults.
+ * <p>
+ * {@link #acquire()} hands out the shared client for the configured
+ * seeds, connecting on first use; {@link #release(AerospikeClient)}
+ * closes it when the last user lets go. {@link #catalog(AerospikeClient)}
+ * keeps one {@link IndexCatalog} per client, so its cached index list is
+ * shared by everything using the client.
+ */
+public final class ClientRegistry {
+	public static final String CONFIG_RESOURCE = "aerospike.properties";
+	private static final String PREFIX = "aerospike.";
+	private static final long CATALOG_REFRESH_MILLIS = 60000;
+
+	private static final class Shared {
+		final AerospikeClient client;
+		int users;
+
+		Shared(AerospikeClient client) {
+			this.client = client;
+		}
+	}
+
+	private static final Map<String, Shared> shared = new HashMap<String, Shared>();
+	private static final Map<AerospikeClient, IndexCatalog> catalogs = new HashMap<AerospikeClient, IndexCatalog>();
+	private static MetricsServer metricsServer;
+
+	private static final AtomicLong clientsCreated = new AtomicLong();
+	private static final AtomicLong acquired = new AtomicLong();
+	private static final AtomicLong warmConnections = new AtomicLong();
+	private static volatile long connectNanos;
+	private static volatile long warmUpNanos;
+
+	private ClientRegistry() {
+	}
+
+	/**
+	 * The configuration file overlaid with the {@code aerospike.*} system
+	 * properties.
+	 */
+	public static Properties config() {
+		Properties config = new Properties();
+		try (InputStream in = ClientRegistry.class.getClassLoader().getResourceAsStream(CONFIG_RESOURCE)) {
+			if (in != null) {
+				config.load(in);
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read " + CONFIG_RESOURCE, e);
+		}
+		for (String name : System.getProperties().stringPropertyNames()) {
+			if (name.startsWith(PREFIX)) {
+				config.setProperty(name, System.getProperty(name));
+			}
+		}
+		return config;
+	}
+
+	/**
+	 * A client policy with the configured settings, for callers that need
+	 * to add their own, such as event loops.
+	 */
+	public static ClientPolicy policy() {
+		Properties config = config();
+		ClientPolicy policy = new ClientPolicy();
+		policy.timeout = intSetting(config, "timeout", 500);
+		policy.maxConnsPerNode = intSetting(config, "maxConnsPerNode", policy.maxConnsPerNode);
+		policy.connPoolsPerNode = intSetting(config, "connPoolsPerNode", policy.connPoolsPerNode);
+		policy.tendInterval = intSetting(config, "tendInterval", policy.tendInterval);
+		Policy[] defaults = { policy.readPolicyDefault, policy.writePolicyDefault, policy.scanPolicyDefault,
+				policy.queryPolicyDefault, policy.batchPolicyDefault };
+		for (Policy p : defaults) {
+			p.socketTimeout = intSetting(config, "socketTimeout", p.socketTimeout);
+			p.totalTimeout = intSetting(config, "totalTimeout", p.totalTimeout);
+		}
+		return policy;
+	}
+
+	/**
+	 * The configured seeds.
+	 */
+	public static Host[] hosts() {
+		return parseHosts(config().getProperty(PREFIX + "hosts", "10.211.55.101:3000"));
+	}
+
+	/**
+	 * @param hosts {@code host:port,host:port}, the port defaulting to 3000
+	 */
+	public static Host[] parseHosts(String hosts) {
+		List<Host> parsed = new ArrayList<Host>();
+		for (String host : hosts.split(",")) {
+			String[] hostPort = host.trim().split(":");
+			parsed.add(new Host(hostPort[0], hostPort.length > 1 ? Integer.parseInt(hostPort[1]) : 3000));
+		}
+		return parsed.toArray(new Host[parsed.size()]);
+	}
+
+	/**
+	 * A new, unshared client for the given seeds, configured and warmed
+	 * up. The caller closes it.
+	 */
+	public static AerospikeClient connect(Host... hosts) {
+		Properties config = config();
+		long start = System.nanoTime();
+		AerospikeClient client = new AerospikeClient(policy(), hosts);
+		connectNanos = System.nanoTime() - start;
+		clientsCreated.incrementAndGet();
+		warmUp(client, intSetting(config, "warmConnections", 0));
+		int metricsPort = intSetting(config, "metricsPort", 0);
+		if (metricsPort > 0) {
+			serveMetrics(metricsPort);
+			client = new InstrumentedClient(client, OperationMetrics.global());
+		}
+		return client;
+	}
+
+	private static synchronized void serveMetrics(int port) {
+		if (metricsServer == null) {
+			try {
+				metricsServer = new MetricsServer(OperationMetrics.global(), port);
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot serve metrics on port " + port, e);
+			}
+		}
+	}
+
+	/**
+	 * The shared client for the configured seeds, connected and warmed up
+	 * on first use.
+	 */
+	public static AerospikeClient acquire() {
+		Host[] hosts = hosts();
+		String name = hostsKey(hosts);
+		synchronized (shared) {
+			Shared entry = shared.get(name);
+			if (entry == null || !entry.client.isConnected()) {
+				entry = new Shared(connect(hosts));
+				shared.put(name, entry);
+			}
+			entry.users++;
+			acquired.incrementAndGet();
+			return entry.client;
+		}
+	}
+
+	/**
+	 * Gives back a client from {@link #acquire()}, closing it after the
+	 * last user. Any other client is simply closed.
+	 */
+	public static void release(AerospikeClient client) {
+		synchronized (shared) {
+			for (Map.Entry<String, Shared> entry : shared.entrySet()) {
+				Shared s = entry.getValue();
+				if (s.client == client) {
+					if (--s.users == 0) {
+						shared.remove(entry.getKey());
+						forgetCatalog(client);
+						client.close();
+					}
+					return;
+				}
+			}
+		}
+		forgetCatalog(client);
+		client.close();
+	}
+
+	/**
+	 * The index catalog of the client, created on first use and dropped
+	 * when the client is released for the last time.
+	 */
+	public static IndexCatalog catalog(AerospikeClient client) {
+		synchronized (catalogs) {
+			return catalogs.computeIfAbsent(client, c -> new IndexCatalog(c, CATALOG_REFRESH_MILLIS));
+		}
+	}
+
+	private static void forgetCatalog(AerospikeClient client) {
+		synchronized (catalogs) {
+			catalogs.remove(client);
+		}
+	}
+
+	/**
+	 * Opens {@code perNode} connections to every node at once, with an info
+	 * request on each, so they are in the pool before the first command.
+	 */
+	public static void warmUp(AerospikeClient client, int perNode) {
+		Node[] nodes = client.getNodes();
+		if (perNode <= 0 || nodes.length == 0) {
+			return;
+		}
+		long start = System.nanoTime();
+		try (Workers workers = new Workers(perNode * nodes.length)) {
+			for (Node node : nodes) {
+				for (int i = 0; i < perNode; i++) {
+					workers.submit(() -> {
+						Info.request(node, "build");
+						warmConnections.incrementAndGet();
+					});
+				}
+			}
+		}
+		warmUpNanos = System.nanoTime() - start;
+	}
+
+	private static String hostsKey(Host[] hosts) {
+		StringBuilder key = new StringBuilder();
+		for (Host host : hosts) {
+			key.append(host.name).append(':').append(host.port).append(',');
+		}
+		return key.toString();
+	}
+
+	private static int intSetting(Properties config, String name, int defaultValue) {
+		String value = config.getProperty(PREFIX + name);
+		return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+	}
+
+	/**
+	 * Clients connected so far, shared or not.
+	 */
+	public static long getClientsCreated() {
+		return clientsCreated.get();
+	}
+
+	/**
+	 * Times a shared client was handed out.
+	 */
+	public static long getAcquired() {
+		return acquired.get();
+	}
+
+	public static long getWarmConnections() {
+		return warmConnections.get();
+	}
+
+	/**
+	 * How long the last client took to connect to the cluster.
+	 */
+	public static long getConnectMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(connectNanos);
+	}
+
+	public static long getWarmUpMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(warmUpNanos);
+	}
+
+	/**
+	 * A one line summary of the metrics.
+	 */
+	public static String summary() {
+		return String.format("%d clients for %d users, connected in %d ms, %d connections warmed in %d ms",
+				getClientsCreated(), getAcquired(), getConnectMillis(), getWarmConnections(), getWarmUpMillis());
+	}
+}
@@ -0,0 +1,127 @@
+package aerospike.common;
+
+import java.util.Arrays;
+
+/**
+ * A set of 20 byte record digests, for remembering which records a query
+ * has already returned.
+ * <p>
+ * Digests are stored back to back in one byte array and found by linear
+ * probing, so an entry costs about 27 bytes at the maximum load of 3/4,
+ * against well over 100 for a {@code HashSet<Key>} entry with its Key,
+ * digest array and hash node. Digests are RIPEMD-160 hashes, so their
+ * first bytes serve as the hash code as they are.
+ * <p>
+ * {@link #add(byte[])} is synchronized, so one set can be shared by the
+ * threads of a parallel query.
+ */
+public class DigestSet {
+	private static final int DIGEST_SIZE = 20;
+
+	private byte[] digests;
+	private long[] used;
+	private int mask;
+	private int size;
+
+	public DigestSet() {
+		this(1024);
+	}
+
+	/**
+	 * @param expected the number of digests to size the set for
+	 */
+	public DigestSet(int expected) {
+		int capacity = Integer.highestOneBit(Math.max(16, expected * 4 / 3 + 1) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		digests = new byte[capacity * DIGEST_SIZE];
+		used = new long[(capacity + 63) >>> 6];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * @return true if the digest was not in the set
+	 */
+	public synchronized boolean add(byte[] digest) {
+		if (digest.length != DIGEST_SIZE) {
+			throw new IllegalArgumentException("Digest must be " + DIGEST_SIZE + " bytes");
+		}
+		int slot = hash(digest, 0) & mask;
+		while (isUsed(slot)) {
+			if (equals(slot, digest)) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		insert(slot, digest, 0);
+		if (++size > (mask + 1) / 4 * 3) {
+			grow();
+		}
+		return true;
+	}
+
+	public synchronized boolean contains(byte[] digest) {
+		int slot = hash(digest, 0) & mask;
+		while (isUsed(slot)) {
+			if (equals(slot, digest)) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized void clear() {
+		Arrays.fill(used, 0);
+		size = 0;
+	}
+
+	/**
+	 * Bytes held by the table.
+	 */
+	public synchronized long getMemoryBytes() {
+		return digests.length + used.length * 8L;
+	}
+
+	private void grow() {
+		byte[] oldDigests = digests;
+		long[] oldUsed = used;
+		int oldCapacity = mask + 1;
+		allocate(oldCapacity * 2);
+		for (int old = 0; old < oldCapacity; old++) {
+			if ((oldUsed[old >>> 6] & (1L << old)) != 0) {
+				int offset = old * DIGEST_SIZE;
+				int slot = hash(oldDigests, offset) & mask;
+				while (isUsed(slot)) {
+					slot = (slot + 1) & mask;
+				}
+				insert(slot, oldDigests, offset);
+			}
+		}
+	}
+
+	private void insert(int slot, byte[] source, int offset) {
+		System.arraycopy(source, offset, digests, slot * DIGEST_SIZE, DIGEST_SIZE);
+		used[slot >>> 6] |= 1L << slot;
+	}
+
+	private boolean isUsed(int slot) {
+		return (used[slot >>> 6] & (1L << slot)) != 0;
+	}
+
+	private boolean equals(int slot, byte[] digest) {
+		int offset = slot * DIGEST_SIZE;
+		return Arrays.equals(digests, offset, offset + DIGEST_SIZE, digest, 0, DIGEST_SIZE);
+	}
+
+	private static int hash(byte[] data, int offset) {
+		return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8
+				| (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+	}
+}
@@ -0,0 +1,105 @@
+package aerospike.common;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.luaj.vm2.LuaValue;
+
+import com.aerospike.client.Value;
+import com.aerospike.client.command.ParticleType;
+import com.aerospike.client.lua.LuaInstance;
+import com.aerospike.client.util.Packer;
+
+/**
+ * The {@code double[]} counterpart of {@link LongListValue}; every element
+ * packs as an 8 byte float.
+ */
+public final class DoubleListValue extends Value {
+	private final double[] values;
+	private final int offset;
+	private final int length;
+
+	public DoubleListValue(double[] values) {
+		this(values, 0, values.length);
+	}
+
+	public DoubleListValue(double[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length);
+		}
+		this.values = values;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int estimateSize() {
+		return MsgPack.arrayHeaderSize(length) + length * MsgPack.DOUBLE_SIZE;
+	}
+
+	@Override
+	public int write(byte[] buffer, int offset) {
+		int start = offset;
+		offset += MsgPack.writeArrayHeader(buffer, offset, length);
+		for (int i = this.offset; i < this.offset + length; i++) {
+			offset += MsgPack.writeDouble(buffer, offset, values[i]);
+		}
+		return offset - start;
+	}
+
+	@Override
+	public void pack(Packer packer) {
+		packer.packArrayBegin(length);
+		for (int i = offset; i < offset + length; i++) {
+			packer.packDouble(values[i]);
+		}
+	}
+
+	@Override
+	public int getType() {
+		return ParticleType.LIST;
+	}
+
+	/**
+	 * A boxed view of the values, for code that wants a list.
+	 */
+	@Override
+	public List<Double> getObject() {
+		return new AbstractList<Double>() {
+			@Override
+			public Double get(int index) {
+				if (index < 0 || index >= length) {
+					throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+				}
+				return values[offset + index];
+			}
+
+			@Override
+			public int size() {
+				return length;
+			}
+		};
+	}
+
+	@Override
+	public LuaValue getLuaValue(LuaInstance instance) {
+		return Value.get(getObject()).getLuaValue(instance);
+	}
+
+	@Override
+	public String toString() {
+		return getObject().toString();
+	}
+
+	/**
+	 * The elements of a list read from a bin, as doubles.
+	 */
+	public static double[] toArray(List<?> list) {
+		double[] array = new long[list.size()];
+		int i = 0;
+		for (Object element : list) {
+			array[i++] = ((Number) element).doubleValue();
+		}
+		return array;
+	}
+}
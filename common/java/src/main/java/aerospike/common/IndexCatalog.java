@@ -0,0 +1,357 @@
+package aerospike.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Info;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.task.IndexTask;
+
+/**
+ * The secondary indexes of a namespace, read from every node with the
+ * {@code sindex/<namespace>} info command and cached.
+ * <p>
+ * An index counts as present if any node lists it; it counts as ready only
+ * when every node of the cluster lists it as readable, since while an index
+ * is being built some nodes may not list it yet. The cache is refreshed
+ * when it is older than the refresh interval.
+ * <p>
+ * Indexes are {@link #declare declared} up front and
+ * {@link #createMissing() created} together: the missing ones are created
+ * concurrently and their tasks waited on in parallel, so startup costs
+ * about one index build instead of one per index. Declared indexes that
+ * exist but are not readable yet are polled until they are. Waiting gives
+ * up with {@link AerospikeException.Timeout} after the ready timeout, so an
+ * index stuck in another state does not hang startup.
+ * <p>
+ * The catalog is meant to be shared by everything using a client, so that
+ * the cache is reused; {@link ClientRegistry#catalog(AerospikeClient)}
+ * keeps one per client.
+ */
+public class IndexCatalog {
+
+	/**
+	 * One index, as the server describes it.
+	 */
+	public static final class IndexInfo {
+		private final String namespace;
+		private final String set;
+		private final String name;
+		private final String bin;
+		private final String type;
+		private final String collectionType;
+		private final boolean ready;
+
+		IndexInfo(String namespace, String set, String name, String bin, String type, String collectionType,
+				boolean ready) {
+			this.namespace = namespace;
+			this.set = set;
+			this.name = name;
+			this.bin = bin;
+			this.type = type;
+			this.collectionType = collectionType;
+			this.ready = ready;
+		}
+
+		IndexInfo withReady(boolean ready) {
+			return ready == this.ready ? this
+					: new IndexInfo(namespace, set, name, bin, type, collectionType, ready);
+		}
+
+		/**
+		 * Parses one entry of the sindex info, a list of
+		 * {@code name=value} pairs separated by colons.
+		 */
+		static IndexInfo parse(String entry) {
+			Map<String, String> fields = new HashMap<String, String>();
+			for (String pair : entry.split(":")) {
+				int equals = pair.indexOf('=');
+				if (equals > 0) {
+					fields.put(pair.substring(0, equals), pair.substring(equals + 1));
+				}
+			}
+			String name = fields.get("indexname");
+			if (name == null) {
+				return null;
+			}
+			String bin = fields.containsKey("bin") ? fields.get("bin") : fields.get("bins");
+			String set = fields.get("set");
+			return new IndexInfo(fields.get("ns"), "NULL".equals(set) ? null : set, name, bin,
+					fields.get("type"), fields.get("indextype"), "RW".equals(fields.get("state")));
+		}
+
+		public String getNamespace() {
+			return namespace;
+		}
+
+		public String getSet() {
+			return set;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getBin() {
+			return bin;
+		}
+
+		/**
+		 * NUMERIC, STRING or GEO2DSPHERE.
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**
+		 * NONE (default), LIST, MAPKEYS or MAPVALUES.
+		 */
+		public String getCollectionType() {
+			return collectionType;
+		}
+
+		public boolean isReady() {
+			return ready;
+		}
+
+		@Override
+		public String toString() {
+			return name + " on " + namespace + "." + set + "." + bin + " " + type + " " + collectionType;
+		}
+	}
+
+	private static final class Declared {
+		final String namespace;
+		final String set;
+		final String name;
+		final String bin;
+		final IndexType type;
+		final IndexCollectionType collectionType;
+
+		Declared(String namespace, String set, String name, String bin, IndexType type,
+				IndexCollectionType collectionType) {
+			this.namespace = namespace;
+			this.set = set;
+			this.name = name;
+			this.bin = bin;
+			this.type = type;
+			this.collectionType = collectionType;
+		}
+	}
+
+	private static final class Cached {
+		final Map<String, IndexInfo> indexes;
+		final long loadedNanos;
+
+		Cached(Map<String, IndexInfo> indexes, long loadedNanos) {
+			this.indexes = indexes;
+			this.loadedNanos = loadedNanos;
+		}
+	}
+
+	private static final int READY_POLL_MILLIS = 200;
+	private static final long DEFAULT_READY_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	private final AerospikeClient client;
+	private final long refreshNanos;
+	private final ConcurrentHashMap<String, Cached> namespaces = new ConcurrentHashMap<String, Cached>();
+	private final List<Declared> declared = new ArrayList<Declared>();
+	private volatile long readyTimeoutMillis = DEFAULT_READY_TIMEOUT_MILLIS;
+
+	/**
+	 * @param refreshMillis how long a namespace's index list is reused
+	 */
+	public IndexCatalog(AerospikeClient client, long refreshMillis) {
+		this.client = client;
+		this.refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+	}
+
+	/**
+	 * How long {@link #createMissing()} waits for its indexes to be ready
+	 * before it throws {@link AerospikeException.Timeout}; ten minutes by
+	 * default.
+	 */
+	public IndexCatalog setReadyTimeout(long timeout, TimeUnit unit) {
+		this.readyTimeoutMillis = unit.toMillis(timeout);
+		return this;
+	}
+
+	/**
+	 * The indexes of the namespace, by name.
+	 */
+	public Map<String, IndexInfo> getIndexes(String namespace) {
+		Cached cached = namespaces.get(namespace);
+		if (cached == null || System.nanoTime() - cached.loadedNanos > refreshNanos) {
+			cached = new Cached(load(namespace), System.nanoTime());
+			namespaces.put(namespace, cached);
+		}
+		return cached.indexes;
+	}
+
+	public IndexInfo getIndex(String namespace, String indexName) {
+		return getIndexes(namespace).get(indexName);
+	}
+
+	/**
+	 * Forgets everything cached, so the next lookup asks the nodes.
+	 */
+	public void invalidate() {
+		namespaces.clear();
+	}
+
+	private Map<String, IndexInfo> load(String namespace) {
+		Node[] nodes = client.getNodes();
+		Map<String, IndexInfo> indexes = new HashMap<String, IndexInfo>();
+		Map<String, Integer> readyNodes = new HashMap<String, Integer>();
+		for (Node node : nodes) {
+			String response = Info.request(node, "sindex/" + namespace);
+			if (response == null) {
+				continue;
+			}
+			for (String entry : response.split(";")) {
+				IndexInfo info = IndexInfo.parse(entry.trim());
+				if (info == null) {
+					continue;
+				}
+				indexes.putIfAbsent(info.name, info);
+				if (info.ready) {
+					readyNodes.merge(info.name, 1, Integer::sum);
+				}
+			}
+		}
+		// ready only when every node lists it as readable, not just those that list it
+		for (Map.Entry<String, IndexInfo> index : indexes.entrySet()) {
+			index.setValue(index.getValue().withReady(readyNodes.getOrDefault(index.getKey(), 0) == nodes.length));
+		}
+		return Collections.unmodifiableMap(indexes);
+	}
+
+	/**
+	 * Adds an index to create with {@link #createMissing()}.
+	 */
+	public IndexCatalog declare(String namespace, String set, String indexName, String binName,
+			IndexType indexType, IndexCollectionType collectionType) {
+		synchronized (declared) {
+			declared.add(new Declared(namespace, set, indexName, binName, indexType, collectionType));
+		}
+		return this;
+	}
+
+	public IndexCatalog declare(String namespace, String set, String indexName, String binName,
+			IndexType indexType) {
+		return declare(namespace, set, indexName, binName, indexType, IndexCollectionType.DEFAULT);
+	}
+
+	/**
+	 * Creates the declared indexes that do not exist yet, concurrently,
+	 * and waits until all of them are built. Declared indexes that exist
+	 * but are still building, from an earlier run or another client, are
+	 * waited for too. Callers sharing the catalog take turns, so each
+	 * returns only once what it declared is ready.
+	 *
+	 * @return the number of indexes created
+	 * @throws AerospikeException.Timeout if they are not all ready within
+	 * the ready timeout
+	 */
+	public synchronized int createMissing() {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readyTimeoutMillis);
+		List<Declared> missing = new ArrayList<Declared>();
+		List<Declared> building = new ArrayList<Declared>();
+		synchronized (declared) {
+			for (Declared index : declared) {
+				IndexInfo info = getIndex(index.namespace, index.name);
+				if (info == null) {
+					missing.add(index);
+				} else if (!info.isReady()) {
+					building.add(index);
+				}
+			}
+			declared.clear();
+		}
+		List<IndexTask> tasks = Collections.synchronizedList(new ArrayList<IndexTask>());
+		if (!missing.isEmpty()) {
+			try (Workers workers = new Workers(missing.size())) {
+				for (Declared index : missing) {
+					workers.submit(() -> {
+						IndexTask task = create(index);
+						if (task != null) {
+							tasks.add(task);
+							task.waitTillComplete(READY_POLL_MILLIS, remainingMillis(deadline));
+						}
+					});
+				}
+			}
+			invalidate();
+		}
+		// these were building while the new ones were
+		if (!building.isEmpty()) {
+			waitUntilReady(building, deadline);
+		}
+		return tasks.size();
+	}
+
+	/**
+	 * Polls the nodes until every one of the indexes is readable, or the
+	 * deadline passes.
+	 */
+	private void waitUntilReady(List<Declared> indexes, long deadline) {
+		for (Declared index : indexes) {
+			while (true) {
+				Map<String, IndexInfo> current = load(index.namespace);
+				IndexInfo info = current.get(index.name);
+				// dropped meanwhile counts as done; the query will say so
+				if (info == null || info.isReady()) {
+					namespaces.put(index.namespace, new Cached(current, System.nanoTime()));
+					break;
+				}
+				if (System.nanoTime() - deadline >= 0) {
+					throw timeout();
+				}
+				try {
+					Thread.sleep(READY_POLL_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new AerospikeException("Interrupted waiting for index " + index.name);
+				}
+			}
+		}
+	}
+
+	private int remainingMillis(long deadline) {
+		long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		if (remaining <= 0) {
+			throw timeout();
+		}
+		return (int) Math.min(remaining, Integer.MAX_VALUE);
+	}
+
+	private AerospikeException.Timeout timeout() {
+		Policy policy = new Policy();
+		policy.totalTimeout = (int) Math.min(readyTimeoutMillis, Integer.MAX_VALUE);
+		return new AerospikeException.Timeout(policy, true);
+	}
+
+	private IndexTask create(Declared index) {
+		try {
+			return client.createIndex(null, index.namespace, index.set, index.name, index.bin, index.type,
+					index.collectionType);
+		} catch (AerospikeException e) {
+			// created by someone else since the catalog was read
+			if (e.getResultCode() == ResultCode.INDEX_ALREADY_EXISTS) {
+				return null;
+			}
+			throw e;
+		}
+	}
+}
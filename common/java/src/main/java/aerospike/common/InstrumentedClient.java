@@ -0,0 +1,644 @@
+package aerospike.common;
+
+import java.util.Calendar;
+import java.util.List;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Language;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.Value;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.listener.BatchListListener;
+import com.aerospike.client.listener.BatchSequenceListener;
+import com.aerospike.client.listener.DeleteListener;
+import com.aerospike.client.listener.ExecuteListener;
+import com.aerospike.client.listener.ExistsArrayListener;
+import com.aerospike.client.listener.ExistsListener;
+import com.aerospike.client.listener.ExistsSequenceListener;
+import com.aerospike.client.listener.RecordArrayListener;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.listener.RecordSequenceListener;
+import com.aerospike.client.listener.WriteListener;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.InfoPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.ResultSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.aerospike.client.task.IndexTask;
+import com.aerospike.client.task.RegisterTask;
+
+import aerospike.common.OperationMetrics.Type;
+
+/**
+ * A client that times every command of another client into
+ * {@link OperationMetrics}, by operation type, namespace and set.
+ * <p>
+ * Like the stand-in, it extends {@link AerospikeClient} without a cluster
+ * of its own, so every synchronous command is overridden and passed on to
+ * the wrapped client: record, batch, scan, query, UDF and index commands
+ * are timed, node lookups, UDF registration and truncate are passed on
+ * untimed. The client returns a query's record set before any record has
+ * arrived, so a query is timed until its last record has been read or the
+ * set is closed. An aggregation query is passed on untimed, as its result
+ * set cannot be wrapped the same way. Asynchronous commands are passed on
+ * untimed.
+ */
+public class InstrumentedClient extends AerospikeClient {
+	private final AerospikeClient client;
+	private final OperationMetrics metrics;
+
+	public InstrumentedClient(AerospikeClient client, OperationMetrics metrics) {
+		super(new ClientPolicy());
+		this.client = client;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * The client the commands go to.
+	 */
+	public AerospikeClient getClient() {
+		return client;
+	}
+
+	public OperationMetrics getMetrics() {
+		return metrics;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return client.isConnected();
+	}
+
+	@Override
+	public Node[] getNodes() {
+		return client.getNodes();
+	}
+
+	@Override
+	public void close() {
+		client.close();
+	}
+
+	@Override
+	public Node getNode(String nodeName) throws AerospikeException.InvalidNode {
+		return client.getNode(nodeName);
+	}
+
+	@Override
+	public List<String> getNodeNames() {
+		return client.getNodeNames();
+	}
+
+	@Override
+	public void put(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.PUT, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			client.put(policy, key, bins);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public void add(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.ADD, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			client.add(policy, key, bins);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public void append(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.APPEND, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			client.append(policy, key, bins);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public void prepend(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.PREPEND, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			client.prepend(policy, key, bins);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public void touch(WritePolicy policy, Key key) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.TOUCH, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			client.touch(policy, key);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public Record get(Policy policy, Key key) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.GET, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			Record record = client.get(policy, key);
+			timer.record(start);
+			return record;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Record get(Policy policy, Key key, String... binNames) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.GET, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			Record record = client.get(policy, key, binNames);
+			timer.record(start);
+			return record;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Record getHeader(Policy policy, Key key) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.GET, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			Record record = client.getHeader(policy, key);
+			timer.record(start);
+			return record;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Record[] get(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		OperationTimer timer = batchTimer(Type.BATCH_GET, keys);
+		long start = System.nanoTime();
+		try {
+			Record[] records = client.get(policy, keys);
+			timer.record(start);
+			return records;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Record[] get(BatchPolicy policy, Key[] keys, String... binNames) throws AerospikeException {
+		OperationTimer timer = batchTimer(Type.BATCH_GET, keys);
+		long start = System.nanoTime();
+		try {
+			Record[] records = client.get(policy, keys, binNames);
+			timer.record(start);
+			return records;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public void get(BatchPolicy policy, List<BatchRead> records) throws AerospikeException {
+		Key first = records.isEmpty() ? null : records.get(0).key;
+		OperationTimer timer = metrics.timer(Type.BATCH_GET, first == null ? null : first.namespace,
+				first == null ? null : first.setName);
+		long start = System.nanoTime();
+		try {
+			client.get(policy, records);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public Record[] getHeader(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		OperationTimer timer = batchTimer(Type.BATCH_GET, keys);
+		long start = System.nanoTime();
+		try {
+			Record[] records = client.getHeader(policy, keys);
+			timer.record(start);
+			return records;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean[] exists(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		OperationTimer timer = batchTimer(Type.BATCH_EXISTS, keys);
+		long start = System.nanoTime();
+		try {
+			boolean[] exists = client.exists(policy, keys);
+			timer.record(start);
+			return exists;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	private OperationTimer batchTimer(Type type, Key[] keys) {
+		return keys.length == 0 ? metrics.timer(type, null, null)
+				: metrics.timer(type, keys[0].namespace, keys[0].setName);
+	}
+
+	@Override
+	public boolean exists(Policy policy, Key key) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.EXISTS, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			boolean exists = client.exists(policy, key);
+			timer.record(start);
+			return exists;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean delete(WritePolicy policy, Key key) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.DELETE, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			boolean existed = client.delete(policy, key);
+			timer.record(start);
+			return existed;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Record operate(WritePolicy policy, Key key, Operation... operations) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.OPERATE, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			Record record = client.operate(policy, key, operations);
+			timer.record(start);
+			return record;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public RecordSet query(QueryPolicy policy, Statement statement) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.QUERY, statement.getNamespace(), statement.getSetName());
+		long start = System.nanoTime();
+		try {
+			return new TimedRecordSet(client.query(policy, statement), timer, start);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public RecordSet queryNode(QueryPolicy policy, Statement statement, Node node) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.QUERY, statement.getNamespace(), statement.getSetName());
+		long start = System.nanoTime();
+		try {
+			return new TimedRecordSet(client.queryNode(policy, statement, node), timer, start);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public void scanAll(ScanPolicy policy, String namespace, String setName, ScanCallback callback,
+			String... binNames) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.SCAN, namespace, setName);
+		long start = System.nanoTime();
+		try {
+			client.scanAll(policy, namespace, setName, callback, binNames);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public Object execute(WritePolicy policy, Key key, String packageName, String functionName, Value... args) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.EXECUTE, key.namespace, key.setName);
+		long start = System.nanoTime();
+		try {
+			Object result = client.execute(policy, key, packageName, functionName, args);
+			timer.record(start);
+			return result;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public ExecuteTask execute(WritePolicy policy, Statement statement, String packageName, String functionName,
+			Value... functionArgs) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.EXECUTE, statement.getNamespace(), statement.getSetName());
+		long start = System.nanoTime();
+		try {
+			ExecuteTask task = client.execute(policy, statement, packageName, functionName, functionArgs);
+			timer.record(start);
+			return task;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public ResultSet queryAggregate(QueryPolicy policy, Statement statement, String packageName,
+			String functionName, Value... functionArgs) throws AerospikeException {
+		return client.queryAggregate(policy, statement, packageName, functionName, functionArgs);
+	}
+
+	@Override
+	public void scanNode(ScanPolicy policy, String nodeName, String namespace, String setName,
+			ScanCallback callback, String... binNames) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.SCAN, namespace, setName);
+		long start = System.nanoTime();
+		try {
+			client.scanNode(policy, nodeName, namespace, setName, callback, binNames);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public void scanNode(ScanPolicy policy, Node node, String namespace, String setName,
+			ScanCallback callback, String... binNames) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.SCAN, namespace, setName);
+		long start = System.nanoTime();
+		try {
+			client.scanNode(policy, node, namespace, setName, callback, binNames);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName,
+			String binName, IndexType indexType) throws AerospikeException {
+		return createIndex(policy, namespace, setName, indexName, binName, indexType, IndexCollectionType.DEFAULT);
+	}
+
+	@Override
+	public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName,
+			String binName, IndexType indexType, IndexCollectionType indexCollectionType) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.CREATE_INDEX, namespace, setName);
+		long start = System.nanoTime();
+		try {
+			IndexTask task = client.createIndex(policy, namespace, setName, indexName, binName, indexType,
+					indexCollectionType);
+			timer.record(start);
+			return task;
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+	}
+
+	@Override
+	public void dropIndex(Policy policy, String namespace, String setName, String indexName) throws AerospikeException {
+		OperationTimer timer = metrics.timer(Type.DROP_INDEX, namespace, setName);
+		long start = System.nanoTime();
+		try {
+			client.dropIndex(policy, namespace, setName, indexName);
+		} catch (AerospikeException e) {
+			timer.failed(start, e);
+			throw e;
+		}
+		timer.record(start);
+	}
+
+	@Override
+	public RegisterTask register(Policy policy, String clientPath, String serverPath, Language language)
+			throws AerospikeException {
+		return client.register(policy, clientPath, serverPath, language);
+	}
+
+	@Override
+	public RegisterTask register(Policy policy, ClassLoader resourceLoader, String resourcePath, String serverPath,
+			Language language) throws AerospikeException {
+		return client.register(policy, resourceLoader, resourcePath, serverPath, language);
+	}
+
+	@Override
+	public RegisterTask registerUdfString(Policy policy, String code, String serverPath, Language language)
+			throws AerospikeException {
+		return client.registerUdfString(policy, code, serverPath, language);
+	}
+
+	@Override
+	public void removeUdf(InfoPolicy policy, String serverPath) throws AerospikeException {
+		client.removeUdf(policy, serverPath);
+	}
+
+	@Override
+	public void truncate(InfoPolicy policy, String ns, String set, Calendar beforeLastUpdate)
+			throws AerospikeException {
+		client.truncate(policy, ns, set, beforeLastUpdate);
+	}
+
+	@Override
+	public void put(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		client.put(eventLoop, listener, policy, key, bins);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordListener listener, Policy policy, Key key, String... binNames)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, key, binNames);
+	}
+
+	@Override
+	public void operate(EventLoop eventLoop, RecordListener listener, WritePolicy policy, Key key,
+			Operation... operations) throws AerospikeException {
+		client.operate(eventLoop, listener, policy, key, operations);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordListener listener, Policy policy, Key key)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void getHeader(EventLoop eventLoop, RecordListener listener, Policy policy, Key key)
+			throws AerospikeException {
+		client.getHeader(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void exists(EventLoop eventLoop, ExistsListener listener, Policy policy, Key key)
+			throws AerospikeException {
+		client.exists(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, BatchListListener listener, BatchPolicy policy, List<BatchRead> records)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, records);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, BatchSequenceListener listener, BatchPolicy policy, List<BatchRead> records)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, records);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordArrayListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordArrayListener listener, BatchPolicy policy, Key[] keys,
+			String... binNames)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys, binNames);
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys,
+			String... binNames)
+			throws AerospikeException {
+		client.get(eventLoop, listener, policy, keys, binNames);
+	}
+
+	@Override
+	public void getHeader(EventLoop eventLoop, RecordArrayListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.getHeader(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void getHeader(EventLoop eventLoop, RecordSequenceListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.getHeader(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void exists(EventLoop eventLoop, ExistsArrayListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.exists(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void exists(EventLoop eventLoop, ExistsSequenceListener listener, BatchPolicy policy, Key[] keys)
+			throws AerospikeException {
+		client.exists(eventLoop, listener, policy, keys);
+	}
+
+	@Override
+	public void scanAll(EventLoop eventLoop, RecordSequenceListener listener, ScanPolicy policy, String namespace,
+			String setName, String... binNames)
+			throws AerospikeException {
+		client.scanAll(eventLoop, listener, policy, namespace, setName, binNames);
+	}
+
+	@Override
+	public void query(EventLoop eventLoop, RecordSequenceListener listener, QueryPolicy policy, Statement statement)
+			throws AerospikeException {
+		client.query(eventLoop, listener, policy, statement);
+	}
+
+	@Override
+	public void append(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		client.append(eventLoop, listener, policy, key, bins);
+	}
+
+	@Override
+	public void prepend(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		client.prepend(eventLoop, listener, policy, key, bins);
+	}
+
+	@Override
+	public void add(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key, Bin... bins)
+			throws AerospikeException {
+		client.add(eventLoop, listener, policy, key, bins);
+	}
+
+	@Override
+	public void touch(EventLoop eventLoop, WriteListener listener, WritePolicy policy, Key key)
+			throws AerospikeException {
+		client.touch(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void delete(EventLoop eventLoop, DeleteListener listener, WritePolicy policy, Key key)
+			throws AerospikeException {
+		client.delete(eventLoop, listener, policy, key);
+	}
+
+	@Override
+	public void execute(EventLoop eventLoop, ExecuteListener listener, WritePolicy policy, Key key,
+			String packageName, String functionName, Value... functionArgs)
+			throws AerospikeException {
+		client.execute(eventLoop, listener, policy, key, packageName, functionName, functionArgs);
+	}
+}
@@ -0,0 +1,56 @@
+package aerospike.common;
+
+import java.util.Arrays;
+
+/**
+ * A growable {@code long[]}, for building a list bin one element at a time
+ * without boxing. {@link #clear()} keeps the array, so one instance can be
+ * refilled for every record.
+ */
+public final class LongArray {
+	private long[] values;
+	private int size;
+
+	public LongArray() {
+		this(16);
+	}
+
+	public LongArray(int capacity) {
+		values = new long[Math.max(1, capacity)];
+	}
+
+	public LongArray add(long value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+		return this;
+	}
+
+	public long get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+		return values[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public long[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * A list value over the current elements, sharing the array; do not
+	 * add to or clear this array until the command has been sent.
+	 */
+	public LongListValue toValue() {
+		return new LongListValue(values, 0, size);
+	}
+}
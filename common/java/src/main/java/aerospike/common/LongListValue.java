@@ -0,0 +1,118 @@
+package aerospike.common;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import org.luaj.vm2.LuaValue;
+
+import com.aerospike.client.Value;
+import com.aerospike.client.command.ParticleType;
+import com.aerospike.client.lua.LuaInstance;
+import com.aerospike.client.util.Packer;
+
+/**
+ * A list bin value backed by a {@code long[]}, packed straight into the
+ * command buffer: no {@code Long} per element, no {@code Value} per
+ * element and no intermediate byte array, as {@code Value.get(List)}
+ * needs.
+ * <p>
+ * Use it wherever a list value goes as a whole, e.g.
+ * {@code new Bin(name, new LongListValue(values))}. The array is read when
+ * the command is sent, not copied, so do not change it until then.
+ * <p>
+ * The client still decodes list bins it reads into {@code List<Long>};
+ * {@link #toArray(List)} turns them back into a {@code long[]}.
+ */
+public final class LongListValue extends Value {
+	private final long[] values;
+	private final int offset;
+	private final int length;
+
+	public LongListValue(long[] values) {
+		this(values, 0, values.length);
+	}
+
+	public LongListValue(long[] values, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > values.length) {
+			throw new IndexOutOfBoundsException("offset " + offset + ", length " + length);
+		}
+		this.values = values;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int estimateSize() {
+		int size = MsgPack.arrayHeaderSize(length);
+		for (int i = offset; i < offset + length; i++) {
+			size += MsgPack.longSize(values[i]);
+		}
+		return size;
+	}
+
+	@Override
+	public int write(byte[] buffer, int offset) {
+		int start = offset;
+		offset += MsgPack.writeArrayHeader(buffer, offset, length);
+		for (int i = this.offset; i < this.offset + length; i++) {
+			offset += MsgPack.writeLong(buffer, offset, values[i]);
+		}
+		return offset - start;
+	}
+
+	@Override
+	public void pack(Packer packer) {
+		packer.packArrayBegin(length);
+		for (int i = offset; i < offset + length; i++) {
+			packer.packLong(values[i]);
+		}
+	}
+
+	@Override
+	public int getType() {
+		return ParticleType.LIST;
+	}
+
+	/**
+	 * A boxed view of the values, for code that wants a list.
+	 */
+	@Override
+	public List<Long> getObject() {
+		return new AbstractList<Long>() {
+			@Override
+			public Long get(int index) {
+				if (index < 0 || index >= length) {
+					throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+				}
+				return values[offset + index];
+			}
+
+			@Override
+			public int size() {
+				return length;
+			}
+		};
+	}
+
+	@Override
+	public LuaValue getLuaValue(LuaInstance instance) {
+		return Value.get(getObject()).getLuaValue(instance);
+	}
+
+	@Override
+	public String toString() {
+		return getObject().toString();
+	}
+
+	/**
+	 * The elements of a list read from a bin, as longs.
+	 */
+	public static long[] toArray(List<?> list) {
+		long[] array = new long[list.size()];
+		int i = 0;
+		for (Object element : list) {
+			array[i++] = ((Number) element).longValue();
+		}
+		return array;
+	}
+}
@@ -0,0 +1,93 @@
+package aerospike.common;
+
+/**
+ * The few MessagePack encodings the primitive list values need, written
+ * straight into the command buffer. Integers take the shortest form, as
+ * the client's own packer does.
+ */
+final class MsgPack {
+
+	private MsgPack() {
+	}
+
+	static int arrayHeaderSize(int size) {
+		return size < 16 ? 1 : size < 65536 ? 3 : 5;
+	}
+
+	static int writeArrayHeader(byte[] buffer, int offset, int size) {
+		if (size < 16) {
+			buffer[offset] = (byte) (0x90 | size);
+			return 1;
+		}
+		if (size < 65536) {
+			buffer[offset] = (byte) 0xdc;
+			return 1 + writeBigEndian(buffer, offset + 1, size, 2);
+		}
+		buffer[offset] = (byte) 0xdd;
+		return 1 + writeBigEndian(buffer, offset + 1, size, 4);
+	}
+
+	static int longSize(long value) {
+		if (value >= 0) {
+			return value < 128 ? 1 : value < 256 ? 2 : value < 65536 ? 3 : value < 4294967296L ? 5 : 9;
+		}
+		return value >= -32 ? 1 : value >= Byte.MIN_VALUE ? 2 : value >= Short.MIN_VALUE ? 3
+				: value >= Integer.MIN_VALUE ? 5 : 9;
+	}
+
+	static int writeLong(byte[] buffer, int offset, long value) {
+		if (value >= 0) {
+			if (value < 128) {
+				buffer[offset] = (byte) value;
+				return 1;
+			}
+			if (value < 256) {
+				buffer[offset] = (byte) 0xcc;
+				return 1 + writeBigEndian(buffer, offset + 1, value, 1);
+			}
+			if (value < 65536) {
+				buffer[offset] = (byte) 0xcd;
+				return 1 + writeBigEndian(buffer, offset + 1, value, 2);
+			}
+			if (value < 4294967296L) {
+				buffer[offset] = (byte) 0xce;
+				return 1 + writeBigEndian(buffer, offset + 1, value, 4);
+			}
+			buffer[offset] = (byte) 0xcf;
+			return 1 + writeBigEndian(buffer, offset + 1, value, 8);
+		}
+		if (value >= -32) {
+			buffer[offset] = (byte) value;
+			return 1;
+		}
+		if (value >= Byte.MIN_VALUE) {
+			buffer[offset] = (byte) 0xd0;
+			return 1 + writeBigEndian(buffer, offset + 1, value, 1);
+		}
+		if (value >= Short.MIN_VALUE) {
+			buffer[offset] = (byte) 0xd1;
+			return 1 + writeBigEndian(buffer, offset + 1, value, 2);
+		}
+		if (value >= Integer.MIN_VALUE) {
+			buffer[offset] = (byte) 0xd2;
+			return 1 + writeBigEndian(buffer, offset + 1, value, 4);
+		}
+		buffer[offset] = (byte) 0xd3;
+		return 1 + writeBigEndian(buffer, offset + 1, value, 8);
+	}
+
+	static final int DOUBLE_SIZE = 9;
+
+	static int writeDouble(byte[] buffer, int offset, double value) {
+		buffer[offset] = (byte) 0xcb;
+		return 1 + writeBigEndian(buffer, offset + 1, Double.doubleToLongBits(value), 8);
+	}
+
+	private static int writeBigEndian(byte[] buffer, int offset, long value, int bytes) {
+		for (int i = bytes - 1; i >= 0; i--) {
+			buffer[offset + i] = (byte) value;
+			value >>>= 8;
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,165 @@
+package aerospike.common;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * The {@link OperationTimer}s of a process, one per operation type,
+ * namespace and set.
+ * <p>
+ * Timers are found through one map per operation type and nested maps by
+ * namespace and set, keyed by the strings the caller already holds, so
+ * finding an existing timer allocates nothing. A timer is created, and
+ * registered with JMX as
+ * {@code aerospike.common:type=Operation,operation=...,namespace=...,set=...},
+ * the first time it is asked for.
+ */
+public class OperationMetrics {
+
+	public enum Type {
+		PUT, GET, BATCH_GET, EXISTS, DELETE, OPERATE, QUERY, SCAN, CREATE_INDEX, DROP_INDEX,
+		ADD, APPEND, PREPEND, TOUCH, BATCH_EXISTS, EXECUTE;
+
+		final String label = name().toLowerCase(Locale.ROOT);
+	}
+
+	private static final OperationMetrics GLOBAL = new OperationMetrics(true);
+
+	private final boolean registerMBeans;
+	private final List<ConcurrentHashMap<String, ConcurrentHashMap<String, OperationTimer>>> byType =
+			new ArrayList<ConcurrentHashMap<String, ConcurrentHashMap<String, OperationTimer>>>();
+
+	/**
+	 * @param registerMBeans whether to register each timer with the
+	 * platform MBean server
+	 */
+	public OperationMetrics(boolean registerMBeans) {
+		this.registerMBeans = registerMBeans;
+		for (int i = 0; i < Type.values().length; i++) {
+			byType.add(new ConcurrentHashMap<String, ConcurrentHashMap<String, OperationTimer>>());
+		}
+	}
+
+	/**
+	 * The metrics shared by the process, registered with JMX.
+	 */
+	public static OperationMetrics global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * @param set null for records in no set
+	 */
+	public OperationTimer timer(Type type, String namespace, String set) {
+		String ns = namespace == null ? "" : namespace;
+		String setName = set == null ? "" : set;
+		ConcurrentHashMap<String, OperationTimer> sets = byType.get(type.ordinal()).get(ns);
+		if (sets == null) {
+			sets = byType.get(type.ordinal()).computeIfAbsent(ns,
+					k -> new ConcurrentHashMap<String, OperationTimer>());
+		}
+		OperationTimer timer = sets.get(setName);
+		if (timer == null) {
+			timer = sets.computeIfAbsent(setName, k -> create(type, ns, k));
+		}
+		return timer;
+	}
+
+	private OperationTimer create(Type type, String ns, String set) {
+		OperationTimer timer = new OperationTimer(type.label, ns, set);
+		if (registerMBeans) {
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				ObjectName name = new ObjectName("aerospike.common:type=Operation,operation=" + type.label
+						+ ",namespace=" + ObjectName.quote(ns) + ",set=" + ObjectName.quote(set));
+				if (!server.isRegistered(name)) {
+					server.registerMBean(timer, name);
+				}
+			} catch (JMException e) {
+				throw new IllegalStateException("Cannot register " + type.label + " timer with JMX", e);
+			}
+		}
+		return timer;
+	}
+
+	/**
+	 * Every timer created so far.
+	 */
+	public List<OperationTimer> getTimers() {
+		List<OperationTimer> timers = new ArrayList<OperationTimer>();
+		for (ConcurrentHashMap<String, ConcurrentHashMap<String, OperationTimer>> namespaces : byType) {
+			for (ConcurrentHashMap<String, OperationTimer> sets : namespaces.values()) {
+				timers.addAll(sets.values());
+			}
+		}
+		return timers;
+	}
+
+	/**
+	 * The metrics in the Prometheus text exposition format: a latency
+	 * summary in microseconds with its quantiles, and error and timeout
+	 * counters, labelled by operation, namespace and set.
+	 */
+	public String prometheus() {
+		StringBuilder out = new StringBuilder(4096);
+		out.append("# HELP aerospike_client_latency_microseconds Client operation latency.\n");
+		out.append("# TYPE aerospike_client_latency_microseconds summary\n");
+		List<OperationTimer> timers = getTimers();
+		for (OperationTimer timer : timers) {
+			Histogram histogram = timer.snapshot();
+			for (double quantile : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+				out.append("aerospike_client_latency_microseconds{");
+				labels(out, timer).append(",quantile=\"").append(quantile).append("\"} ")
+						.append(histogram.getValueAtPercentile(quantile * 100)).append('\n');
+			}
+			out.append("aerospike_client_latency_microseconds_sum{");
+			labels(out, timer).append("} ").append(timer.getTotalMicros()).append('\n');
+			out.append("aerospike_client_latency_microseconds_count{");
+			labels(out, timer).append("} ").append(timer.getCount()).append('\n');
+		}
+		counter(out, timers, "aerospike_client_errors_total", "Client operations that failed.", false);
+		counter(out, timers, "aerospike_client_timeouts_total", "Client operations that timed out.", true);
+		return out.toString();
+	}
+
+	private static void counter(StringBuilder out, List<OperationTimer> timers, String name, String help,
+			boolean timeouts) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" counter\n");
+		for (OperationTimer timer : timers) {
+			out.append(name).append('{');
+			labels(out, timer).append("} ").append(timeouts ? timer.getTimeouts() : timer.getErrors()).append('\n');
+		}
+	}
+
+	private static StringBuilder labels(StringBuilder out, OperationTimer timer) {
+		out.append("operation=\"").append(timer.getOperation()).append('"');
+		out.append(",namespace=\"");
+		escape(out, timer.getNamespace()).append('"');
+		out.append(",set=\"");
+		return escape(out, timer.getSet()).append('"');
+	}
+
+	private static StringBuilder escape(StringBuilder out, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '"') {
+				out.append('\\').append(c);
+			} else if (c == '\n') {
+				out.append("\\n");
+			} else {
+				out.append(c);
+			}
+		}
+		return out;
+	}
+}
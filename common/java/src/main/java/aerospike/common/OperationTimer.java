@@ -0,0 +1,131 @@
+package aerospike.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+
+/**
+ * Latency, error and timeout counts for one operation type on one
+ * namespace and set.
+ * <p>
+ * Latencies go into an HdrHistogram {@link Recorder}, whose
+ * {@code recordValue} is wait-free and does not allocate, so recording
+ * costs the caller two clock reads and a few atomic adds. Readers fold the
+ * recorder's interval histograms into a running total.
+ */
+public final class OperationTimer implements OperationTimerMBean {
+	// one minute, in microseconds; slower calls count as one minute
+	private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	private final String operation;
+	private final String namespace;
+	private final String set;
+
+	private final Recorder recorder = new Recorder(HIGHEST_MICROS, 3);
+	private final Histogram total = new Histogram(HIGHEST_MICROS, 3);
+	private Histogram interval;
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalMicros = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+
+	OperationTimer(String operation, String namespace, String set) {
+		this.operation = operation;
+		this.namespace = namespace;
+		this.set = set;
+	}
+
+	/**
+	 * Records a call that started at {@code startNanos} (from
+	 * {@code System.nanoTime()}) and has just finished.
+	 */
+	public void record(long startNanos) {
+		long micros = Math.min((System.nanoTime() - startNanos) / 1000, HIGHEST_MICROS);
+		recorder.recordValue(micros);
+		count.incrementAndGet();
+		totalMicros.addAndGet(micros);
+	}
+
+	/**
+	 * Records a call that failed; its latency is recorded as well.
+	 */
+	public void failed(long startNanos, AerospikeException e) {
+		record(startNanos);
+		if (e instanceof AerospikeException.Timeout || e.getResultCode() == ResultCode.TIMEOUT) {
+			timeouts.incrementAndGet();
+		} else {
+			errors.incrementAndGet();
+		}
+	}
+
+	/**
+	 * A copy of everything recorded so far.
+	 */
+	public synchronized Histogram snapshot() {
+		interval = recorder.getIntervalHistogram(interval);
+		total.add(interval);
+		return total.copy();
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public String getNamespace() {
+		return namespace;
+	}
+
+	public String getSet() {
+		return set;
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getTotalMicros() {
+		return totalMicros.get();
+	}
+
+	@Override
+	public long getErrors() {
+		return errors.get();
+	}
+
+	@Override
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	@Override
+	public double getMeanMicros() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) totalMicros.get() / n;
+	}
+
+	@Override
+	public long getP50Micros() {
+		return snapshot().getValueAtPercentile(50);
+	}
+
+	@Override
+	public long getP99Micros() {
+		return snapshot().getValueAtPercentile(99);
+	}
+
+	@Override
+	public long getP999Micros() {
+		return snapshot().getValueAtPercentile(99.9);
+	}
+
+	@Override
+	public long getMaxMicros() {
+		return snapshot().getMaxValue();
+	}
+}
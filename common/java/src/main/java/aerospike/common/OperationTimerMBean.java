@@ -0,0 +1,22 @@
+package aerospike.common;
+
+/**
+ * What JMX shows of an {@link OperationTimer}.
+ */
+public interface OperationTimerMBean {
+	long getCount();
+
+	long getErrors();
+
+	long getTimeouts();
+
+	double getMeanMicros();
+
+	long getP50Micros();
+
+	long getP99Micros();
+
+	long getP999Micros();
+
+	long getMaxMicros();
+}
@@ -0,0 +1,157 @@
+package aerospike.common;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.RecordExistsAction;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Read-modify-write of a record without locks: read it, work out the new
+ * bins from it, and write them only if nobody wrote the record in between.
+ * <p>
+ * The write uses {@link GenerationPolicy#EXPECT_GEN_EQUAL} with the
+ * generation that was read, or {@link RecordExistsAction#CREATE_ONLY} if
+ * there was no record. If another client got there first the server
+ * refuses it, and the whole update runs again on a fresh read, after a
+ * random pause of up to {@code backoffMicros << retry} (capped at 100 ms),
+ * so that clients that collided do not collide again. After
+ * {@code maxAttempts} the last error is thrown.
+ * <p>
+ * Use it for updates that need several bins or client logic; anything a
+ * single {@code operate} with CDT operations can do is cheaper done that
+ * way. The update function may run more than once, so it must not have
+ * side effects.
+ */
+public class OptimisticUpdater {
+	private static final long MAX_BACKOFF_MICROS = 100000;
+
+	/**
+	 * Works out the bins to write from the record as read.
+	 */
+	public interface Update {
+		/**
+		 * @param record the record, or null if there is none
+		 * @return the bins to write, or null to leave the record as it is
+		 */
+		Bin[] apply(Record record);
+	}
+
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final int maxAttempts;
+	private final long backoffMicros;
+
+	private final AtomicLong commits = new AtomicLong();
+	private final AtomicLong retries = new AtomicLong();
+	private final AtomicLong conflicts = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	/**
+	 * @param writePolicy copied for each write; its read timeouts are used
+	 * for the read too
+	 */
+	public OptimisticUpdater(AerospikeClient client, WritePolicy writePolicy, int maxAttempts, long backoffMicros) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be at least 1");
+		}
+		this.client = client;
+		this.writePolicy = writePolicy == null ? new WritePolicy() : writePolicy;
+		this.maxAttempts = maxAttempts;
+		this.backoffMicros = backoffMicros;
+	}
+
+	/**
+	 * Reads the record, applies the update and writes the result, until the
+	 * write is not beaten by another one.
+	 *
+	 * @return false if the update wrote nothing
+	 */
+	public boolean update(Key key, Update update) {
+		for (int attempt = 1; ; attempt++) {
+			Record record = client.get(writePolicy, key);
+			Bin[] bins = update.apply(record);
+			if (bins == null) {
+				return false;
+			}
+			WritePolicy policy = new WritePolicy(writePolicy);
+			if (record == null) {
+				policy.recordExistsAction = RecordExistsAction.CREATE_ONLY;
+			} else {
+				policy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+				policy.generation = record.generation;
+			}
+			try {
+				client.put(policy, key, bins);
+				commits.incrementAndGet();
+				retries.addAndGet(attempt - 1);
+				return true;
+			} catch (AerospikeException e) {
+				int code = e.getResultCode();
+				if (code != ResultCode.GENERATION_ERROR && code != ResultCode.KEY_EXISTS_ERROR) {
+					throw e;
+				}
+				conflicts.incrementAndGet();
+				if (attempt == maxAttempts) {
+					failures.incrementAndGet();
+					throw e;
+				}
+			}
+			backoff(attempt);
+		}
+	}
+
+	private void backoff(int retry) {
+		long limit = Math.min(MAX_BACKOFF_MICROS, backoffMicros << Math.min(retry - 1, 20));
+		if (limit > 0) {
+			LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ThreadLocalRandom.current().nextLong(limit + 1)));
+		}
+	}
+
+	/**
+	 * Updates written.
+	 */
+	public long getCommits() {
+		return commits.get();
+	}
+
+	/**
+	 * Writes refused because the record had changed since it was read.
+	 */
+	public long getConflicts() {
+		return conflicts.get();
+	}
+
+	/**
+	 * Updates given up after {@code maxAttempts} conflicts.
+	 */
+	public long getFailures() {
+		return failures.get();
+	}
+
+	/**
+	 * Attempts before the one that was written, averaged over the updates
+	 * written. Conflicts of updates that were given up are not included.
+	 */
+	public double getRetriesPerCommit() {
+		long committed = commits.get();
+		return committed == 0 ? 0 : (double) retries.get() / committed;
+	}
+
+	/**
+	 * A one line summary of the metrics.
+	 */
+	public String summary() {
+		return String.format("%d commits, %d conflicts, %.2f retries per commit, %d given up",
+				getCommits(), getConflicts(), getRetriesPerCommit(), getFailures());
+	}
+}
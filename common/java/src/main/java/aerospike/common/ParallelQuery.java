@@ -0,0 +1,209 @@
+package aerospike.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+
+/**
+ * Splits a secondary index query into sub-queries and runs them on
+ * {@link Workers}.
+ * <p>
+ * A numeric range query is split into {@code workers} contiguous value
+ * ranges, each run as its own query. Any other query is split by node with
+ * {@code queryNode}. Client 4.x cannot address partitions in a query, so
+ * value ranges stand in for partition ranges; on a skewed index some
+ * sub-ranges finish early.
+ * <p>
+ * A collection index (LIST, MAPKEYS, MAPVALUES) returns a record once per
+ * matching element, and a record can match in more than one sub-range.
+ * With dedup on, each record is handed over once only; the digests seen
+ * are kept in a {@link DigestSet}.
+ * <p>
+ * The handler is called from the worker threads, one call at a time.
+ */
+public class ParallelQuery {
+	private final AerospikeClient client;
+	private final QueryPolicy policy;
+	private final int workers;
+	private boolean dedup = true;
+
+	private final AtomicLong records = new AtomicLong();
+	private final AtomicLong duplicates = new AtomicLong();
+	private long elapsedNanos;
+
+	/**
+	 * @param policy shared by all sub-queries; its {@code maxConcurrentNodes}
+	 * and {@code recordQueueSize} apply to each one
+	 */
+	public ParallelQuery(AerospikeClient client, QueryPolicy policy, int workers) {
+		this.client = client;
+		this.policy = policy;
+		this.workers = Math.max(1, workers);
+	}
+
+	/**
+	 * A policy for the sub-queries: each asks every node at once and
+	 * buffers at most {@code recordQueueSize} records.
+	 */
+	public static QueryPolicy subQueryPolicy(int recordQueueSize) {
+		QueryPolicy policy = new QueryPolicy();
+		policy.maxConcurrentNodes = 0;
+		policy.recordQueueSize = recordQueueSize;
+		return policy;
+	}
+
+	public ParallelQuery setDedup(boolean dedup) {
+		this.dedup = dedup;
+		return this;
+	}
+
+	/**
+	 * Runs {@code Filter.range(binName, collectionType, begin, end)} over
+	 * the statement's namespace, set and bins, split into value ranges.
+	 *
+	 * @return the number of records handed over
+	 */
+	public long range(Statement template, String binName, IndexCollectionType collectionType,
+			long begin, long end, QueryStream.RecordHandler handler) {
+		long[] bounds = split(begin, end, workers);
+		Statement[] statements = new Statement[bounds.length / 2];
+		for (int i = 0; i < statements.length; i++) {
+			statements[i] = copy(template);
+			statements[i].setFilters(Filter.range(binName, collectionType, bounds[i * 2], bounds[i * 2 + 1]));
+		}
+		return run(statements, null, handler);
+	}
+
+	/**
+	 * Splits {@code begin..end} into at most {@code parts} contiguous,
+	 * non-empty ranges of nearly equal size, as {@code from, to} pairs. The
+	 * width is worked out unsigned, so ranges as wide as
+	 * {@code Long.MIN_VALUE..Long.MAX_VALUE} split correctly. An empty range
+	 * ({@code end < begin}) is returned as it is.
+	 */
+	static long[] split(long begin, long end, int parts) {
+		if (end < begin || parts <= 1) {
+			return new long[] { begin, end };
+		}
+		// values in the range, minus one, unsigned: the full range of longs is -1
+		long span = end - begin;
+		if (Long.compareUnsigned(span, parts) < 0) {
+			parts = (int) span + 1;
+		}
+		long width;
+		long remainder;
+		if (span == -1L) {
+			// 2^64 values, one more than fits
+			width = Long.divideUnsigned(-1L, parts);
+			remainder = Long.remainderUnsigned(-1L, parts) + 1;
+			if (remainder == parts) {
+				width++;
+				remainder = 0;
+			}
+		} else {
+			width = Long.divideUnsigned(span + 1, parts);
+			remainder = Long.remainderUnsigned(span + 1, parts);
+		}
+		long[] bounds = new long[parts * 2];
+		long from = begin;
+		for (int i = 0; i < parts; i++) {
+			long to = i == parts - 1 ? end : from + width - 1 + (i < remainder ? 1 : 0);
+			bounds[i * 2] = from;
+			bounds[i * 2 + 1] = to;
+			from = to + 1;
+		}
+		return bounds;
+	}
+
+	/**
+	 * Runs the statement on every node in parallel. With no nodes to
+	 * address (the stand-in), it runs as a single query.
+	 *
+	 * @return the number of records handed over
+	 */
+	public long byNode(Statement statement, QueryStream.RecordHandler handler) {
+		Node[] nodes = client.getNodes();
+		if (nodes.length == 0) {
+			return run(new Statement[] { statement }, null, handler);
+		}
+		Statement[] statements = new Statement[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			statements[i] = statement;
+		}
+		return run(statements, nodes, handler);
+	}
+
+	private long run(Statement[] statements, Node[] nodes, QueryStream.RecordHandler handler) {
+		records.set(0);
+		duplicates.set(0);
+		DigestSet seen = dedup ? new DigestSet() : null;
+		long start = System.nanoTime();
+		try (Workers pool = new Workers(Math.min(workers, statements.length))) {
+			for (int i = 0; i < statements.length; i++) {
+				Statement statement = statements[i];
+				Node node = nodes == null ? null : nodes[i];
+				pool.submit(() -> drain(statement, node, seen, handler));
+			}
+		} finally {
+			elapsedNanos = System.nanoTime() - start;
+		}
+		return records.get();
+	}
+
+	private void drain(Statement statement, Node node, DigestSet seen, QueryStream.RecordHandler handler) {
+		RecordSet recordSet = node == null ? client.query(policy, statement) : client.queryNode(policy, statement, node);
+		try {
+			while (recordSet.next()) {
+				Key key = recordSet.getKey();
+				if (seen != null && !seen.add(key.digest)) {
+					duplicates.incrementAndGet();
+					continue;
+				}
+				Record record = recordSet.getRecord();
+				records.incrementAndGet();
+				synchronized (handler) {
+					handler.record(key, record);
+				}
+			}
+		} finally {
+			recordSet.close();
+		}
+	}
+
+	private static Statement copy(Statement template) {
+		Statement statement = new Statement();
+		statement.setNamespace(template.getNamespace());
+		statement.setSetName(template.getSetName());
+		statement.setIndexName(template.getIndexName());
+		statement.setBinNames(template.getBinNames());
+		return statement;
+	}
+
+	public long getRecords() {
+		return records.get();
+	}
+
+	/**
+	 * Records dropped because they had already been handed over.
+	 */
+	public long getDuplicates() {
+		return duplicates.get();
+	}
+
+	public long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+	}
+
+	public long getRecordsPerSecond() {
+		return elapsedNanos == 0 ? 0 : records.get() * 1000000000L / elapsedNanos;
+	}
+}
@@ -0,0 +1,180 @@
+package aerospike.common;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+
+/**
+ * Runs one query and hands each record to the caller as it arrives,
+ * instead of collecting the results first.
+ * <p>
+ * The client already buffers query results in a bounded queue
+ * ({@code QueryPolicy.recordQueueSize}); the node threads block when it is
+ * full, so a slow consumer holds back the server rather than filling the
+ * heap. Memory therefore stays bounded by the queue size whatever the
+ * result size.
+ * <p>
+ * Time to first record, record count and records per second are kept for
+ * the query once it has run.
+ * <p>
+ * A collection index query (LIST, MAPKEYS, MAPVALUES) returns a record
+ * once per matching element. {@link #setDedup(boolean)} drops the repeats,
+ * remembering the digests seen in a {@link DigestSet}.
+ */
+public class QueryStream {
+
+	public interface RecordHandler {
+		void record(Key key, Record record);
+	}
+
+	private final AerospikeClient client;
+	private final QueryPolicy policy;
+	private final Statement statement;
+
+	private boolean dedup;
+	private DigestSet seen;
+	private long duplicates;
+
+	private long startNanos;
+	private long firstRecordNanos;
+	private long endNanos;
+	private long records;
+
+	public QueryStream(AerospikeClient client, QueryPolicy policy, Statement statement) {
+		this.client = client;
+		this.policy = policy;
+		this.statement = statement;
+	}
+
+	/**
+	 * Hand over each record once, however many of its elements match.
+	 */
+	public QueryStream setDedup(boolean dedup) {
+		this.dedup = dedup;
+		return this;
+	}
+
+	/**
+	 * Runs the query, calling {@code handler} for each record on the
+	 * calling thread.
+	 *
+	 * @return the number of records
+	 */
+	public long forEach(RecordHandler handler) {
+		RecordSet recordSet = start();
+		try {
+			while (recordSet.next()) {
+				if (repeated(recordSet.getKey())) {
+					continue;
+				}
+				arrived();
+				handler.record(recordSet.getKey(), recordSet.getRecord());
+			}
+		} finally {
+			finish(recordSet);
+		}
+		return records;
+	}
+
+	/**
+	 * Runs the query as a sequential, lazy stream. Close the stream (or
+	 * use try-with-resources) to end the query early and release it.
+	 */
+	public Stream<KeyRecord> stream() {
+		RecordSet recordSet = start();
+		Spliterator<KeyRecord> spliterator = new Spliterators.AbstractSpliterator<KeyRecord>(
+				Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super KeyRecord> action) {
+				do {
+					if (!recordSet.next()) {
+						finish(recordSet);
+						return false;
+					}
+				} while (repeated(recordSet.getKey()));
+				arrived();
+				action.accept(new KeyRecord(recordSet.getKey(), recordSet.getRecord()));
+				return true;
+			}
+		};
+		return StreamSupport.stream(spliterator, false).onClose(() -> finish(recordSet));
+	}
+
+	private RecordSet start() {
+		records = 0;
+		duplicates = 0;
+		seen = dedup ? new DigestSet() : null;
+		firstRecordNanos = 0;
+		endNanos = 0;
+		startNanos = System.nanoTime();
+		return client.query(policy, statement);
+	}
+
+	private boolean repeated(Key key) {
+		if (seen == null || seen.add(key.digest)) {
+			return false;
+		}
+		duplicates++;
+		return true;
+	}
+
+	private void arrived() {
+		if (records++ == 0) {
+			firstRecordNanos = System.nanoTime();
+		}
+	}
+
+	private void finish(RecordSet recordSet) {
+		if (endNanos == 0) {
+			endNanos = System.nanoTime();
+			recordSet.close();
+		}
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Records dropped by dedup.
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * From starting the query to the first record, -1 if there was none.
+	 */
+	public long getTimeToFirstRecordMicros() {
+		return records == 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(firstRecordNanos - startNanos);
+	}
+
+	public long getElapsedMillis() {
+		long end = endNanos == 0 ? System.nanoTime() : endNanos;
+		return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+	}
+
+	public long getRecordsPerSecond() {
+		long end = endNanos == 0 ? System.nanoTime() : endNanos;
+		return end == startNanos ? 0 : records * 1000000000L / (end - startNanos);
+	}
+
+	/**
+	 * A one line summary of the metrics.
+	 */
+	public String summary() {
+		return String.format("%d records in %d ms, first after %d us, %d records/s",
+				records, getElapsedMillis(), getTimeToFirstRecordMicros(), getRecordsPerSecond());
+	}
+}
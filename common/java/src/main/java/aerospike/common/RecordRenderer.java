@@ -0,0 +1,416 @@
+package aerospike.common;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+
+/**
+ * Writes records as text, JSON lines or CSV through one reused
+ * {@link StringBuilder}, without {@code String.format} and without
+ * {@code toString()} on bin values.
+ * <p>
+ * Output is buffered and handed to the writer in blocks of about 64 KB, so
+ * a million-record query streamed through {@link #handler()} into a file
+ * writes at the speed of the disk. Call {@link #flush()} when done; the
+ * writer is not closed.
+ * <p>
+ * TEXT is the block printRecord used to print, with the digest in hex.
+ * JSON_LINES writes one object per record: {@code ns}, {@code set},
+ * {@code key}, {@code digest}, {@code generation}, {@code expiration},
+ * {@code ttl} and {@code bins}. CSV writes a header and then one row per
+ * record: key, generation and TTL, then the bin columns, which are given
+ * or else taken from the first record; lists and maps go in a cell as
+ * JSON. A renderer is not thread safe.
+ */
+public class RecordRenderer {
+
+	public enum Format {
+		TEXT, JSON_LINES, CSV
+	}
+
+	private static final int FLUSH_AT = 64 * 1024;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Writer out;
+	private final Format format;
+	private final StringBuilder buffer = new StringBuilder(FLUSH_AT + 4096);
+	private String[] columns;
+	private long records;
+
+	public RecordRenderer(Writer out, Format format) {
+		this.out = out;
+		this.format = format;
+	}
+
+	/**
+	 * A renderer onto standard output.
+	 */
+	public static RecordRenderer console(Format format) {
+		return new RecordRenderer(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), format);
+	}
+
+	/**
+	 * The bins to write as CSV columns, in order.
+	 */
+	public RecordRenderer setColumns(String... binNames) {
+		this.columns = binNames;
+		return this;
+	}
+
+	public void render(Key key, Record record) throws IOException {
+		switch (format) {
+		case TEXT:
+			text(key, record);
+			break;
+		case JSON_LINES:
+			json(key, record);
+			break;
+		case CSV:
+			csv(key, record);
+			break;
+		}
+		records++;
+		if (buffer.length() >= FLUSH_AT) {
+			drain();
+		}
+	}
+
+	/**
+	 * Writes just the bins, one {@code name = value} line each, and a
+	 * blank line.
+	 */
+	public void renderBins(Record record) throws IOException {
+		if (record == null) {
+			buffer.append("\trecord == null\n");
+		} else {
+			bins(record);
+			buffer.append('\n');
+		}
+		records++;
+		if (buffer.length() >= FLUSH_AT) {
+			drain();
+		}
+	}
+
+	/**
+	 * A query handler that renders each record; write errors are rethrown
+	 * as {@link UncheckedIOException}.
+	 */
+	public QueryStream.RecordHandler handler() {
+		return (key, record) -> {
+			try {
+				render(key, record);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	private void drain() throws IOException {
+		if (buffer.length() > 0) {
+			out.append(buffer);
+			buffer.setLength(0);
+		}
+	}
+
+	public long getRecords() {
+		return records;
+	}
+
+	private void text(Key key, Record record) {
+		StringBuilder b = buffer;
+		b.append("Key\n");
+		if (key == null) {
+			b.append("\tkey == null\n");
+		} else {
+			b.append("\tNamespace: ").append(key.namespace).append('\n');
+			b.append("\t      Set: ").append(key.setName).append('\n');
+			b.append("\t      Key: ");
+			value(key.userKey == null ? null : key.userKey.getObject(), false);
+			b.append('\n');
+			b.append("\t   Digest: ");
+			hex(key.digest);
+			b.append('\n');
+		}
+		b.append("Record\n");
+		if (record == null) {
+			b.append("\trecord == null\n");
+			return;
+		}
+		b.append("\tGeneration: ").append(record.generation).append('\n');
+		b.append("\tExpiration: ").append(record.expiration).append('\n');
+		b.append("\t       TTL: ").append(record.getTimeToLive()).append('\n');
+		b.append("Bins\n");
+		bins(record);
+	}
+
+	private void bins(Record record) {
+		if (record.bins == null) {
+			return;
+		}
+		for (Map.Entry<String, Object> entry : record.bins.entrySet()) {
+			buffer.append('\t').append(entry.getKey()).append(" = ");
+			value(entry.getValue(), false);
+			buffer.append('\n');
+		}
+	}
+
+	private void json(Key key, Record record) {
+		StringBuilder b = buffer;
+		b.append('{');
+		if (key != null) {
+			b.append("\"ns\":");
+			string(key.namespace);
+			b.append(",\"set\":");
+			string(key.setName);
+			b.append(",\"key\":");
+			value(key.userKey == null ? null : key.userKey.getObject(), true);
+			b.append(",\"digest\":\"");
+			hex(key.digest);
+			b.append("\",");
+		}
+		if (record == null) {
+			b.append("\"bins\":null}\n");
+			return;
+		}
+		b.append("\"generation\":").append(record.generation);
+		b.append(",\"expiration\":").append(record.expiration);
+		b.append(",\"ttl\":").append(record.getTimeToLive());
+		b.append(",\"bins\":{");
+		if (record.bins != null) {
+			boolean first = true;
+			for (Map.Entry<String, Object> entry : record.bins.entrySet()) {
+				if (!first) {
+					b.append(',');
+				}
+				first = false;
+				string(entry.getKey());
+				b.append(':');
+				value(entry.getValue(), true);
+			}
+		}
+		b.append("}}\n");
+	}
+
+	private void csv(Key key, Record record) {
+		StringBuilder b = buffer;
+		if (records == 0) {
+			if (columns == null) {
+				List<String> names = new ArrayList<String>();
+				if (record != null && record.bins != null) {
+					names.addAll(record.bins.keySet());
+				}
+				columns = names.toArray(new String[names.size()]);
+			}
+			b.append("key,generation,ttl");
+			for (String column : columns) {
+				b.append(',');
+				cell(column);
+			}
+			b.append('\n');
+		}
+		if (key != null && key.userKey != null) {
+			int start = b.length();
+			value(key.userKey.getObject(), false);
+			quoteFrom(start);
+		} else if (key != null) {
+			hex(key.digest);
+		}
+		if (record == null) {
+			b.append(",,");
+			for (int i = 0; i < columns.length; i++) {
+				b.append(',');
+			}
+			b.append('\n');
+			return;
+		}
+		b.append(',').append(record.generation).append(',').append(record.getTimeToLive());
+		for (String column : columns) {
+			b.append(',');
+			Object value = record.bins == null ? null : record.bins.get(column);
+			if (value != null) {
+				int start = b.length();
+				value(value, value instanceof List || value instanceof Map);
+				quoteFrom(start);
+			}
+		}
+		b.append('\n');
+	}
+
+	private void cell(String text) {
+		int start = buffer.length();
+		buffer.append(text);
+		quoteFrom(start);
+	}
+
+	/**
+	 * Quotes the cell written from {@code start} if it needs quoting.
+	 */
+	private void quoteFrom(int start) {
+		StringBuilder b = buffer;
+		boolean quote = false;
+		for (int i = start; i < b.length(); i++) {
+			char c = b.charAt(i);
+			if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+				quote = true;
+				break;
+			}
+		}
+		if (!quote) {
+			return;
+		}
+		for (int i = b.length() - 1; i >= start; i--) {
+			if (b.charAt(i) == '"') {
+				b.insert(i, '"');
+			}
+		}
+		b.insert(start, '"').append('"');
+	}
+
+	@SuppressWarnings("unchecked")
+	private void value(Object value, boolean json) {
+		StringBuilder b = buffer;
+		if (value == null) {
+			b.append("null");
+		} else if (value instanceof String) {
+			if (json) {
+				string((String) value);
+			} else {
+				b.append((String) value);
+			}
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short
+				|| value instanceof Byte) {
+			b.append(((Number) value).longValue());
+		} else if (value instanceof Double || value instanceof Float) {
+			double d = ((Number) value).doubleValue();
+			if (json && (Double.isNaN(d) || Double.isInfinite(d))) {
+				b.append("null");
+			} else {
+				b.append(d);
+			}
+		} else if (value instanceof Boolean) {
+			b.append(((Boolean) value).booleanValue());
+		} else if (value instanceof byte[]) {
+			if (json) {
+				b.append('"');
+			}
+			hex((byte[]) value);
+			if (json) {
+				b.append('"');
+			}
+		} else if (value instanceof List) {
+			b.append('[');
+			boolean first = true;
+			for (Object element : (List<Object>) value) {
+				if (!first) {
+					b.append(json ? "," : ", ");
+				}
+				first = false;
+				value(element, json);
+			}
+			b.append(']');
+		} else if (value instanceof Map) {
+			b.append('{');
+			boolean first = true;
+			for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+				if (!first) {
+					b.append(json ? "," : ", ");
+				}
+				first = false;
+				if (json) {
+					Object k = entry.getKey();
+					if (k instanceof String) {
+						string((String) k);
+					} else {
+						b.append('"');
+						value(k, false);
+						b.append('"');
+					}
+					b.append(':');
+				} else {
+					value(entry.getKey(), false);
+					b.append('=');
+				}
+				value(entry.getValue(), json);
+			}
+			b.append('}');
+		} else if (value instanceof Value) {
+			// GeoJSON and other particle values
+			Object object = ((Value) value).getObject();
+			if (object instanceof String && !json) {
+				b.append((String) object);
+			} else if (object instanceof String) {
+				string((String) object);
+			} else {
+				value(object, json);
+			}
+		} else if (value instanceof Object[]) {
+			value(Arrays.asList((Object[]) value), json);
+		} else if (json) {
+			string(value.toString());
+		} else {
+			b.append(value);
+		}
+	}
+
+	private void string(String s) {
+		StringBuilder b = buffer;
+		if (s == null) {
+			b.append("null");
+			return;
+		}
+		b.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				b.append("\\\"");
+				break;
+			case '\\':
+				b.append("\\\\");
+				break;
+			case '\n':
+				b.append("\\n");
+				break;
+			case '\r':
+				b.append("\\r");
+				break;
+			case '\t':
+				b.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					b.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+				} else {
+					b.append(c);
+				}
+			}
+		}
+		b.append('"');
+	}
+
+	private void hex(byte[] bytes) {
+		if (bytes == null) {
+			buffer.append("null");
+			return;
+		}
+		for (byte v : bytes) {
+			buffer.append(HEX[(v >> 4) & 0xF]).append(HEX[v & 0xF]);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package aerospike.common;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.query.RecordSet;
+
+/**
+ * A query's record set that records the query's latency when the last
+ * record has been read, the query fails, or the set is closed, whichever
+ * comes first. The client hands back a record set before the first record
+ * arrives, so the call alone says nothing about how long a query takes.
+ */
+final class TimedRecordSet extends RecordSet {
+	private final RecordSet records;
+	private final OperationTimer timer;
+	private final long startNanos;
+	private final AtomicBoolean finished = new AtomicBoolean();
+
+	TimedRecordSet(RecordSet records, OperationTimer timer, long startNanos) {
+		super(null, 1);
+		this.records = records;
+		this.timer = timer;
+		this.startNanos = startNanos;
+	}
+
+	@Override
+	public boolean next() throws AerospikeException {
+		try {
+			boolean more = records.next();
+			if (!more) {
+				finish(null);
+			}
+			return more;
+		} catch (AerospikeException e) {
+			finish(e);
+			throw e;
+		}
+	}
+
+	@Override
+	public Key getKey() {
+		return records.getKey();
+	}
+
+	@Override
+	public Record getRecord() {
+		return records.getRecord();
+	}
+
+	@Override
+	public void close() {
+		try {
+			records.close();
+		} finally {
+			finish(null);
+		}
+	}
+
+	private void finish(AerospikeException e) {
+		if (!finished.compareAndSet(false, true)) {
+			return;
+		}
+		if (e == null) {
+			timer.record(startNanos);
+		} else {
+			timer.failed(startNanos, e);
+		}
+	}
+}
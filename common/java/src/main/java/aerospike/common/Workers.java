@@ -0,0 +1,122 @@
+package aerospike.common;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs blocking client calls on virtual threads, at most
+ * {@code concurrency} at a time.
+ * <p>
+ * The client API stays blocking; each task simply parks its virtual thread
+ * while it waits for the server, so latency is overlapped without an async
+ * programming model. With a concurrency of 0 or 1 every task runs inline on
+ * the calling thread, which is the original sequential behaviour.
+ * <p>
+ * {@link #close()} waits for every submitted task and rethrows the first
+ * failure, so a try-with-resources block behaves like the sequential loop.
+ * A failure is thrown once: when {@link #submit} or {@link #awaitAll} has
+ * already thrown it, {@code close()} returns quietly, so the caller sees the
+ * original exception rather than a self-suppression error.
+ */
+public class Workers implements AutoCloseable {
+	public static final String CONCURRENCY_PROPERTY = "aerospike.concurrency";
+
+	private final int concurrency;
+	private final ExecutorService executor;
+	private final Semaphore permits;
+	private final Phaser outstanding = new Phaser(1);
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private volatile boolean thrown;
+
+	public Workers(int concurrency) {
+		this.concurrency = concurrency;
+		if (concurrency > 1) {
+			this.executor = Executors.newVirtualThreadPerTaskExecutor();
+			this.permits = new Semaphore(concurrency);
+		} else {
+			this.executor = null;
+			this.permits = null;
+		}
+	}
+
+	/**
+	 * Concurrency from the {@code aerospike.concurrency} system property,
+	 * sequential when it is not set.
+	 */
+	public static Workers fromSystemProperty() {
+		return new Workers(Integer.getInteger(CONCURRENCY_PROPERTY, 0));
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Runs the task, blocking the caller while {@code concurrency} tasks
+	 * are already running.
+	 */
+	public void submit(Runnable task) {
+		throwIfFailed();
+		if (executor == null) {
+			task.run();
+			return;
+		}
+		permits.acquireUninterruptibly();
+		outstanding.register();
+		executor.execute(() -> {
+			try {
+				task.run();
+			} catch (Throwable t) {
+				failure.compareAndSet(null, t);
+			} finally {
+				permits.release();
+				outstanding.arriveAndDeregister();
+			}
+		});
+	}
+
+	/**
+	 * Waits for every task submitted so far.
+	 */
+	public void awaitAll() {
+		if (executor != null) {
+			outstanding.arriveAndAwaitAdvance();
+		}
+		throwIfFailed();
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (executor != null) {
+				outstanding.arriveAndAwaitAdvance();
+			}
+			if (!thrown) {
+				throwIfFailed();
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	private void throwIfFailed() {
+		Throwable t = failure.get();
+		if (t != null) {
+			thrown = true;
+		}
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package aerospike.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.RecordExistsAction;
+import com.aerospike.client.policy.WritePolicy;
+
+public class OptimisticUpdaterTest {
+
+	/**
+	 * One record, written by another client just before each of the next
+	 * {@code racingWrites} puts, and checked against the generation policy
+	 * the way the server checks it.
+	 */
+	private static class RacingClient extends AerospikeClient {
+		Map<String, Object> bins;
+		int generation;
+		int racingWrites;
+		int gets;
+		int puts;
+		int failWith = ResultCode.OK;
+
+		RacingClient() {
+			super(new ClientPolicy());
+		}
+
+		@Override
+		public Record get(Policy policy, Key key) {
+			gets++;
+			return bins == null ? null : new Record(new HashMap<String, Object>(bins), generation, 0);
+		}
+
+		@Override
+		public void put(WritePolicy policy, Key key, Bin... written) {
+			puts++;
+			if (failWith != ResultCode.OK) {
+				throw new AerospikeException(failWith);
+			}
+			if (racingWrites > 0) {
+				racingWrites--;
+				write(new Bin("count", -1L));
+			}
+			if (policy.recordExistsAction == RecordExistsAction.CREATE_ONLY && bins != null) {
+				throw new AerospikeException(ResultCode.KEY_EXISTS_ERROR);
+			}
+			if (policy.generationPolicy == GenerationPolicy.EXPECT_GEN_EQUAL && policy.generation != generation) {
+				throw new AerospikeException(ResultCode.GENERATION_ERROR);
+			}
+			write(written);
+		}
+
+		private void write(Bin... written) {
+			if (bins == null) {
+				bins = new HashMap<String, Object>();
+			}
+			for (Bin bin : written) {
+				bins.put(bin.name, bin.value.getObject());
+			}
+			generation++;
+		}
+	}
+
+	private static final Key KEY = new Key("test", "updates", "k");
+
+	private static OptimisticUpdater.Update increment(AtomicInteger calls) {
+		return record -> {
+			calls.incrementAndGet();
+			long count = record == null ? 0 : record.getLong("count");
+			return new Bin[] { new Bin("count", count + 1) };
+		};
+	}
+
+	@Test
+	public void uncontendedUpdateWritesOnce() {
+		RacingClient client = new RacingClient();
+		client.write(new Bin("count", 5L));
+		OptimisticUpdater updater = new OptimisticUpdater(client, null, 3, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		assertTrue(updater.update(KEY, increment(calls)));
+		assertEquals(6L, client.bins.get("count"));
+		assertEquals(1, calls.get());
+		assertEquals(1, client.gets);
+		assertEquals(1, client.puts);
+		assertEquals(1, updater.getCommits());
+		assertEquals(0, updater.getConflicts());
+		assertEquals(0.0, updater.getRetriesPerCommit(), 0.0);
+	}
+
+	@Test
+	public void conflictsAreRetriedOnAFreshRead() {
+		RacingClient client = new RacingClient();
+		client.write(new Bin("count", 5L));
+		client.racingWrites = 3;
+		OptimisticUpdater updater = new OptimisticUpdater(client, null, 10, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		assertTrue(updater.update(KEY, increment(calls)));
+		// the last racing write set -1, and the update was applied on top of it
+		assertEquals(0L, client.bins.get("count"));
+		assertEquals(4, calls.get());
+		assertEquals(4, client.gets);
+		assertEquals(4, client.puts);
+		assertEquals(1, updater.getCommits());
+		assertEquals(3, updater.getConflicts());
+		assertEquals(0, updater.getFailures());
+		assertEquals(3.0, updater.getRetriesPerCommit(), 0.0);
+	}
+
+	@Test
+	public void retriesAreAveragedOverCommits() {
+		RacingClient client = new RacingClient();
+		client.write(new Bin("count", 0L));
+		OptimisticUpdater updater = new OptimisticUpdater(client, null, 10, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		client.racingWrites = 2;
+		updater.update(KEY, increment(calls));
+		updater.update(KEY, increment(calls));
+
+		assertEquals(2, updater.getCommits());
+		assertEquals(2, updater.getConflicts());
+		assertEquals(1.0, updater.getRetriesPerCommit(), 0.0);
+	}
+
+	@Test
+	public void createIsRetriedWhenAnotherClientCreatedTheRecord() {
+		RacingClient client = new RacingClient();
+		client.racingWrites = 1;
+		OptimisticUpdater updater = new OptimisticUpdater(client, null, 3, 0);
+		AtomicInteger calls = new AtomicInteger();
+
+		assertTrue(updater.update(KEY, increment(calls)));
+		assertEquals(0L, client.bins.get("count"));
+		assertEquals(2, client.puts);
+		assertEquals(1, updater.getConflicts());
+		assertEquals(1.0, updater.getRetriesPerCommit(), 0.0);
+	}
+
+	@Test
+	public void givesUpAfterMaxAttempts() {
+		RacingClient client = new RacingClient();
+		client.write(new Bin("count", 0L));
+		client.racingWrites = 100;
+		OptimisticUpdater updater = new OptimisticUpdater(client, null, 3, 0);
+
+		try {
+			updater.update(KEY, increment(new AtomicInteger()));
+			fail("expected a generation error");
+		} catch (AerospikeException e) {
+			assertEquals(ResultCode.GENERATION_ERROR, e.getResultCode());
+		}
+		assertEquals(3, client.puts);
+		assertEquals(0, updater.getCommits());
+		assertEquals(3, updater.getConflicts());
+		assertEquals(1, updater.getFailures());
+		assertEquals(0.0, updater.getRetriesPerCommit(), 0.0);
+	}
+
+	@Test
+	public void otherErrorsAreNotRetried() {
+		RacingClient client = new RacingClient();
+		client.failWith = ResultCode.KEY_BUSY;
+		OptimisticUpdater updater = new OptimisticUpdater(client, null, 5, 0);
+
+		try {
+			updater.update(KEY, increment(new AtomicInteger()));
+			fail("expected key busy");
+		} catch (AerospikeException e) {
+			assertEquals(ResultCode.KEY_BUSY, e.getResultCode());
+		}
+		assertEquals(1, client.puts);
+		assertEquals(0, updater.getConflicts());
+		assertEquals(0, updater.getFailures());
+	}
+
+	@Test
+	public void nullUpdateWritesNothing() {
+		RacingClient client = new RacingClient();
+		OptimisticUpdater updater = new OptimisticUpdater(client, null, 3, 0);
+
+		assertFalse(updater.update(KEY, record -> null));
+		assertNull(client.bins);
+		assertEquals(0, client.puts);
+		assertEquals(0, updater.getCommits());
+	}
+}
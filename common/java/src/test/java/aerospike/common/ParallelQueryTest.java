@@ -0,0 +1,47 @@
+package aerospike.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ParallelQueryTest {
+
+	@Test
+	public void narrowRangeGetsOneSlicePerValue() {
+		assertArrayEquals(new long[] { 5, 5, 6, 6, 7, 7 }, ParallelQuery.split(5, 7, 8));
+	}
+
+	@Test
+	public void remainderIsSpreadOverTheFirstSlices() {
+		assertArrayEquals(new long[] { 0, 3, 4, 6, 7, 9 }, ParallelQuery.split(0, 9, 3));
+	}
+
+	@Test
+	public void fullRangeOfLongsSplitsEvenly() {
+		long[] bounds = ParallelQuery.split(Long.MIN_VALUE, Long.MAX_VALUE, 4);
+		assertArrayEquals(new long[] {
+				Long.MIN_VALUE, -4611686018427387905L,
+				-4611686018427387904L, -1,
+				0, 4611686018427387903L,
+				4611686018427387904L, Long.MAX_VALUE }, bounds);
+	}
+
+	@Test
+	public void wideRangeCoversEveryValueOnce() {
+		long begin = -3;
+		long end = Long.MAX_VALUE;
+		long[] bounds = ParallelQuery.split(begin, end, 7);
+		assertEquals(14, bounds.length);
+		assertEquals(begin, bounds[0]);
+		assertEquals(end, bounds[bounds.length - 1]);
+		for (int i = 2; i < bounds.length; i += 2) {
+			assertEquals(bounds[i - 1] + 1, bounds[i]);
+		}
+	}
+
+	@Test
+	public void emptyRangeIsKept() {
+		assertArrayEquals(new long[] { 9, 1 }, ParallelQuery.split(9, 1, 4));
+	}
+}
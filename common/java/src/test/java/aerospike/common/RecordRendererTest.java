@@ -0,0 +1,97 @@
+package aerospike.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+public class RecordRendererTest {
+
+	private static Record record(Object... namesAndValues) {
+		Map<String, Object> bins = new LinkedHashMap<String, Object>();
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			bins.put((String) namesAndValues[i], namesAndValues[i + 1]);
+		}
+		return new Record(bins, 3, 0);
+	}
+
+	private static String render(RecordRenderer.Format format, String[] columns, Key[] keys, Record[] records)
+			throws IOException {
+		StringWriter out = new StringWriter();
+		RecordRenderer renderer = new RecordRenderer(out, format);
+		if (columns != null) {
+			renderer.setColumns(columns);
+		}
+		for (int i = 0; i < keys.length; i++) {
+			renderer.render(keys[i], records[i]);
+		}
+		renderer.flush();
+		return out.toString();
+	}
+
+	@Test
+	public void csvQuotesCellsWithCommasQuotesAndNewlines() throws IOException {
+		Record first = record("name", "say \"hi\", bye", "a,b", Arrays.asList(1L, "x"));
+		Record second = record("name", "two\nlines");
+		String csv = render(RecordRenderer.Format.CSV, new String[] { "name", "a,b" },
+				new Key[] { new Key("test", "s", "k,1"), new Key("test", "s", "plain") },
+				new Record[] { first, second });
+		assertEquals("key,generation,ttl,name,\"a,b\"\n"
+				+ "\"k,1\",3," + first.getTimeToLive() + ",\"say \"\"hi\"\", bye\",\"[1,\"\"x\"\"]\"\n"
+				+ "plain,3," + second.getTimeToLive() + ",\"two\nlines\",\n", csv);
+	}
+
+	@Test
+	public void csvLeavesPlainCellsAndMissingRecordsUnquoted() throws IOException {
+		String csv = render(RecordRenderer.Format.CSV, new String[] { "n", "s" },
+				new Key[] { new Key("test", "s", 7L), new Key("test", "s", 8L) },
+				new Record[] { record("n", 5L, "s", "text"), null });
+		String[] lines = csv.split("\n");
+		assertEquals(3, lines.length);
+		assertTrue(lines[1], lines[1].startsWith("7,3,") && lines[1].endsWith(",5,text"));
+		assertEquals("8,,,,", lines[2]);
+	}
+
+	@Test
+	public void csvColumnsDefaultToTheFirstRecordsBins() throws IOException {
+		String csv = render(RecordRenderer.Format.CSV, null, new Key[] { new Key("test", "s", "k") },
+				new Record[] { record("x", 1L, "y", 2L) });
+		assertTrue(csv, csv.startsWith("key,generation,ttl,x,y\n"));
+	}
+
+	@Test
+	public void jsonEscapesStringsAndControlCharacters() throws IOException {
+		String text = "q\"b\\n\nt\tc" + (char) 1;
+		Record record = record("s", text, "d", Double.NaN, "l", Arrays.asList("a\"", 2L));
+		String json = render(RecordRenderer.Format.JSON_LINES, null, new Key[] { null }, new Record[] { record });
+		assertEquals("{\"generation\":3,\"expiration\":0,\"ttl\":" + record.getTimeToLive()
+				+ ",\"bins\":{\"s\":\"q\\\"b\\\\n\\nt\\tc\\u0001\",\"d\":null,\"l\":[\"a\\\"\",2]}}\n", json);
+	}
+
+	@Test
+	public void jsonQuotesMapKeysThatAreNotStrings() throws IOException {
+		Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+		map.put(1L, "one");
+		map.put("k\"", 2L);
+		String json = render(RecordRenderer.Format.JSON_LINES, null, new Key[] { null },
+				new Record[] { record("m", map) });
+		assertTrue(json, json.endsWith(",\"bins\":{\"m\":{\"1\":\"one\",\"k\\\"\":2}}}\n"));
+	}
+
+	@Test
+	public void jsonEscapesTheKey() throws IOException {
+		String json = render(RecordRenderer.Format.JSON_LINES, null, new Key[] { new Key("test", "s\"t", "a\\b") },
+				new Record[] { null });
+		assertTrue(json, json.startsWith("{\"ns\":\"test\",\"set\":\"s\\\"t\",\"key\":\"a\\\\b\",\"digest\":\""));
+		assertTrue(json, json.endsWith("\",\"bins\":null}\n"));
+	}
+}
@@ -0,0 +1,85 @@
+package aerospike.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class WorkersTest {
+
+	@Test
+	public void failedTaskIsThrownOnceFromTryWithResources() {
+		IllegalStateException boom = new IllegalStateException("boom");
+		try (Workers workers = new Workers(4)) {
+			for (int i = 0; i < 1000; i++) {
+				workers.submit(() -> {
+					throw boom;
+				});
+			}
+			fail("expected the task failure");
+		} catch (IllegalStateException e) {
+			assertSame(boom, e);
+			assertEquals(0, e.getSuppressed().length);
+		}
+	}
+
+	@Test
+	public void failureOfTheLastTaskIsThrownByClose() {
+		IllegalStateException boom = new IllegalStateException("boom");
+		try (Workers workers = new Workers(4)) {
+			workers.submit(() -> {
+				throw boom;
+			});
+		} catch (IllegalStateException e) {
+			assertSame(boom, e);
+			return;
+		}
+		fail("expected the task failure");
+	}
+
+	@Test
+	public void failureAfterAwaitAllIsNotThrownAgain() {
+		IllegalStateException boom = new IllegalStateException("boom");
+		Workers workers = new Workers(4);
+		workers.submit(() -> {
+			throw boom;
+		});
+		try {
+			workers.awaitAll();
+			fail("expected the task failure");
+		} catch (IllegalStateException e) {
+			assertSame(boom, e);
+		}
+		workers.close();
+	}
+
+	@Test
+	public void sequentialTaskFailsInline() {
+		IllegalStateException boom = new IllegalStateException("boom");
+		AtomicInteger ran = new AtomicInteger();
+		try (Workers workers = new Workers(0)) {
+			workers.submit(ran::incrementAndGet);
+			workers.submit(() -> {
+				throw boom;
+			});
+			fail("expected the task failure");
+		} catch (IllegalStateException e) {
+			assertSame(boom, e);
+		}
+		assertEquals(1, ran.get());
+	}
+
+	@Test
+	public void closeWaitsForEveryTask() {
+		AtomicInteger ran = new AtomicInteger();
+		try (Workers workers = new Workers(8)) {
+			for (int i = 0; i < 100; i++) {
+				workers.submit(ran::incrementAndGet);
+			}
+		}
+		assertEquals(100, ran.get());
+	}
+}
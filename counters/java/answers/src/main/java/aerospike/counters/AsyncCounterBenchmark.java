@@ -0,0 +1,102 @@
+package aerospike.counters;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.listener.RecordListener;
+
+import aerospike.standin.StandInClient;
+
+/**
+ * Throughput and latency of blocking increments against an
+ * {@link AsyncCounterPipeline}, on the in-process stand-in server.
+ * <p>
+ * Usage: AsyncCounterBenchmark [increments] [blocking threads] [max in flight]
+ */
+public class AsyncCounterBenchmark {
+	private static final String NS = "test";
+	private static final String SET = "counters";
+	private static final String BIN = "cat-counter";
+	private static final int KEYS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		int increments = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 512;
+
+		StandInClient client = new StandInClient();
+		client.setNetworkLatency(200);
+
+		blocking(client, 1, increments / 10);
+		blocking(client, threads, increments);
+		async(client, maxInFlight, increments);
+		client.close();
+	}
+
+	private static void blocking(final StandInClient client, int threads, int increments) throws InterruptedException {
+		final long[] latencies = new long[increments];
+		final AtomicInteger next = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(threads);
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					int i;
+					while ((i = next.getAndIncrement()) < latencies.length) {
+						long begin = System.nanoTime();
+						client.operate(null, key(i), Operation.add(new Bin(BIN, 1)));
+						latencies[i] = System.nanoTime() - begin;
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+		report(String.format("blocking, %d threads", threads), latencies, System.nanoTime() - start);
+	}
+
+	private static void async(StandInClient client, int maxInFlight, int increments) throws InterruptedException {
+		AsyncCounterPipeline pipeline = new AsyncCounterPipeline(client, null, null, maxInFlight);
+		final long[] latencies = new long[increments];
+		long start = System.nanoTime();
+		for (int i = 0; i < increments; i++) {
+			final int index = i;
+			final long begin = System.nanoTime();
+			pipeline.operate(key(i), new RecordListener() {
+				@Override
+				public void onSuccess(Key key, Record record) {
+					latencies[index] = System.nanoTime() - begin;
+				}
+
+				@Override
+				public void onFailure(AerospikeException e) {
+					latencies[index] = System.nanoTime() - begin;
+				}
+			}, Operation.add(new Bin(BIN, 1)));
+		}
+		pipeline.drain();
+		report(String.format("async, 1 thread, %d in flight", maxInFlight), latencies, System.nanoTime() - start);
+		System.out.println(String.format("\tcompleted: %d, failed: %d", pipeline.getCompleted(), pipeline.getFailed()));
+	}
+
+	private static Key key(int i) {
+		return new Key(NS, SET, "counter-" + (i % KEYS));
+	}
+
+	private static void report(String name, long[] latencies, long elapsed) {
+		Arrays.sort(latencies);
+		System.out.println(String.format("%s: %d increments/sec, p50 %d us, p99 %d us, max %d us",
+				name,
+				latencies.length * 1000000000L / elapsed,
+				latencies[latencies.length / 2] / 1000,
+				latencies[(int) (latencies.length * 0.99)] / 1000,
+				latencies[latencies.length - 1] / 1000));
+	}
+}
@@ -0,0 +1,150 @@
+package aerospike.counters;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Non-blocking counter increments on the client's event loops.
+ * <p>
+ * Each {@link #operate} is issued asynchronously and returns immediately,
+ * so one thread can keep many commands in flight. The number in flight is
+ * bounded by {@code maxInFlight}: once the limit is reached the caller
+ * blocks until a command completes, which is the backpressure that keeps a
+ * fast producer from queueing unbounded work on the event loops.
+ * <p>
+ * The client must have been created with {@code ClientPolicy.eventLoops}
+ * set to the same {@link EventLoops}.
+ */
+public class AsyncCounterPipeline {
+	private final AerospikeClient client;
+	private final EventLoops eventLoops;
+	private final WritePolicy writePolicy;
+	private final int maxInFlight;
+	private final Semaphore permits;
+
+	// metrics
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private volatile long maxNanos;
+
+	public AsyncCounterPipeline(AerospikeClient client, EventLoops eventLoops, WritePolicy writePolicy, int maxInFlight) {
+		this.client = client;
+		this.eventLoops = eventLoops;
+		this.writePolicy = writePolicy;
+		this.maxInFlight = maxInFlight;
+		this.permits = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Issues the operations on a key without waiting for the result.
+	 * Blocks only while {@code maxInFlight} commands are outstanding.
+	 */
+	public void operate(Key key, Operation... operations) throws InterruptedException {
+		operate(key, null, operations);
+	}
+
+	/**
+	 * As {@link #operate(Key, Operation...)}, and calls the listener, if
+	 * any, when the command completes.
+	 */
+	public void operate(Key key, final RecordListener listener, Operation... operations) throws InterruptedException {
+		permits.acquire();
+		final long start = System.nanoTime();
+		EventLoop eventLoop = eventLoops == null ? null : eventLoops.next();
+		try {
+			client.operate(eventLoop, new RecordListener() {
+				@Override
+				public void onSuccess(Key key, Record record) {
+					try {
+						if (listener != null) {
+							listener.onSuccess(key, record);
+						}
+					} finally {
+						done(start, true);
+					}
+				}
+
+				@Override
+				public void onFailure(AerospikeException e) {
+					try {
+						if (listener != null) {
+							listener.onFailure(e);
+						}
+					} finally {
+						done(start, false);
+					}
+				}
+			}, writePolicy, key, operations);
+		} catch (AerospikeException e) {
+			// rejected before it was queued, e.g. event loop queue full
+			done(start, false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Waits until every issued command has completed.
+	 */
+	public void drain() throws InterruptedException {
+		permits.acquire(maxInFlight);
+		permits.release(maxInFlight);
+	}
+
+	/**
+	 * Waits up to the timeout for every issued command to complete.
+	 */
+	public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+		if (!permits.tryAcquire(maxInFlight, timeout, unit)) {
+			return false;
+		}
+		permits.release(maxInFlight);
+		return true;
+	}
+
+	private void done(long start, boolean success) {
+		long elapsed = System.nanoTime() - start;
+		if (success) {
+			completed.incrementAndGet();
+		} else {
+			failed.incrementAndGet();
+		}
+		totalNanos.addAndGet(elapsed);
+		if (elapsed > maxNanos) {
+			maxNanos = elapsed;
+		}
+		permits.release();
+	}
+
+	public int getInFlight() {
+		return maxInFlight - permits.availablePermits();
+	}
+
+	public long getCompleted() {
+		return completed.get();
+	}
+
+	public long getFailed() {
+		return failed.get();
+	}
+
+	public long getAverageLatencyMicros() {
+		long count = completed.get() + failed.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.get() / count);
+	}
+
+	public long getMaxLatencyMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxNanos);
+	}
+}
@@ -0,0 +1,390 @@
+package aerospike.counters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Write-combining buffer for counter increments.
+ * <p>
+ * Increments are accumulated in memory per (key, bin) and flushed as one
+ * {@code operate} per key, carrying one {@link Operation#add} per bin,
+ * either every {@code flushIntervalMillis} or as soon as
+ * {@code maxPendingDeltas} increments are waiting, whichever comes first.
+ * <p>
+ * Increments that have not been flushed are lost if the process dies. The
+ * loss is bounded by {@link #getPendingDeltas()} at any moment, and
+ * {@link #getMaxPendingDeltas()} reports the worst case seen so far.
+ * <p>
+ * A flush that failed for a passing reason (the key is busy, the device
+ * overloaded, a node or partition unavailable) puts its deltas back, so they
+ * are retried on the next one. A timeout or connection error leaves the
+ * write in doubt: it may have been applied, and retrying it could count it
+ * twice, so its increments are dropped and counted in
+ * {@link #getInDoubtDeltas()}. Any other error (a bin that is not an
+ * integer, a record that may not be written) would fail every time, so its
+ * increments are dropped and counted in {@link #getRejectedDeltas()}.
+ * <p>
+ * A counter that had no increments for a whole flush interval is removed,
+ * so memory and flush time follow the counters in use, not every counter
+ * ever seen. Removal waits for increments in progress, which are tracked
+ * in one slot per thread stripe so that they do not contend.
+ */
+public class CounterWriteBuffer {
+
+	/**
+	 * The delta of one bin and the number of increments folded into it.
+	 */
+	private static final class BinDelta {
+		final LongAdder delta = new LongAdder();
+		final LongAdder increments = new LongAdder();
+	}
+
+	private static final int STRIPES = 64; // a power of 2
+	private static final int PADDING = 16; // ints per cache line
+
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final long maxPendingDeltas;
+	private final ConcurrentHashMap<Key, ConcurrentHashMap<String, BinDelta>> deltas =
+			new ConcurrentHashMap<Key, ConcurrentHashMap<String, BinDelta>>();
+	private final LongAdder pending = new LongAdder();
+	// increments in progress per thread stripe, and whether a flush is removing idle counters
+	private final AtomicIntegerArray adding = new AtomicIntegerArray(STRIPES * PADDING);
+	private volatile boolean removing;
+	private final ScheduledExecutorService scheduler;
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	// metrics
+	private final AtomicLong flushes = new AtomicLong();
+	private final AtomicLong flushErrors = new AtomicLong();
+	private final AtomicLong inDoubt = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong removed = new AtomicLong();
+	private final AtomicLong roundTrips = new AtomicLong();
+	private final AtomicLong totalFlushNanos = new AtomicLong();
+	private volatile long lastFlushNanos;
+	private volatile long maxFlushNanos;
+	private volatile long maxPending;
+
+	public CounterWriteBuffer(AerospikeClient client, WritePolicy writePolicy, long flushIntervalMillis, long maxPendingDeltas) {
+		this.client = client;
+		this.writePolicy = writePolicy;
+		this.maxPendingDeltas = maxPendingDeltas;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "counter-write-buffer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				flushQuietly();
+			}
+		}, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds a delta to a counter bin. Does not touch the network.
+	 */
+	public void add(Key key, String binName, long delta) {
+		int slot = (int) (Thread.currentThread().threadId() & (STRIPES - 1)) * PADDING;
+		enter(slot);
+		try {
+			ConcurrentHashMap<String, BinDelta> bins = deltas.get(key);
+			if (bins == null) {
+				ConcurrentHashMap<String, BinDelta> created = new ConcurrentHashMap<String, BinDelta>();
+				bins = deltas.putIfAbsent(key, created);
+				if (bins == null) {
+					bins = created;
+				}
+			}
+			BinDelta counter = bins.get(binName);
+			if (counter == null) {
+				BinDelta created = new BinDelta();
+				counter = bins.putIfAbsent(binName, created);
+				if (counter == null) {
+					counter = created;
+				}
+			}
+			// delta before count: a flush that takes the count has taken the delta
+			counter.delta.add(delta);
+			counter.increments.add(1);
+			pending.add(1);
+		} finally {
+			adding.decrementAndGet(slot);
+		}
+
+		if (pending.sum() >= maxPendingDeltas && flushRequested.compareAndSet(false, true)) {
+			scheduler.execute(new Runnable() {
+				@Override
+				public void run() {
+					flushQuietly();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Marks an increment in progress, or waits while a flush removes idle
+	 * counters, so that no increment goes to a counter being removed.
+	 */
+	private void enter(int slot) {
+		for (;;) {
+			adding.incrementAndGet(slot);
+			if (!removing) {
+				return;
+			}
+			adding.decrementAndGet(slot);
+			while (removing) {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	/**
+	 * Writes every accumulated delta, one operate per key.
+	 */
+	public synchronized void flush() throws AerospikeException {
+		flushRequested.set(false);
+		long start = System.nanoTime();
+		long pendingNow = pending.sum();
+		if (pendingNow > maxPending) {
+			maxPending = pendingNow;
+		}
+		AerospikeException failure = null;
+		List<Key> idle = new ArrayList<Key>();
+		for (Map.Entry<Key, ConcurrentHashMap<String, BinDelta>> entry : deltas.entrySet()) {
+			List<Operation> ops = new ArrayList<Operation>();
+			List<BinDelta> counters = new ArrayList<BinDelta>();
+			List<Long> values = new ArrayList<Long>();
+			long taken = 0;
+			for (Map.Entry<String, BinDelta> bin : entry.getValue().entrySet()) {
+				// count before delta, so pending never reads low
+				long increments = bin.getValue().increments.sumThenReset();
+				long delta = bin.getValue().delta.sumThenReset();
+				taken += increments;
+				if (increments == 0 && (idle.isEmpty() || idle.get(idle.size() - 1) != entry.getKey())) {
+					idle.add(entry.getKey());
+				}
+				if (delta != 0) {
+					ops.add(Operation.add(new Bin(bin.getKey(), delta)));
+					counters.add(bin.getValue());
+					values.add(delta);
+				}
+			}
+			if (ops.isEmpty()) {
+				pending.add(-taken);
+				continue;
+			}
+			try {
+				roundTrips.incrementAndGet();
+				client.operate(writePolicy, entry.getKey(), ops.toArray(new Operation[ops.size()]));
+				pending.add(-taken);
+			} catch (AerospikeException e) {
+				flushErrors.incrementAndGet();
+				failure = e;
+				if (isInDoubt(e)) {
+					// may have been applied; retrying could count it twice
+					pending.add(-taken);
+					inDoubt.addAndGet(taken);
+				} else if (isTransient(e)) {
+					// not applied, so the next flush retries the deltas; pending still counts them
+					for (int i = 0; i < counters.size(); i++) {
+						counters.get(i).delta.add(values.get(i));
+					}
+					counters.get(0).increments.add(taken);
+				} else {
+					// would be refused again on every flush
+					pending.add(-taken);
+					rejected.addAndGet(taken);
+				}
+			}
+		}
+		if (!idle.isEmpty()) {
+			removeIdle(idle);
+		}
+		long elapsed = System.nanoTime() - start;
+		lastFlushNanos = elapsed;
+		if (elapsed > maxFlushNanos) {
+			maxFlushNanos = elapsed;
+		}
+		totalFlushNanos.addAndGet(elapsed);
+		flushes.incrementAndGet();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Removes the counters of these keys that had no increments since they
+	 * were last taken, and the keys left without counters. Increments wait
+	 * until it is done; it is only map removals, no network.
+	 */
+	private void removeIdle(List<Key> keys) {
+		removing = true;
+		try {
+			for (int i = 0; i < STRIPES; i++) {
+				while (adding.get(i * PADDING) != 0) {
+					Thread.onSpinWait();
+				}
+			}
+			// nothing is being added now, so the sums are exact
+			for (Key key : keys) {
+				ConcurrentHashMap<String, BinDelta> bins = deltas.get(key);
+				for (Map.Entry<String, BinDelta> bin : bins.entrySet()) {
+					if (bin.getValue().increments.sum() == 0 && bin.getValue().delta.sum() == 0) {
+						bins.remove(bin.getKey());
+						removed.incrementAndGet();
+					}
+				}
+				if (bins.isEmpty()) {
+					deltas.remove(key);
+				}
+			}
+		} finally {
+			removing = false;
+		}
+	}
+
+	/**
+	 * Stops the flush timer and writes what is left.
+	 */
+	public void close() throws AerospikeException {
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+	}
+
+	/**
+	 * A timeout or a lost connection may come after the server applied the
+	 * write; any other error means it was not applied.
+	 */
+	private static boolean isInDoubt(AerospikeException e) {
+		return e instanceof AerospikeException.Timeout || e instanceof AerospikeException.Connection
+				|| e.getResultCode() == ResultCode.TIMEOUT;
+	}
+
+	/**
+	 * Errors that may pass: nothing was written, and the same write can
+	 * succeed a moment later.
+	 */
+	private static boolean isTransient(AerospikeException e) {
+		switch (e.getResultCode()) {
+		case ResultCode.KEY_BUSY:
+		case ResultCode.DEVICE_OVERLOAD:
+		case ResultCode.PARTITION_UNAVAILABLE:
+		case ResultCode.SERVER_NOT_AVAILABLE:
+		case ResultCode.NO_MORE_CONNECTIONS:
+		case ResultCode.INVALID_NODE_ERROR:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (AerospikeException e) {
+			System.err.println(String.format("Counter flush failed: %s", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Increments accepted but not yet written; lost if the process dies now.
+	 */
+	public long getPendingDeltas() {
+		return pending.sum();
+	}
+
+	/**
+	 * The largest number of unwritten increments seen at any flush.
+	 */
+	public long getMaxPendingDeltas() {
+		return maxPending;
+	}
+
+	public long getFlushCount() {
+		return flushes.get();
+	}
+
+	/**
+	 * Increments whose flush timed out or lost its connection; they may or
+	 * may not have been written, and are not retried.
+	 */
+	public long getInDoubtDeltas() {
+		return inDoubt.get();
+	}
+
+	/**
+	 * Increments whose flush failed with an error that retrying would not
+	 * fix, such as a bin that is not an integer; they were not written.
+	 */
+	public long getRejectedDeltas() {
+		return rejected.get();
+	}
+
+	/**
+	 * Counters currently buffered, one per key and bin.
+	 */
+	public long getCounterCount() {
+		long count = 0;
+		for (ConcurrentHashMap<String, BinDelta> bins : deltas.values()) {
+			count += bins.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Idle counters removed so far.
+	 */
+	public long getRemovedCounters() {
+		return removed.get();
+	}
+
+	public long getFlushErrors() {
+		return flushErrors.get();
+	}
+
+	public long getRoundTrips() {
+		return roundTrips.get();
+	}
+
+	public long getLastFlushMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(lastFlushNanos);
+	}
+
+	public long getMaxFlushMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxFlushNanos);
+	}
+
+	public long getAverageFlushMicros() {
+		long count = flushes.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalFlushNanos.get() / count);
+	}
+}
@@ -0,0 +1,106 @@
+package aerospike.counters;
+
+import java.util.concurrent.CountDownLatch;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+
+import aerospike.standin.StandInClient;
+
+/**
+ * Compares direct counter increments with a {@link CounterWriteBuffer},
+ * counting round trips on the in-process stand-in server.
+ * <p>
+ * Usage: CounterWriteBufferBenchmark [threads] [increments per thread]
+ */
+public class CounterWriteBufferBenchmark {
+	private static final String NS = "test";
+	private static final String SET = "counters";
+	private static final String CAT = "cat-counter";
+	private static final String DOG = "dog-counter";
+	private static final int KEYS = 10;
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+		int increments = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+		final StandInClient client = new StandInClient();
+		client.setNetworkLatency(100);
+
+		final Key[] direct = keys("direct");
+		long elapsed = run(threads, increments, new Increment() {
+			@Override
+			public void increment(int i) {
+				Key key = direct[i % KEYS];
+				client.operate(null, key, Operation.add(new Bin(CAT, 1)), Operation.add(new Bin(DOG, 2)));
+			}
+		});
+		report("direct", threads * (long) increments, elapsed, client.getRoundTrips());
+		verify(client, direct, threads * (long) increments);
+
+		client.resetRoundTrips();
+		final Key[] buffered = keys("buffered");
+		final CounterWriteBuffer buffer = new CounterWriteBuffer(client, null, 50, 100000);
+		elapsed = run(threads, increments, new Increment() {
+			@Override
+			public void increment(int i) {
+				Key key = buffered[i % KEYS];
+				buffer.add(key, CAT, 1);
+				buffer.add(key, DOG, 2);
+			}
+		});
+		buffer.close();
+		report("buffered", threads * (long) increments, elapsed, client.getRoundTrips());
+		System.out.println(String.format("\tflushes: %d, avg flush: %d us, max flush: %d us, max pending: %d, in doubt: %d, rejected: %d",
+				buffer.getFlushCount(), buffer.getAverageFlushMicros(), buffer.getMaxFlushMicros(),
+				buffer.getMaxPendingDeltas(), buffer.getInDoubtDeltas(), buffer.getRejectedDeltas()));
+		verify(client, buffered, threads * (long) increments);
+		client.close();
+	}
+
+	private interface Increment {
+		void increment(int i);
+	}
+
+	private static long run(int threads, final int increments, final Increment increment) throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(threads);
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < increments; i++) {
+						increment.increment(i);
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+		return System.nanoTime() - start;
+	}
+
+	private static Key[] keys(String prefix) {
+		Key[] keys = new Key[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			keys[i] = new Key(NS, SET, prefix + "-counter-" + i);
+		}
+		return keys;
+	}
+
+	private static void report(String name, long increments, long nanos, long roundTrips) {
+		System.out.println(String.format("%s: %d increments in %d ms, %d increments/sec, %d round trips",
+				name, increments, nanos / 1000000, increments * 1000000000L / nanos, roundTrips));
+	}
+
+	private static void verify(StandInClient client, Key[] keys, long expected) {
+		long cats = 0;
+		for (Key key : keys) {
+			Record record = client.get(null, key);
+			cats += record.getLong(CAT);
+		}
+		System.out.println(String.format("\tcat total: %d, expected %d", cats, expected));
+	}
+}
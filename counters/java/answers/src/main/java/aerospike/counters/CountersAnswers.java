@@ -1,7 +1,10 @@
 package aerospike.counters;
 
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
 
 import com.aerospike.client.AerospikeClient;
 import com.aerospike.client.AerospikeException;
@@ -9,28 +12,68 @@ import com.aerospike.client.Bin;
 import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.async.NioEventLoops;
 import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.Policy;
 import com.aerospike.client.policy.WritePolicy;
 
+import aerospike.common.ClientRegistry;
+import aerospike.common.RecordRenderer;
+import aerospike.common.Workers;
+import aerospike.standin.StandInClient;
+
 /**
  * @author Peter Milne
  */
 public class CountersAnswers {
 	private AerospikeClient client;
+	private final RecordRenderer printer = RecordRenderer.console(RecordRenderer.Format.TEXT);
+	private EventLoops eventLoops;
 
 	public CountersAnswers()
 			throws AerospikeException {
-		// Establish a connection to Aerospike cluster
-		ClientPolicy cPolicy = new ClientPolicy();
-		cPolicy.timeout = 500;
-		this.client = new AerospikeClient(cPolicy, "10.211.55.101", 3000);
+		this((EventLoops) null);
+	}
+
+	public CountersAnswers(EventLoops eventLoops)
+			throws AerospikeException {
+		this.eventLoops = eventLoops;
+		if (eventLoops == null) {
+			// Share the process-wide connection to the cluster in aerospike.properties
+			this.client = ClientRegistry.acquire();
+		} else {
+			// An async client needs its own event loops, but uses the same settings
+			ClientPolicy cPolicy = ClientRegistry.policy();
+			cPolicy.eventLoops = eventLoops;
+			this.client = new AerospikeClient(cPolicy, ClientRegistry.hosts());
+		}
+	}
+
+	public CountersAnswers(AerospikeClient client) {
+		// Use an existing client, e.g. the in-process stand-in
+		this.client = client;
 	}
 
 	public static void main(String[] args) throws AerospikeException {
 		try {
+			List<String> options = Arrays.asList(args);
+
+			if (options.contains("async")) {
+				if (options.contains("standin")) {
+					new CountersAnswers(new StandInClient()).workAsync();
+					return;
+				}
+				EventLoops eventLoops = new NioEventLoops(1);
+				CountersAnswers as = new CountersAnswers(eventLoops);
+				as.workAsync();
+				eventLoops.close();
+				return;
+			}
 
-			CountersAnswers as = new CountersAnswers();
+			CountersAnswers as = options.contains("standin")
+					? new CountersAnswers(new StandInClient())
+					: new CountersAnswers();
 
 			as.work();
 
@@ -48,16 +91,10 @@ public class CountersAnswers {
 		final String catCountBin = "cat-counter"; // Aerospike Bin name for a "cat" counter
 		final String dogCountBin = "dog-counter"; // Aerospike Bin name for a "dog" counter
 
-		// Connecting to Aerospike cluster
-		// Specify IP of one of the hosts in the cluster
-		String SeedHost = "10.211.55.101";
-		// Specify Port that the node is listening on
-		int SeedPort = 3000;
-		// Establish connection
-		AerospikeClient client = new AerospikeClient(SeedHost, SeedPort);
+		try {
+			if (client.isConnected()){
+				System.out.println(ClientRegistry.summary());
 
-		if (client.isConnected()){
-			{
 				// Add integer to the cat counter, and read the record.
 				Key key = new Key(ns, set, "a-record-with-one-counter");
 
@@ -80,41 +117,66 @@ public class CountersAnswers {
 				record = client.operate(null, key, Operation.add(cat), Operation.get());
 
 				printRecord(key, record);
+
+				// Spread a hot counter across 8 shard records, and read the total.
+				ShardedCounter sharded = new ShardedCounter(client, ns, set, "a-sharded-counter", catCountBin, 8);
+				// on virtual threads if -Daerospike.concurrency is set
+				try (Workers workers = Workers.fromSystemProperty()) {
+					for (int i = 0; i < 10; i++) {
+						workers.submit(() -> sharded.add(1)); // Increment by 1
+					}
+				}
+				System.out.println(String.format("Sharded counter total: %d across %d shards", 
+						sharded.get(), sharded.getShardCount()));
 			}
-		}	
+		} finally {
+			ClientRegistry.release(client);
+		}
+	}
+
+
+	public void workAsync() throws Exception {
+		System.out.println("***** Async counters in Aerospike *****");
+		final String ns = "test"; // Aerospike namespace
+		final String set = "counters"; // Aerospike set name
+		final String catCountBin = "cat-counter"; // Aerospike Bin name for a "cat" counter
+		final int increments = 100000;
+
+		try {
+			if (client.isConnected()){
+				// Increment the cat counter from one thread, with up to 256 commands in flight
+				Key key = new Key(ns, set, "a-record-with-an-async-counter");
+				AsyncCounterPipeline pipeline = new AsyncCounterPipeline(client, eventLoops, null, 256);
+
+				long start = System.currentTimeMillis();
+				for (int i = 0; i < increments; i++) {
+					pipeline.operate(key, Operation.add(new Bin(catCountBin, 1)));
+				}
+				pipeline.drain();
+				long stop = System.currentTimeMillis();
+
+				System.out.println(String.format("%d increments in %d ms, %d failed", 
+						pipeline.getCompleted(), (stop - start), pipeline.getFailed()));
+				printRecord(key, client.get(null, key));
+			}
+		} finally {
+			if (eventLoops == null) {
+				ClientRegistry.release(client);
+			} else {
+				// made by the constructor for its event loops, not by the registry
+				client.close();
+			}
+		}
 	}
 
 
 	public void printRecord(Key key, Record record)
 	{
-		System.out.println("Key");
-		if (key == null)
-		{
-			System.out.println("\tkey == null");
-		}
-		else 
-		{
-			System.out.println(String.format("\tNamespace: %s", key.namespace));
-			System.out.println(String.format("\t      Set: %s", key.setName));
-			System.out.println(String.format("\t      Key: %s", key.userKey));
-			System.out.println(String.format("\t   Digest: %s", key.digest.toString()));
-		}
-		System.out.println("Record");
-		if (record == null)
-		{
-			System.out.println("\trecord == null");
-		}
-		else
-		{
-			System.out.println(String.format("\tGeneration: %d", record.generation));
-			System.out.println(String.format("\tExpiration: %d", record.expiration));
-			System.out.println(String.format("\t       TTL: %d", record.getTimeToLive()));
-			System.out.println("Bins");
-
-			for (Map.Entry<String, Object> entry : record.bins.entrySet())
-			{
-				System.out.println(String.format("\t%s = %s", entry.getKey(), entry.getValue().toString()));
-			}
+		try {
+			printer.render(key, record);
+			printer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
@@ -0,0 +1,112 @@
+package aerospike.counters;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * A logical counter spread across several sub-records (shards).
+ * <p>
+ * A single hot counter key lives in one partition on one node, so every
+ * increment is serialized on that record. Spreading the counter over N
+ * shard records, each in a different partition, lets increments proceed in
+ * parallel. Each thread writes to its own shard; reading the counter batch
+ * reads all shards and sums them.
+ */
+public class ShardedCounter {
+	private static final int PARTITIONS = 4096;
+	private static final AtomicInteger threadSequence = new AtomicInteger();
+
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final BatchPolicy batchPolicy;
+	private final String binName;
+	private final Key[] shards;
+	private final ThreadLocal<Integer> threadShard;
+
+	public ShardedCounter(AerospikeClient client, String ns, String set, String name, String binName, int shardCount) {
+		this(client, null, null, ns, set, name, binName, shardCount);
+	}
+
+	public ShardedCounter(AerospikeClient client, WritePolicy writePolicy, BatchPolicy batchPolicy,
+			String ns, String set, String name, String binName, int shardCount) {
+		if (shardCount < 1 || shardCount > PARTITIONS) {
+			throw new IllegalArgumentException("shardCount must be between 1 and " + PARTITIONS);
+		}
+		this.client = client;
+		this.writePolicy = writePolicy;
+		this.batchPolicy = batchPolicy;
+		this.binName = binName;
+		this.shards = shardKeys(ns, set, name, shardCount);
+		final int count = shardCount;
+		this.threadShard = new ThreadLocal<Integer>() {
+			@Override
+			protected Integer initialValue() {
+				// Round robin, so concurrent threads land on different shards
+				return threadSequence.getAndIncrement() % count;
+			}
+		};
+	}
+
+	/**
+	 * Adds to the calling thread's shard. One round trip, no read back.
+	 */
+	public void add(long delta) throws AerospikeException {
+		client.operate(writePolicy, shards[threadShard.get()], Operation.add(new Bin(binName, delta)));
+	}
+
+	/**
+	 * Reads every shard in one batch request and returns the sum.
+	 */
+	public long get() throws AerospikeException {
+		Record[] records = client.get(batchPolicy, shards, binName);
+		long total = 0;
+		for (Record record : records) {
+			if (record != null) {
+				total += record.getLong(binName);
+			}
+		}
+		return total;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	public Key[] getShardKeys() {
+		return shards.clone();
+	}
+
+	/**
+	 * Derives the shard keys for a counter. Candidate keys are "name:0",
+	 * "name:1", ... and a candidate is skipped when its digest falls into a
+	 * partition that is already used by an earlier shard, so every shard
+	 * lands in its own partition. The result is deterministic, so every
+	 * client computes the same keys.
+	 */
+	public static Key[] shardKeys(String ns, String set, String name, int shardCount) {
+		Key[] keys = new Key[shardCount];
+		Set<Integer> partitions = new HashSet<Integer>();
+		int found = 0;
+		for (int suffix = 0; found < shardCount; suffix++) {
+			Key candidate = new Key(ns, set, name + ":" + suffix);
+			if (partitions.add(partitionId(candidate.digest))) {
+				keys[found++] = candidate;
+			}
+		}
+		return keys;
+	}
+
+	private static int partitionId(byte[] digest) {
+		return ((digest[0] & 0xFF) | ((digest[1] & 0xFF) << 8)) % PARTITIONS;
+	}
+}
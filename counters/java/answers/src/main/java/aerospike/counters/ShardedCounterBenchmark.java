@@ -0,0 +1,78 @@
+package aerospike.counters;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+
+import aerospike.standin.StandInClient;
+
+/**
+ * Compares increment throughput of a single hot counter key against a
+ * {@link ShardedCounter}, using the in-process stand-in server.
+ * <p>
+ * Usage: ShardedCounterBenchmark [threads] [shards] [seconds]
+ */
+public class ShardedCounterBenchmark {
+	private static final String NS = "test";
+	private static final String SET = "counters";
+	private static final String BIN = "cat-counter";
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+		int shardCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		StandInClient client = new StandInClient();
+		client.setNetworkLatency(100); // round trip
+		client.setServiceTime(20); // record lock hold time
+
+		final Key hotKey = new Key(NS, SET, "a-hot-counter");
+		final AerospikeClient c = client;
+		long single = run("single key", threads, seconds, new Runnable() {
+			@Override
+			public void run() {
+				c.operate(null, hotKey, Operation.add(new Bin(BIN, 1)));
+			}
+		});
+		System.out.println(String.format("\tcounter value: %d", client.get(null, hotKey).getLong(BIN)));
+
+		final ShardedCounter counter = new ShardedCounter(client, NS, SET, "a-sharded-counter", BIN, shardCount);
+		long sharded = run(String.format("%d shards", shardCount), threads, seconds, new Runnable() {
+			@Override
+			public void run() {
+				counter.add(1);
+			}
+		});
+		System.out.println(String.format("\tcounter value: %d", counter.get()));
+		System.out.println(String.format("Speed up: %.1fx", (double) sharded / single));
+		client.close();
+	}
+
+	private static long run(String name, int threads, int seconds, final Runnable increment) throws InterruptedException {
+		final AtomicLong count = new AtomicLong();
+		final long deadline = System.nanoTime() + seconds * 1000000000L;
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					long n = 0;
+					while (System.nanoTime() < deadline) {
+						increment.run();
+						n++;
+					}
+					count.addAndGet(n);
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+		long perSecond = count.get() / seconds;
+		System.out.println(String.format("%s: %d increments/sec with %d threads", name, perSecond, threads));
+		return perSecond;
+	}
+}
@@ -0,0 +1,193 @@
+package aerospike.counters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.standin.StandInClient;
+
+public class CounterWriteBufferTest {
+
+	/**
+	 * A stand-in that fails the next operates with a given result code.
+	 */
+	private static class FailingClient extends StandInClient {
+		volatile int failures;
+		volatile int resultCode;
+
+		void failNext(int count, int code) {
+			resultCode = code;
+			failures = count;
+		}
+
+		@Override
+		public Record operate(WritePolicy policy, Key key, Operation... operations) throws AerospikeException {
+			if (failures > 0) {
+				failures--;
+				throw new AerospikeException(resultCode);
+			}
+			return super.operate(policy, key, operations);
+		}
+	}
+
+	private final FailingClient client = new FailingClient();
+	// flushed by the tests only
+	private final CounterWriteBuffer buffer = new CounterWriteBuffer(client, null, 3600000, Long.MAX_VALUE);
+	private final Key cats = new Key("test", "counters", "cats");
+	private final Key dogs = new Key("test", "counters", "dogs");
+
+	@After
+	public void close() {
+		buffer.close();
+		client.close();
+	}
+
+	private long value(Key key, String bin) {
+		Record record = client.get(null, key);
+		return record == null ? 0 : record.getLong(bin);
+	}
+
+	private void flushExpectingFailure() {
+		try {
+			buffer.flush();
+			fail("expected the flush to fail");
+		} catch (AerospikeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void flushWritesOneOperatePerKey() {
+		buffer.add(cats, "count", 1);
+		buffer.add(cats, "count", 2);
+		buffer.add(cats, "weight", 5);
+		buffer.add(dogs, "count", 7);
+		assertEquals(4, buffer.getPendingDeltas());
+
+		buffer.flush();
+		assertEquals(3, value(cats, "count"));
+		assertEquals(5, value(cats, "weight"));
+		assertEquals(7, value(dogs, "count"));
+		assertEquals(0, buffer.getPendingDeltas());
+		assertEquals(2, buffer.getRoundTrips());
+		assertEquals(4, buffer.getMaxPendingDeltas());
+	}
+
+	@Test
+	public void transientFailureIsRetriedOnTheNextFlush() {
+		buffer.add(cats, "count", 3);
+		client.failNext(1, ResultCode.KEY_BUSY);
+		flushExpectingFailure();
+		assertNull(client.get(null, cats));
+		assertEquals(1, buffer.getPendingDeltas());
+
+		buffer.add(cats, "count", 4);
+		buffer.flush();
+		assertEquals(7, value(cats, "count"));
+		assertEquals(0, buffer.getPendingDeltas());
+		assertEquals(1, buffer.getFlushErrors());
+		assertEquals(0, buffer.getInDoubtDeltas());
+		assertEquals(0, buffer.getRejectedDeltas());
+	}
+
+	@Test
+	public void inDoubtFailureIsNotRetried() {
+		buffer.add(cats, "count", 3);
+		buffer.add(cats, "count", 3);
+		client.failNext(1, ResultCode.TIMEOUT);
+		flushExpectingFailure();
+		assertEquals(0, buffer.getPendingDeltas());
+		assertEquals(2, buffer.getInDoubtDeltas());
+
+		buffer.flush();
+		assertNull(client.get(null, cats));
+	}
+
+	@Test
+	public void permanentFailureIsDroppedAndReported() {
+		buffer.add(cats, "count", 3);
+		buffer.add(dogs, "count", 4);
+		client.failNext(1, ResultCode.BIN_TYPE_ERROR);
+		flushExpectingFailure();
+		assertEquals(0, buffer.getPendingDeltas());
+		assertEquals(1, buffer.getRejectedDeltas());
+		// one key was refused, the other written
+		long written = value(cats, "count") + value(dogs, "count");
+		assertTrue(written == 3 || written == 4);
+
+		// the next flush does not fail again
+		buffer.flush();
+		assertEquals(1, buffer.getFlushErrors());
+	}
+
+	@Test
+	public void idleCountersAreRemoved() {
+		buffer.add(cats, "count", 1);
+		buffer.add(dogs, "count", 1);
+		buffer.flush();
+		assertEquals(2, buffer.getCounterCount());
+
+		buffer.add(cats, "count", 1);
+		buffer.flush();
+		assertEquals(1, buffer.getCounterCount());
+		assertEquals(1, buffer.getRemovedCounters());
+
+		buffer.flush();
+		assertEquals(0, buffer.getCounterCount());
+
+		buffer.add(dogs, "count", 1);
+		buffer.flush();
+		assertEquals(2, value(cats, "count"));
+		assertEquals(2, value(dogs, "count"));
+	}
+
+	@Test
+	public void noIncrementIsLostWhileFlushingAndRemoving() throws InterruptedException {
+		final int threads = 8;
+		final int increments = 20000;
+		final Key[] keys = new Key[64];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = new Key("test", "counters", "key-" + i);
+		}
+		List<Thread> adders = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final int offset = t;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < increments; i++) {
+					// each thread moves over the keys, so counters go idle and come back
+					buffer.add(keys[(i / 100 + offset) % keys.length], "count", 1);
+				}
+			});
+			adders.add(thread);
+			thread.start();
+		}
+		while (adders.stream().anyMatch(Thread::isAlive)) {
+			buffer.flush();
+		}
+		for (Thread thread : adders) {
+			thread.join();
+		}
+		buffer.flush();
+
+		long total = 0;
+		for (Key key : keys) {
+			total += value(key, "count");
+		}
+		assertEquals(threads * (long) increments, total);
+		assertEquals(0, buffer.getPendingDeltas());
+	}
+}
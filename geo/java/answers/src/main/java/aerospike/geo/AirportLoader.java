@@ -0,0 +1,294 @@
+package aerospike.geo;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Loads airports.csv as a pipeline: one thread streams rows from the file,
+ * a pool of transformers turns them into keys and bins, and a bounded pool
+ * of writers puts them. Bounded queues between the stages keep a fast
+ * reader from running ahead of the writers.
+ * <p>
+ * Rows are written out of order, so progress is tracked as the highest row
+ * below which every row is written. That row is saved in a checkpoint
+ * record every {@code checkpointEvery} rows and at the end, and a restarted
+ * load skips everything up to it. The checkpoint is written with the
+ * airports' write policy, so it expires with them and an expired load is
+ * loaded again.
+ */
+public class AirportLoader {
+	private static final String CHECKPOINT_SET = "loader";
+	private static final String ROW_BIN = "row";
+	private static final String COMPLETE_BIN = "complete";
+
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final String ns;
+	private final String airportSet;
+	private final String locationBin;
+	private final int transformers;
+	private final int writers;
+	private final int queueSize;
+	private final int checkpointEvery;
+	private final Key checkpointKey;
+
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+	private long elapsedNanos;
+
+	public AirportLoader(AerospikeClient client, WritePolicy writePolicy, String ns, String airportSet,
+			String locationBin, int transformers, int writers) {
+		this(client, writePolicy, ns, airportSet, locationBin, transformers, writers, 1000, 1000);
+	}
+
+	public AirportLoader(AerospikeClient client, WritePolicy writePolicy, String ns, String airportSet,
+			String locationBin, int transformers, int writers, int queueSize, int checkpointEvery) {
+		this.client = client;
+		this.writePolicy = writePolicy;
+		this.ns = ns;
+		this.airportSet = airportSet;
+		this.locationBin = locationBin;
+		this.transformers = transformers;
+		this.writers = writers;
+		this.queueSize = queueSize;
+		this.checkpointEvery = checkpointEvery;
+		this.checkpointKey = new Key(ns, CHECKPOINT_SET, airportSet);
+	}
+
+	/**
+	 * True when a previous load ran to the end of the file.
+	 */
+	public boolean isComplete() {
+		Record record = client.get(null, checkpointKey, COMPLETE_BIN);
+		return record != null && record.getLong(COMPLETE_BIN) == 1;
+	}
+
+	/**
+	 * The last row (1 based) known to be written, 0 if nothing is.
+	 */
+	public long getCheckpoint() {
+		Record record = client.get(null, checkpointKey, ROW_BIN);
+		return record == null ? 0 : record.getLong(ROW_BIN);
+	}
+
+	/**
+	 * Loads the file, resuming after the last checkpoint.
+	 *
+	 * @return the number of rows written by this call
+	 */
+	public long load(String airportPath) throws IOException, InterruptedException {
+		long resumeAfter = getCheckpoint();
+		Progress progress = new Progress(resumeAfter);
+		BlockingQueue<Row> rows = new ArrayBlockingQueue<Row>(queueSize);
+		BlockingQueue<Airport> airports = new ArrayBlockingQueue<Airport>(queueSize);
+		ExecutorService transformPool = Executors.newFixedThreadPool(transformers);
+		ExecutorService writePool = Executors.newFixedThreadPool(writers);
+		written.set(0);
+		failure.set(null);
+		long start = System.nanoTime();
+		try {
+			Future<?>[] transforms = new Future<?>[transformers];
+			for (int i = 0; i < transformers; i++) {
+				transforms[i] = transformPool.submit(() -> transform(rows, airports));
+			}
+			Future<?>[] writes = new Future<?>[writers];
+			for (int i = 0; i < writers; i++) {
+				writes[i] = writePool.submit(() -> write(airports, progress));
+			}
+
+			// stage 1, stream the file on this thread
+			try (Reader in = new FileReader(airportPath)) {
+				long rowNumber = 0;
+				for (CSVRecord record : CSVFormat.DEFAULT.parse(in)) {
+					rowNumber++;
+					if (rowNumber > resumeAfter) {
+						rows.put(new Row(rowNumber, record));
+					}
+				}
+			} finally {
+				for (int i = 0; i < transformers; i++) {
+					rows.put(Row.END);
+				}
+			}
+			await(transforms);
+			for (int i = 0; i < writers; i++) {
+				airports.put(Airport.END);
+			}
+			await(writes);
+			if (failure.get() != null) {
+				// keep what was written, the next load resumes from here
+				saveCheckpoint(progress.watermark(), false);
+				throw failure.get();
+			}
+			saveCheckpoint(progress.watermark(), true);
+		} finally {
+			transformPool.shutdownNow();
+			writePool.shutdownNow();
+			elapsedNanos = System.nanoTime() - start;
+		}
+		return written.get();
+	}
+
+	/**
+	 * Stage 2, turn rows into keys and bins.
+	 */
+	private Void transform(BlockingQueue<Row> rows, BlockingQueue<Airport> airports) throws InterruptedException {
+		Row row;
+		while ((row = rows.take()) != Row.END) {
+			if (failure.get() != null) {
+				continue; // drain, so the reader does not block
+			}
+			try {
+				airports.put(toAirport(row));
+			} catch (RuntimeException e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+		return null;
+	}
+
+	private Airport toAirport(Row row) {
+		CSVRecord record = row.record;
+		String IATA = record.get(4);
+		String ICAO = record.get(5);
+		double lat = Double.parseDouble(record.get(6));
+		double lon = Double.parseDouble(record.get(7));
+		return new Airport(row.number, new Key(ns, airportSet, IATA+":"+ICAO), new Bin[] {
+				new Bin("id", Long.parseLong(record.get(0))),
+				new Bin("name", record.get(1)),
+				new Bin("city", record.get(2)),
+				new Bin("country", record.get(3)),
+				new Bin("IATA", IATA),
+				new Bin("ICAO", ICAO),
+				new Bin(locationBin, GeoJsonEncoder.local().pointValue(lon, lat)),
+				new Bin("elevation", Long.parseLong(record.get(8))),
+				new Bin("region", record.get(11))
+		});
+	}
+
+	/**
+	 * Stage 3, put the airports and advance the checkpoint.
+	 */
+	private Void write(BlockingQueue<Airport> airports, Progress progress) throws InterruptedException {
+		Airport airport;
+		while ((airport = airports.take()) != Airport.END) {
+			if (failure.get() != null) {
+				continue; // drain, so the transformers do not block
+			}
+			try {
+				client.put(writePolicy, airport.key, airport.bins);
+				written.incrementAndGet();
+				long checkpoint = progress.commit(airport.row);
+				if (checkpoint > 0) {
+					saveCheckpoint(checkpoint, false);
+				}
+			} catch (RuntimeException e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+		return null;
+	}
+
+	private void saveCheckpoint(long row, boolean complete) {
+		client.put(writePolicy, checkpointKey, new Bin(ROW_BIN, row), new Bin(COMPLETE_BIN, complete ? 1 : 0));
+	}
+
+	private static void await(Future<?>[] futures) throws InterruptedException {
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	public long getRowsWritten() {
+		return written.get();
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	public long getRowsPerSecond() {
+		return elapsedNanos == 0 ? 0 : written.get() * 1000000000L / elapsedNanos;
+	}
+
+	/**
+	 * Tracks which rows are written and the contiguous watermark below them.
+	 */
+	private final class Progress {
+		private final BitSet done = new BitSet();
+		private final long base;
+		private long watermark;
+		private long lastSaved;
+
+		Progress(long base) {
+			this.base = base;
+			this.watermark = base;
+			this.lastSaved = base;
+		}
+
+		/**
+		 * @return a watermark to save, or 0 when no checkpoint is due
+		 */
+		synchronized long commit(long row) {
+			done.set((int) (row - base - 1));
+			int next = done.nextClearBit((int) (watermark - base));
+			watermark = base + next;
+			if (watermark - lastSaved >= checkpointEvery) {
+				lastSaved = watermark;
+				return watermark;
+			}
+			return 0;
+		}
+
+		synchronized long watermark() {
+			return watermark;
+		}
+	}
+
+	private static final class Row {
+		static final Row END = new Row(0, null);
+		final long number;
+		final CSVRecord record;
+
+		Row(long number, CSVRecord record) {
+			this.number = number;
+			this.record = record;
+		}
+	}
+
+	private static final class Airport {
+		static final Airport END = new Airport(0, null, null);
+		final long row;
+		final Key key;
+		final Bin[] bins;
+
+		Airport(long row, Key key, Bin[] bins) {
+			this.row = row;
+			this.key = key;
+			this.bins = bins;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+package aerospike.geo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.MapOperation;
+import com.aerospike.client.cdt.MapOrder;
+import com.aerospike.client.cdt.MapPolicy;
+import com.aerospike.client.cdt.MapWriteMode;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.RecordExistsAction;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Reserves blocks of city ids per name.
+ * <p>
+ * Each name has a record in the name index set holding
+ * {@code index-counter}, the last id handed out, and {@code index-bin}, a
+ * map of id to region record digest. A block of ids is reserved and
+ * entered in the map by a single {@code operate}, so the counter and the
+ * map never disagree:
+ * <ul>
+ * <li>When the name is new, ids 1..n are created with
+ * {@link RecordExistsAction#CREATE_ONLY}: one round trip.</li>
+ * <li>Otherwise the counter is read and the next block is written with
+ * {@link GenerationPolicy#EXPECT_GEN_EQUAL}, retrying if another loader
+ * got there first: two round trips without contention.</li>
+ * </ul>
+ */
+public class CityIdAllocator {
+	private static final String COUNTER_BIN = "index-counter";
+	private static final String INDEX_BIN = "index-bin";
+	private static final int MAX_ATTEMPTS = 10;
+
+	private final AerospikeClient client;
+	private final String ns;
+	private final String nameIndexSet;
+	private final String regionSet;
+	private final WritePolicy createPolicy;
+	private final WritePolicy updatePolicy;
+	private final MapPolicy mapPolicy = new MapPolicy(MapOrder.KEY_ORDERED, MapWriteMode.UPDATE);
+
+	private final AtomicLong roundTrips = new AtomicLong();
+	private final AtomicLong conflicts = new AtomicLong();
+
+	public CityIdAllocator(AerospikeClient client, WritePolicy writePolicy, String ns, String nameIndexSet,
+			String regionSet) {
+		this.client = client;
+		this.ns = ns;
+		this.nameIndexSet = nameIndexSet;
+		this.regionSet = regionSet;
+
+		createPolicy = new WritePolicy();
+		createPolicy.sendKey = writePolicy.sendKey;
+		createPolicy.expiration = writePolicy.expiration;
+		createPolicy.recordExistsAction = RecordExistsAction.CREATE_ONLY;
+
+		updatePolicy = new WritePolicy();
+		updatePolicy.sendKey = writePolicy.sendKey;
+		updatePolicy.expiration = writePolicy.expiration;
+		updatePolicy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+	}
+
+	/**
+	 * Reserves {@code count} ids for {@code name} and enters them in the
+	 * name index.
+	 *
+	 * @return the region keys for the reserved ids, {@code name:id}
+	 */
+	public List<Key> allocate(String name, int count) {
+		Key indexKey = new Key(ns, nameIndexSet, name);
+		try {
+			roundTrips.incrementAndGet();
+			return reserve(createPolicy, indexKey, name, 0, count);
+		} catch (AerospikeException e) {
+			if (e.getResultCode() != ResultCode.KEY_EXISTS_ERROR) {
+				throw e;
+			}
+		}
+		for (int attempt = 1; ; attempt++) {
+			roundTrips.incrementAndGet();
+			Record record = client.get(null, indexKey, COUNTER_BIN);
+			long last = record == null ? 0 : record.getLong(COUNTER_BIN);
+			WritePolicy policy = copy(updatePolicy);
+			policy.generation = record == null ? 0 : record.generation;
+			try {
+				roundTrips.incrementAndGet();
+				return reserve(policy, indexKey, name, last, count);
+			} catch (AerospikeException e) {
+				if (e.getResultCode() != ResultCode.GENERATION_ERROR || attempt == MAX_ATTEMPTS) {
+					throw e;
+				}
+				conflicts.incrementAndGet();
+			}
+		}
+	}
+
+	private List<Key> reserve(WritePolicy policy, Key indexKey, String name, long last, int count) {
+		List<Key> keys = new ArrayList<Key>(count);
+		Map<Value, Value> entries = new HashMap<Value, Value>();
+		for (long id = last + 1; id <= last + count; id++) {
+			String cityId = name + ":" + id;
+			Key recordKey = new Key(ns, regionSet, cityId);
+			keys.add(recordKey);
+			entries.put(Value.get(cityId), Value.get(recordKey.digest));
+		}
+		client.operate(policy, indexKey,
+				Operation.add(new Bin(COUNTER_BIN, count)),
+				MapOperation.putItems(mapPolicy, INDEX_BIN, entries));
+		return keys;
+	}
+
+	private static WritePolicy copy(WritePolicy template) {
+		WritePolicy policy = new WritePolicy();
+		policy.sendKey = template.sendKey;
+		policy.expiration = template.expiration;
+		policy.generationPolicy = template.generationPolicy;
+		return policy;
+	}
+
+	/**
+	 * Round trips to the name index, including retries.
+	 */
+	public long getRoundTrips() {
+		return roundTrips.get();
+	}
+
+	/**
+	 * Reservations that lost a generation race and were retried.
+	 */
+	public long getConflicts() {
+		return conflicts.get();
+	}
+}
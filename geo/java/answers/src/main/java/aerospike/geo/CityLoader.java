@@ -0,0 +1,112 @@
+package aerospike.geo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.common.Workers;
+
+/**
+ * Loads the cities file, one name at a time in parallel.
+ * <p>
+ * Cities are grouped by name, and each group reserves its ids and enters
+ * them in the name index with one {@link CityIdAllocator} call, then puts
+ * its region records. A city used to cost three round trips (bump the
+ * counter, put the region, add to the index map); now it costs its put
+ * plus a share of one or two index round trips per name.
+ */
+public class CityLoader {
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final String regionBin;
+	private final CityIdAllocator allocator;
+	private final int concurrency;
+
+	private final AtomicLong cities = new AtomicLong();
+	private final AtomicLong puts = new AtomicLong();
+	private long bytesRead;
+	private long elapsedNanos;
+
+	public CityLoader(AerospikeClient client, WritePolicy writePolicy, String ns, String nameIndexSet,
+			String regionSet, String regionBin, int concurrency) {
+		this.client = client;
+		this.writePolicy = writePolicy;
+		this.regionBin = regionBin;
+		this.allocator = new CityIdAllocator(client, writePolicy, ns, nameIndexSet, regionSet);
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * @return the number of cities written
+	 */
+	public long load(String cityPath) throws IOException {
+		long start = System.nanoTime();
+		Map<String, List<GeoJsonScanner.Feature>> byName = new LinkedHashMap<String, List<GeoJsonScanner.Feature>>();
+		byte[] data = Files.readAllBytes(Paths.get(cityPath));
+		bytesRead = data.length;
+		GeoJsonScanner.scan(data, city -> {
+			byName.computeIfAbsent(city.getName(), name -> new ArrayList<GeoJsonScanner.Feature>()).add(city);
+		});
+		try (Workers workers = new Workers(concurrency)) {
+			for (Map.Entry<String, List<GeoJsonScanner.Feature>> group : byName.entrySet()) {
+				workers.submit(() -> loadGroup(group.getKey(), group.getValue()));
+			}
+		} finally {
+			elapsedNanos = System.nanoTime() - start;
+		}
+		return cities.get();
+	}
+
+	private void loadGroup(String name, List<GeoJsonScanner.Feature> group) {
+		List<Key> keys = allocator.allocate(name, group.size());
+		for (int i = 0; i < keys.size(); i++) {
+			Key recordKey = keys.get(i);
+			client.put(writePolicy, recordKey,
+					new Bin("id", recordKey.userKey),
+					new Bin("name", name),
+					new Bin("type", "city"),
+					new Bin(regionBin, Value.getAsGeoJSON(group.get(i).getGeometry()))
+					);
+			puts.incrementAndGet();
+			cities.incrementAndGet();
+		}
+	}
+
+	public long getCitiesWritten() {
+		return cities.get();
+	}
+
+	/**
+	 * Round trips for the name index and the region records together.
+	 */
+	public long getRoundTrips() {
+		return allocator.getRoundTrips() + puts.get();
+	}
+
+	public double getRoundTripsPerCity() {
+		long count = cities.get();
+		return count == 0 ? 0 : (double) getRoundTrips() / count;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	/**
+	 * Input consumed per second over the last load, in MB.
+	 */
+	public double getMegabytesPerSecond() {
+		return elapsedNanos == 0 ? 0 : bytesRead / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+	}
+}
@@ -1,42 +1,24 @@
 package aerospike.geo;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FilenameFilter;
 import java.io.IOException;
-import java.io.Reader;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVRecord;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import java.io.UncheckedIOException;
 
 import com.aerospike.client.AerospikeClient;
 import com.aerospike.client.AerospikeException;
-import com.aerospike.client.Bin;
-import com.aerospike.client.Info;
 import com.aerospike.client.Key;
-import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
-import com.aerospike.client.Value;
-import com.aerospike.client.cdt.MapOperation;
-import com.aerospike.client.cdt.MapOrder;
-import com.aerospike.client.cdt.MapPolicy;
-import com.aerospike.client.cdt.MapWriteMode;
-import com.aerospike.client.cluster.Node;
-import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.WritePolicy;
 import com.aerospike.client.query.Filter;
 import com.aerospike.client.query.IndexType;
-import com.aerospike.client.query.RecordSet;
 import com.aerospike.client.query.Statement;
-import com.aerospike.client.task.IndexTask;
+
+import aerospike.common.CachingClient;
+import aerospike.common.ClientRegistry;
+import aerospike.common.QueryStream;
+import aerospike.common.RecordRenderer;
+import aerospike.common.Workers;
+import aerospike.standin.StandInClient;
 
 
 
@@ -45,6 +27,7 @@ import com.aerospike.client.task.IndexTask;
  */
 public class GeoAnswers {
 	private AerospikeClient client;
+	private final RecordRenderer printer = RecordRenderer.console(RecordRenderer.Format.TEXT);
 	private String ns = "test"; // Aerospike namespace
 	private String airportSet = "airport"; // Aerospike airport set name
 	private String regionSet = "region"; // Aerospike region set name
@@ -52,26 +35,32 @@ public class GeoAnswers {
 	private String locationBin = "geo-location"; // Aerospike Bin name for geo location
 	private String regionBin = "geo-region"; // Aerospike Bin name for geo region
 	private WritePolicy writePolicy = null;
-	private JSONParser parser = null;
 
 	public GeoAnswers()
 			throws AerospikeException {
-		// Establish a connection to Aerospike cluster
-		ClientPolicy cPolicy = new ClientPolicy();
-		cPolicy.timeout = 500;
-		this.client = new AerospikeClient(cPolicy, "10.211.55.101", 3000);
+		// Share the process-wide connection to the cluster in aerospike.properties
+		this.client = ClientRegistry.acquire();
 
 		writePolicy = new WritePolicy(); // Create a WritePolicy
 		writePolicy.sendKey = true; // Save the Key on each write
 		writePolicy.expiration = 600; // expire the records in 10 minutes
+	}
+
+	public GeoAnswers(AerospikeClient client) {
+		// Use an existing client, e.g. the in-process stand-in
+		this.client = client;
 
-		parser = new JSONParser();
+		writePolicy = new WritePolicy(); // Create a WritePolicy
+		writePolicy.sendKey = true; // Save the Key on each write
+		writePolicy.expiration = 600; // expire the records in 10 minutes
 	}
 
 	public static void main(String[] args) throws AerospikeException {
 		try {
 
-			GeoAnswers as = new GeoAnswers();
+			GeoAnswers as = args.length > 0 && args[0].equals("standin")
+					? new GeoAnswers(new StandInClient())
+					: new GeoAnswers();
 
 			as.work();
 
@@ -85,9 +74,11 @@ public class GeoAnswers {
 		System.out.println("***** Geo in Aerospike *****");
 
 		if (client.isConnected()){
-			// create an index on geoBin 
-			createIndex(airportSet, "geoLocation", locationBin, IndexType.GEO2DSPHERE);
-			createIndex(regionSet, "geoRegion", regionBin, IndexType.GEO2DSPHERE);
+			// create an index on geoBin, both at once
+			ClientRegistry.catalog(client)
+					.declare(ns, airportSet, "geoLocation", locationBin, IndexType.GEO2DSPHERE)
+					.declare(ns, regionSet, "geoRegion", regionBin, IndexType.GEO2DSPHERE)
+					.createMissing();
 
 			// load geo data
 			loadData();
@@ -112,7 +103,7 @@ public class GeoAnswers {
 			stmt.setSetName(regionSet);
 			stmt.setBinNames("name", "type");
 			
-			String point = String.format("{ \"type\": \"Point\", \"coordinates\": [%f, %f] }", 
+			String point = createPoint(
 					151.20732d, // Longitude
 					-33.86785d // Latitude
 					);
@@ -121,194 +112,95 @@ public class GeoAnswers {
 			System.out.println("Regions:");
 			queryStatement(stmt);
 
+			// The same lookup against a local copy of the regions
+			try (RegionIndex regionIndex = new RegionIndex(client, ns, regionSet, regionBin)) {
+				regionIndex.refresh();
+				System.out.println(String.format("Region index: %d regions in %d ms",
+						regionIndex.getRegionCount(), regionIndex.getLastRefreshMillis()));
+				for (RegionIndex.Region region : regionIndex.lookup(151.20732d, -33.86785d)) {
+					System.out.println(region);
+				}
+				System.out.println(String.format("Region index: hit rate %.2f, %d us per lookup, %d refresh failures",
+						regionIndex.getHitRate(), regionIndex.getAverageLookupMicros(), regionIndex.getRefreshFailures()));
+			}
+
+			// Look up the airports of some routes by key, each airport read from the cluster once
+			CachingClient airports = new CachingClient(client, 16 * 1024 * 1024, 300);
+			String[][] routes = {
+					{ "SYD:YSSY", "MEL:YMML" }, { "SYD:YSSY", "BNE:YBBN" }, { "SYD:YSSY", "LAX:KLAX" },
+					{ "LHR:EGLL", "SIN:WSSS" }, { "SIN:WSSS", "SYD:YSSY" } };
+			System.out.println("Routes:");
+			for (String[] route : routes) {
+				Record from = airports.get(null, new Key(ns, airportSet, route[0]));
+				Record to = airports.get(null, new Key(ns, airportSet, route[1]));
+				System.out.println(String.format("\t%s - %s",
+						from == null ? route[0] : from.getString("name"),
+						to == null ? route[1] : to.getString("name")));
+			}
+			System.out.println("Airport cache: " + airports.summary());
 
 		}
 
-		client.close();
+		ClientRegistry.release(client);
 	}
 
 	private void queryStatement(Statement stmt){
-		List<Record> records = new ArrayList<Record>();
-
-		long start = System.currentTimeMillis();
-		long stop = 0;
-		int count = 0;
-		RecordSet recordSet = client.query(null, stmt);
-		try {
-			while (recordSet != null && recordSet.next()) {
-				records.add(recordSet.getRecord());
-				count++;
-			}
-		} finally {
-			stop = System.currentTimeMillis();
-			recordSet.close();
-		}
-		for (Record record : records){
-			printRecord(record);
-		}
-		System.out.println(String.format("Found %d records in %d ms", count, (stop-start)));
-
+		// print each record as it arrives
+		QueryStream query = new QueryStream(client, null, stmt);
+		query.forEach((key, record) -> printRecord(record));
+		System.out.println("Found " + query.summary());
 	}
 
-	private void loadData() throws IOException, ParseException{
+	private void loadData() throws IOException, InterruptedException{
 		int count = 0;
-		//only load airports if they do not exist
-		if (!client.exists(null, new Key(ns, airportSet, "SYD:YSSY"))) {
-
+		//only load airports if a previous load did not finish
+		AirportLoader loader = new AirportLoader(client, writePolicy, ns, airportSet, locationBin,
+				Runtime.getRuntime().availableProcessors(), Math.max(1, Integer.getInteger(Workers.CONCURRENCY_PROPERTY, 16)));
+		if (!loader.isComplete()) {
 			String airportPath = "../../data/airports.csv";
-			Reader in = new FileReader(airportPath);
-			Iterable<CSVRecord> records = CSVFormat.DEFAULT.parse(in);
-
-			for (CSVRecord record : records) {
-
-				Long id = Long.parseLong(record.get(0));
-				String name = record.get(1);
-				String city = record.get(2);
-				String country = record.get(3);
-				String IATA = record.get(4);
-				String ICAO = record.get(5);
-				Double lat = Double.parseDouble(record.get(6));
-				Double lon = Double.parseDouble(record.get(7));
-				Long elevation = Long.parseLong(record.get(8));
-				String region = record.get(11);
-
-				Key key = new Key(ns, airportSet, IATA+":"+ICAO);
-
-				client.put(writePolicy, key,
-						new Bin("id", id),
-						new Bin("name", name),
-						new Bin("city", city),
-						new Bin("country", country),
-						new Bin("IATA", IATA),
-						new Bin("ICAO", ICAO),
-						new Bin(locationBin, Value.getAsGeoJSON(createPoint(lon, lat))),
-						new Bin("elevation", elevation),
-						new Bin("region", region)
-						);
-				count++;
-			}
-			System.out.println("Loaded: " + count + " airports");
+			long rows = loader.load(airportPath);
+			System.out.println(String.format("Loaded: %d airports in %d ms (%d rows/s)",
+					rows, loader.getElapsedMillis(), loader.getRowsPerSecond()));
 		}
 
 		//only load countries if they do not exist
 		if (!client.exists(null, new Key(ns, regionSet, "ZWE"))) {
 
 			String regionPath = "../../data/countries";
-			File countriesDirectory = new File(regionPath);
-
-			String[] countryFileNames = countriesDirectory.list(new FilenameFilter() {
-
-				@Override
-				public boolean accept(File dir, String name) {
-					return name.endsWith(".json");
-				}
-			});
-
-			count = 0;
-
-			for (String countryFileName : countryFileNames){
-
-				JSONObject jsonCountry = (JSONObject) parser.parse(new FileReader(regionPath +"/"+ countryFileName));
-				JSONArray features = (JSONArray)jsonCountry.get("features");
-				Iterator<?> it = features.iterator();
-				if (it.hasNext()) {  
-					JSONObject feature = (JSONObject) it.next();  
-					JSONObject properties = (JSONObject) feature.get("properties");
-					String id = (String) feature.get("id");
-					String type = "country";
-					String name = (String) properties.get("name");
-					String region = feature.get("geometry").toString();
-
-					Key key = new Key(ns, regionSet, id);
-
-					client.put(writePolicy, key,
-							new Bin("id", id),
-							new Bin("name", name),
-							new Bin("type", type),
-							new Bin(regionBin, Value.getAsGeoJSON(region))
-							);
-					count++;
-				}  
-			}
-			System.out.println("Loaded: " + count + " countries");
+			RegionLoader regionLoader = new RegionLoader(client, writePolicy, ns, regionSet, regionBin,
+					Math.max(1, Integer.getInteger(Workers.CONCURRENCY_PROPERTY, 16)));
+			count = (int) regionLoader.load(regionPath, "country");
+			System.out.println(String.format("Loaded: %d countries in %d ms (%.1f MB/s)",
+					count, regionLoader.getElapsedMillis(), regionLoader.getMegabytesPerSecond()));
 		}
 
 		//only load cities if they do not exist
-		if (!client.exists(null, new Key(ns, regionSet, "TORSHAVN:1"))) {
-
-			String cityPath = "../../data/cities.geo.json";
-
-			count = 0;
-
-			JSONObject jsonCity = (JSONObject) parser.parse(new FileReader(cityPath));
-			JSONArray cityArray = (JSONArray)jsonCity.get("features");
-			for (Object obj : cityArray){
-				JSONObject city = (JSONObject) obj;
-				JSONObject properties = (JSONObject) city.get("properties");
-				String name = (String) properties.get("NAME");
-				String region = city.get("geometry").toString();
-
-				Key indexKey = new Key(ns, nameIndexSet, name);
-
-				Record record = client.operate(writePolicy, indexKey, 
-						Operation.add(new Bin("index-counter", 1)), 
-						Operation.get("index-counter"));
-
-				String id = name + ":" + record.getInt("index-counter");
-
-				Key recordKey = new Key(ns, regionSet, id);
-
-				client.put(writePolicy, recordKey,
-						new Bin("id", id),
-						new Bin("name", name),
-						new Bin("type", "city"),
-						new Bin(regionBin, Value.getAsGeoJSON(region))
-						);
-
-				client.operate(writePolicy, indexKey, MapOperation.put(
-						new MapPolicy(MapOrder.KEY_ORDERED, MapWriteMode.UPDATE), 
-						"index-bin", 
-						Value.get(id), 
-						Value.get(recordKey.digest)));
-				count++;
-			}
-			System.out.println("Loaded: " + count + " cities");
+		String cityPath = "../../data/cities.geo.json";
+		if (!new File(cityPath).exists()) {
+			System.out.println("No city data in " + cityPath);
+		} else if (!client.exists(null, new Key(ns, regionSet, "TORSHAVN:1"))) {
+
+			CityLoader cityLoader = new CityLoader(client, writePolicy, ns, nameIndexSet, regionSet, regionBin,
+					Math.max(1, Integer.getInteger(Workers.CONCURRENCY_PROPERTY, 16)));
+			count = (int) cityLoader.load(cityPath);
+			System.out.println(String.format("Loaded: %d cities in %d ms (%.1f MB/s, %.2f round trips per city)",
+					count, cityLoader.getElapsedMillis(), cityLoader.getMegabytesPerSecond(),
+					cityLoader.getRoundTripsPerCity()));
 		}
 	}
 
 
-	private String createPoint(double lon, double lat) {
-		return String.format("{ \"type\": \"Point\", \"coordinates\": [%f, %f] }", lon, lat);
-	}
-
-	private void createIndex(String set, String indexName, String binName, IndexType indexType){
-		// check to see if the index exists
-		Node node = client.getNodes()[0];
-		String result = Info.request(node, "sindex/"+ns);
-		boolean indexExists = result.contains(indexName) && 
-				result.contains(set) &&
-				result.contains(binName);
-
-		// create index
-		if (!indexExists){
-			IndexTask task = client.createIndex(null, ns, set, indexName, binName, indexType);
-			task.waitTillComplete();
-		}
+	static String createPoint(double lon, double lat) {
+		return GeoJsonEncoder.local().point(lon, lat);
 	}
 
 	private void printRecord(Record record)
 	{
-		if (record == null)
-		{
-			System.out.println("\trecord == null");
-		}
-		else
-		{
-			for (Map.Entry<String, Object> entry : record.bins.entrySet())
-			{
-				System.out.println(String.format("\t%s = %s", entry.getKey(), entry.getValue().toString()));
-			}
-			System.out.println();
+		try {
+			printer.renderBins(record);
+			printer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 }
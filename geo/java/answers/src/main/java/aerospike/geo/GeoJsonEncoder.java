@@ -0,0 +1,119 @@
+package aerospike.geo;
+
+import java.util.Locale;
+
+import com.aerospike.client.Value;
+
+/**
+ * Writes GeoJSON points and polygons into a reusable buffer.
+ * <p>
+ * Coordinates are written with six decimals, the same text
+ * {@code String.format(Locale.ROOT, "%f")} produces, but without the format
+ * parser, the boxing of the arguments or the default locale (which can turn
+ * the decimal point into a comma). {@code %f} rounds the decimal digits of
+ * the double half up, not the binary value, so a coordinate whose seventh
+ * decimal is close to a 5, such as 33.5297315, is handed to {@code %f}
+ * itself. Otherwise the only allocation per shape is the resulting String,
+ * which {@link Value#getAsGeoJSON(String)} needs.
+ * <p>
+ * An encoder is not thread safe; use {@link #local()} to get one per thread.
+ */
+public final class GeoJsonEncoder {
+	private static final ThreadLocal<GeoJsonEncoder> LOCAL = ThreadLocal.withInitial(GeoJsonEncoder::new);
+
+	private static final long SCALE = 1000000L;
+	// below this the scaled value and its rounding error stay well under 1e-3
+	private static final double MAX_FAST = 1e6;
+	// how close to a half the scaled value may be and still round the same
+	// way as the decimal digits %f rounds
+	private static final double TIE_MARGIN = 1e-3;
+
+	private final StringBuilder buffer = new StringBuilder(128);
+
+	/**
+	 * The encoder for the calling thread.
+	 */
+	public static GeoJsonEncoder local() {
+		return LOCAL.get();
+	}
+
+	/**
+	 * {@code { "type": "Point", "coordinates": [lon, lat] }}
+	 */
+	public String point(double lon, double lat) {
+		buffer.setLength(0);
+		buffer.append("{ \"type\": \"Point\", \"coordinates\": [");
+		appendCoordinate(buffer, lon);
+		buffer.append(", ");
+		appendCoordinate(buffer, lat);
+		buffer.append("] }");
+		return buffer.toString();
+	}
+
+	public Value pointValue(double lon, double lat) {
+		return Value.getAsGeoJSON(point(lon, lat));
+	}
+
+	/**
+	 * A polygon with a single ring, from alternating longitudes and
+	 * latitudes. The ring is closed if the last vertex is not the first.
+	 */
+	public String polygon(double[] lonLats) {
+		if (lonLats.length < 6 || lonLats.length % 2 != 0) {
+			throw new IllegalArgumentException("A polygon needs at least 3 lon, lat pairs");
+		}
+		buffer.setLength(0);
+		buffer.append("{ \"type\": \"Polygon\", \"coordinates\": [[");
+		for (int i = 0; i < lonLats.length; i += 2) {
+			appendPair(lonLats[i], lonLats[i + 1]);
+		}
+		int last = lonLats.length - 2;
+		if (lonLats[last] != lonLats[0] || lonLats[last + 1] != lonLats[1]) {
+			appendPair(lonLats[0], lonLats[1]);
+		}
+		buffer.setLength(buffer.length() - 2);
+		buffer.append("]] }");
+		return buffer.toString();
+	}
+
+	public Value polygonValue(double[] lonLats) {
+		return Value.getAsGeoJSON(polygon(lonLats));
+	}
+
+	private void appendPair(double lon, double lat) {
+		buffer.append('[');
+		appendCoordinate(buffer, lon);
+		buffer.append(", ");
+		appendCoordinate(buffer, lat);
+		buffer.append("], ");
+	}
+
+	/**
+	 * Appends {@code value} with six decimals, the same text as {@code %f}.
+	 * Rounding the scaled double gives the same result as rounding its
+	 * decimal digits unless the scaled value is within the rounding error
+	 * of a half; those values, and large ones, go through {@code %f}.
+	 */
+	static void appendCoordinate(StringBuilder sb, double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new IllegalArgumentException("Not a coordinate: " + value);
+		}
+		double abs = Math.abs(value);
+		double product = abs * SCALE;
+		if (abs >= MAX_FAST || Math.abs(product - Math.floor(product) - 0.5) < TIE_MARGIN) {
+			sb.append(String.format(Locale.ROOT, "%f", value));
+			return;
+		}
+		long scaled = Math.round(product);
+		if (Double.compare(value, 0.0) < 0) {
+			sb.append('-');
+		}
+		sb.append(scaled / SCALE);
+		sb.append('.');
+		long fraction = scaled % SCALE;
+		for (long digit = SCALE / 10; digit > 1 && fraction < digit; digit /= 10) {
+			sb.append('0');
+		}
+		sb.append(fraction);
+	}
+}
@@ -0,0 +1,325 @@
+package aerospike.geo;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Pulls the features out of a GeoJSON FeatureCollection in a single pass
+ * over the raw bytes, without building a document tree.
+ * <p>
+ * For every feature the scanner reports the {@code id}, the name from
+ * {@code properties.name} (or {@code properties.NAME}, as in the cities
+ * file) and the geometry as it appears in the file, with the whitespace
+ * outside strings removed. Everything else is skipped over. The geometry
+ * is handed to the server as is, so it is never parsed into coordinates
+ * and serialized again.
+ */
+public final class GeoJsonScanner {
+
+	/**
+	 * One feature of a collection.
+	 */
+	public static final class Feature {
+		private final String id;
+		private final String name;
+		private final String geometry;
+
+		Feature(String id, String name, String geometry) {
+			this.id = id;
+			this.name = name;
+			this.geometry = geometry;
+		}
+
+		/**
+		 * The feature id, null if the feature has none.
+		 */
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * The geometry object, as GeoJSON text.
+		 */
+		public String getGeometry() {
+			return geometry;
+		}
+	}
+
+	public interface FeatureHandler {
+		void feature(Feature feature);
+	}
+
+	private final byte[] data;
+	private int pos;
+
+	private GeoJsonScanner(byte[] data) {
+		this.data = data;
+		// skip a UTF-8 byte order mark
+		if (data.length >= 3 && data[0] == (byte) 0xEF && data[1] == (byte) 0xBB && data[2] == (byte) 0xBF) {
+			pos = 3;
+		}
+	}
+
+	/**
+	 * Calls {@code handler} for each feature in the collection, in order.
+	 *
+	 * @return the number of features
+	 */
+	public static int scan(byte[] data, FeatureHandler handler) {
+		try {
+			return new GeoJsonScanner(data).collection(handler);
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid GeoJSON: unexpected end of input");
+		}
+	}
+
+	private int collection(FeatureHandler handler) {
+		int count = 0;
+		expect('{');
+		if (peek() == '}') {
+			pos++;
+			return count;
+		}
+		do {
+			String key = string();
+			expect(':');
+			if (key.equals("features")) {
+				expect('[');
+				if (peek() == ']') {
+					pos++;
+				} else {
+					do {
+						handler.feature(feature());
+						count++;
+					} while (comma(']'));
+				}
+			} else {
+				skipValue();
+			}
+		} while (comma('}'));
+		return count;
+	}
+
+	private Feature feature() {
+		String id = null;
+		String name = null;
+		String geometry = null;
+		expect('{');
+		if (peek() == '}') {
+			pos++;
+			return new Feature(id, name, geometry);
+		}
+		do {
+			String key = string();
+			expect(':');
+			switch (key) {
+			case "id":
+				id = scalar();
+				break;
+			case "properties":
+				name = name();
+				break;
+			case "geometry":
+				geometry = compact();
+				break;
+			default:
+				skipValue();
+			}
+		} while (comma('}'));
+		return new Feature(id, name, geometry);
+	}
+
+	private String name() {
+		String name = null;
+		if (peek() != '{') {
+			skipValue();
+			return name;
+		}
+		pos++;
+		if (peek() == '}') {
+			pos++;
+			return name;
+		}
+		do {
+			String key = string();
+			expect(':');
+			if (name == null && (key.equals("name") || key.equals("NAME"))) {
+				name = scalar();
+			} else {
+				skipValue();
+			}
+		} while (comma('}'));
+		return name;
+	}
+
+	/**
+	 * A string, number or literal, as text; null for JSON null.
+	 */
+	private String scalar() {
+		if (peek() == '"') {
+			return string();
+		}
+		int start = pos;
+		skipValue();
+		String text = new String(data, start, pos - start, StandardCharsets.UTF_8);
+		return text.equals("null") ? null : text;
+	}
+
+	/**
+	 * Copies the next value, dropping whitespace outside strings.
+	 */
+	private String compact() {
+		skipWhitespace();
+		int start = pos;
+		skipValue();
+		int end = pos;
+		byte[] out = new byte[end - start];
+		int length = 0;
+		boolean inString = false;
+		for (int i = start; i < end; i++) {
+			byte b = data[i];
+			if (inString) {
+				if (b == '\\') {
+					out[length++] = b;
+					b = data[++i];
+				} else if (b == '"') {
+					inString = false;
+				}
+			} else if (b == '"') {
+				inString = true;
+			} else if (isWhitespace(b)) {
+				continue;
+			}
+			out[length++] = b;
+		}
+		return new String(out, 0, length, StandardCharsets.UTF_8);
+	}
+
+	private void skipValue() {
+		skipWhitespace();
+		byte b = data[pos];
+		if (b == '"') {
+			skipString();
+		} else if (b == '{' || b == '[') {
+			int depth = 0;
+			do {
+				b = data[pos];
+				if (b == '"') {
+					skipString();
+					continue;
+				}
+				if (b == '{' || b == '[') {
+					depth++;
+				} else if (b == '}' || b == ']') {
+					depth--;
+				}
+				pos++;
+			} while (depth > 0);
+		} else {
+			// number, true, false or null
+			while (pos < data.length && !isWhitespace(data[pos])
+					&& data[pos] != ',' && data[pos] != '}' && data[pos] != ']') {
+				pos++;
+			}
+		}
+	}
+
+	private void skipString() {
+		pos++;
+		while (data[pos] != '"') {
+			pos += data[pos] == '\\' ? 2 : 1;
+		}
+		pos++;
+	}
+
+	private String string() {
+		expect('"');
+		int start = pos;
+		boolean escaped = false;
+		while (data[pos] != '"') {
+			if (data[pos] == '\\') {
+				escaped = true;
+				pos++;
+			}
+			pos++;
+		}
+		int end = pos++;
+		if (!escaped) {
+			return new String(data, start, end - start, StandardCharsets.UTF_8);
+		}
+		return unescape(new String(data, start, end - start, StandardCharsets.UTF_8));
+	}
+
+	private static String unescape(String s) {
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+			c = s.charAt(++i);
+			switch (c) {
+			case 'b': sb.append('\b'); break;
+			case 'f': sb.append('\f'); break;
+			case 'n': sb.append('\n'); break;
+			case 'r': sb.append('\r'); break;
+			case 't': sb.append('\t'); break;
+			case 'u':
+				sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+				i += 4;
+				break;
+			default: sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Consumes a separator: true after a comma, false after {@code close}.
+	 */
+	private boolean comma(char close) {
+		skipWhitespace();
+		byte b = data[pos++];
+		if (b == ',') {
+			return true;
+		}
+		if (b == close) {
+			return false;
+		}
+		throw error("',' or '" + close + "'");
+	}
+
+	private void expect(char c) {
+		skipWhitespace();
+		if (pos >= data.length || data[pos] != c) {
+			throw error("'" + c + "'");
+		}
+		pos++;
+	}
+
+	private byte peek() {
+		skipWhitespace();
+		if (pos >= data.length) {
+			throw error("a value");
+		}
+		return data[pos];
+	}
+
+	private void skipWhitespace() {
+		while (pos < data.length && isWhitespace(data[pos])) {
+			pos++;
+		}
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+	}
+
+	private IllegalArgumentException error(String expected) {
+		return new IllegalArgumentException("Invalid GeoJSON: expected " + expected + " at byte " + pos);
+	}
+}
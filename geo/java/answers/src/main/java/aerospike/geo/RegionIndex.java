@@ -0,0 +1,538 @@
+package aerospike.geo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+
+/**
+ * A local copy of the region set for "which regions contain this point"
+ * lookups.
+ * <p>
+ * Each region's polygons are kept with their bounding box, and the boxes
+ * are bucketed in a grid of one degree cells. A lookup takes the regions in
+ * the point's cell, drops those whose box misses the point and runs an
+ * point-in-polygon test on the rest. Only Polygon and MultiPolygon regions
+ * are indexed.
+ * <p>
+ * The test casts a ray in plain longitude and latitude, treating edges as
+ * straight lines on a flat map, while the server's {@code geoContains}
+ * follows great circles on the sphere. The two can disagree for points very
+ * close to a long edge, and for regions that cross the antimeridian.
+ * <p>
+ * {@link #refresh()} is incremental: it scans the record headers, and only
+ * reads the bins of regions that are new or whose generation changed.
+ * Lookups run against an immutable snapshot, so they never wait for a
+ * refresh. A background refresh that fails leaves the snapshot as it was;
+ * {@link #getRefreshFailures()} counts these and
+ * {@link #getLastRefreshError()} keeps the latest error.
+ * <p>
+ * An index that is fresh answers every lookup, including with no regions
+ * for a point outside all of them, such as the sea. It is fresh once built,
+ * as long as the last refresh succeeded and, with a background refresh, the
+ * snapshot is no older than two refresh intervals. When it is not fresh the
+ * lookup falls back to a {@code geoContains} query on the server, unless
+ * that is turned off with {@link #setFallback(boolean)}; then the stale
+ * snapshot answers and {@link #getStaleLookups()} counts it.
+ * {@link #getHitRate()} is the share of lookups answered by a fresh index
+ * either way.
+ */
+public class RegionIndex implements AutoCloseable {
+	private static final int BATCH_SIZE = 1000;
+	private static final double CELL_DEGREES = 1.0;
+	private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+	private static final int ROWS = (int) (180 / CELL_DEGREES);
+
+	/**
+	 * A region found by a lookup.
+	 */
+	public static final class Region {
+		private final String id;
+		private final String name;
+		private final String type;
+
+		Region(String id, String name, String type) {
+			this.id = id;
+			this.name = name;
+			this.type = type;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getType() {
+			return type;
+		}
+
+		@Override
+		public String toString() {
+			return type + " " + id + " " + name;
+		}
+	}
+
+	private final AerospikeClient client;
+	private final String ns;
+	private final String regionSet;
+	private final String regionBin;
+	private volatile Snapshot snapshot;
+	private volatile boolean fallback = true;
+	private volatile boolean refreshFailing;
+	private volatile long maxAgeNanos;
+	private ScheduledExecutorService scheduler;
+
+	// metrics
+	private final AtomicLong lookups = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong fallbacks = new AtomicLong();
+	private final AtomicLong staleLookups = new AtomicLong();
+	private final AtomicLong totalLookupNanos = new AtomicLong();
+	private volatile long maxLookupNanos;
+	private final AtomicLong refreshes = new AtomicLong();
+	private volatile long lastRefreshNanos;
+	private volatile int lastRefreshChanged;
+	private final AtomicLong refreshFailures = new AtomicLong();
+	private volatile RuntimeException lastRefreshError;
+
+	public RegionIndex(AerospikeClient client, String ns, String regionSet, String regionBin) {
+		this.client = client;
+		this.ns = ns;
+		this.regionSet = regionSet;
+		this.regionBin = regionBin;
+	}
+
+	/**
+	 * Whether lookups ask the server while the index is not fresh.
+	 */
+	public void setFallback(boolean fallback) {
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Refreshes the index now and then every {@code interval}, on a daemon
+	 * thread, until {@link #close()}.
+	 */
+	public synchronized void startRefresh(long interval, TimeUnit unit) {
+		maxAgeNanos = 2 * unit.toNanos(interval);
+		refresh();
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "region-index-refresh");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::refreshQuietly, interval, interval, unit);
+		}
+	}
+
+	/**
+	 * Brings the index up to date with the region set.
+	 *
+	 * @return the number of regions added, changed or removed
+	 */
+	public synchronized int refresh() {
+		try {
+			int changed = build();
+			refreshFailing = false;
+			return changed;
+		} catch (RuntimeException e) {
+			// the old snapshot may be out of date now
+			refreshFailing = true;
+			throw e;
+		}
+	}
+
+	private int build() {
+		long start = System.nanoTime();
+		Snapshot current = snapshot;
+		Map<Key, Entry> previous = current == null ? Collections.<Key, Entry>emptyMap() : current.entries;
+
+		// headers only, to find out what changed
+		Map<Key, Integer> generations = new ConcurrentHashMap<Key, Integer>();
+		ScanPolicy scanPolicy = new ScanPolicy();
+		scanPolicy.includeBinData = false;
+		client.scanAll(scanPolicy, ns, regionSet, (key, record) -> generations.put(key, record.generation));
+
+		Map<Key, Entry> entries = new HashMap<Key, Entry>();
+		List<Key> changed = new ArrayList<Key>();
+		for (Map.Entry<Key, Integer> header : generations.entrySet()) {
+			Entry entry = previous.get(header.getKey());
+			if (entry != null && entry.generation == header.getValue()) {
+				entries.put(header.getKey(), entry);
+			} else {
+				changed.add(header.getKey());
+			}
+		}
+		int removed = 0;
+		for (Key key : previous.keySet()) {
+			if (!generations.containsKey(key)) {
+				removed++;
+			}
+		}
+
+		JSONParser parser = new JSONParser();
+		for (int from = 0; from < changed.size(); from += BATCH_SIZE) {
+			Key[] keys = changed.subList(from, Math.min(from + BATCH_SIZE, changed.size())).toArray(new Key[0]);
+			Record[] records = client.get(null, keys, "id", "name", "type", regionBin);
+			for (int i = 0; i < keys.length; i++) {
+				Entry entry = records[i] == null ? null : toEntry(parser, records[i]);
+				if (entry != null) {
+					entries.put(keys[i], entry);
+				}
+			}
+		}
+
+		snapshot = new Snapshot(entries, start);
+		refreshes.incrementAndGet();
+		lastRefreshNanos = System.nanoTime() - start;
+		lastRefreshChanged = changed.size() + removed;
+		return lastRefreshChanged;
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (RuntimeException e) {
+			// keep the old snapshot, try again next time
+			refreshFailures.incrementAndGet();
+			lastRefreshError = e;
+		}
+	}
+
+	/**
+	 * The regions containing the point, none if it is outside all of them.
+	 */
+	public List<Region> lookup(double lon, double lat) {
+		long start = System.nanoTime();
+		Snapshot current = snapshot;
+		List<Region> regions;
+		if (isFresh(current, start)) {
+			hits.incrementAndGet();
+			regions = current.lookup(lon, lat);
+		} else if (fallback) {
+			fallbacks.incrementAndGet();
+			regions = query(lon, lat);
+		} else {
+			staleLookups.incrementAndGet();
+			regions = current == null ? Collections.<Region>emptyList() : current.lookup(lon, lat);
+		}
+		long elapsed = System.nanoTime() - start;
+		lookups.incrementAndGet();
+		totalLookupNanos.addAndGet(elapsed);
+		if (elapsed > maxLookupNanos) {
+			maxLookupNanos = elapsed;
+		}
+		return regions;
+	}
+
+	private boolean isFresh(Snapshot current, long now) {
+		if (current == null || refreshFailing) {
+			return false;
+		}
+		long maxAge = maxAgeNanos;
+		return maxAge == 0 || now - current.builtNanos <= maxAge;
+	}
+
+	/**
+	 * Whether lookups are answered by the index rather than the server.
+	 */
+	public boolean isFresh() {
+		return isFresh(snapshot, System.nanoTime());
+	}
+
+	private List<Region> query(double lon, double lat) {
+		Statement stmt = new Statement();
+		stmt.setNamespace(ns);
+		stmt.setSetName(regionSet);
+		stmt.setBinNames("id", "name", "type");
+		stmt.setFilters(Filter.geoContains(regionBin, GeoJsonEncoder.local().point(lon, lat)));
+		List<Region> regions = new ArrayList<Region>();
+		RecordSet recordSet = client.query(null, stmt);
+		try {
+			while (recordSet.next()) {
+				Record record = recordSet.getRecord();
+				regions.add(new Region(record.getString("id"), record.getString("name"), record.getString("type")));
+			}
+		} finally {
+			recordSet.close();
+		}
+		return regions;
+	}
+
+	private Entry toEntry(JSONParser parser, Record record) {
+		Object geometry = record.getValue(regionBin);
+		if (geometry == null) {
+			return null;
+		}
+		JSONObject json;
+		try {
+			json = (JSONObject) parser.parse(geometry.toString());
+		} catch (ParseException e) {
+			return null;
+		}
+		List<double[][]> polygons = new ArrayList<double[][]>();
+		JSONArray coordinates = (JSONArray) json.get("coordinates");
+		if ("Polygon".equals(json.get("type"))) {
+			polygons.add(rings(coordinates));
+		} else if ("MultiPolygon".equals(json.get("type"))) {
+			for (Object polygon : coordinates) {
+				polygons.add(rings((JSONArray) polygon));
+			}
+		} else {
+			return null;
+		}
+		Region region = new Region(record.getString("id"), record.getString("name"), record.getString("type"));
+		return new Entry(record.generation, region, polygons.toArray(new double[0][][]));
+	}
+
+	/**
+	 * Rings as alternating longitudes and latitudes; the first is the shell,
+	 * the others are holes.
+	 */
+	private static double[][] rings(JSONArray polygon) {
+		double[][] rings = new double[polygon.size()][];
+		for (int r = 0; r < rings.length; r++) {
+			JSONArray ring = (JSONArray) polygon.get(r);
+			rings[r] = new double[ring.size() * 2];
+			for (int i = 0; i < ring.size(); i++) {
+				JSONArray point = (JSONArray) ring.get(i);
+				rings[r][i * 2] = ((Number) point.get(0)).doubleValue();
+				rings[r][i * 2 + 1] = ((Number) point.get(1)).doubleValue();
+			}
+		}
+		return rings;
+	}
+
+	public int getRegionCount() {
+		Snapshot current = snapshot;
+		return current == null ? 0 : current.entries.size();
+	}
+
+	public long getLookups() {
+		return lookups.get();
+	}
+
+	/**
+	 * Lookups answered by a fresh index, whether or not they found a region.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Lookups that went to the server because the index was not fresh.
+	 */
+	public long getFallbacks() {
+		return fallbacks.get();
+	}
+
+	/**
+	 * Lookups answered by an index that was not fresh, with the fallback
+	 * off.
+	 */
+	public long getStaleLookups() {
+		return staleLookups.get();
+	}
+
+	public double getHitRate() {
+		long count = lookups.get();
+		return count == 0 ? 0 : (double) hits.get() / count;
+	}
+
+	public long getAverageLookupMicros() {
+		long count = lookups.get();
+		return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLookupNanos.get() / count);
+	}
+
+	public long getMaxLookupMicros() {
+		return TimeUnit.NANOSECONDS.toMicros(maxLookupNanos);
+	}
+
+	public long getRefreshCount() {
+		return refreshes.get();
+	}
+
+	public long getLastRefreshMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(lastRefreshNanos);
+	}
+
+	/**
+	 * Regions added, changed or removed by the last refresh.
+	 */
+	public int getLastRefreshChanged() {
+		return lastRefreshChanged;
+	}
+
+	/**
+	 * Background refreshes that failed; lookups meanwhile use the last
+	 * snapshot that was built.
+	 */
+	public long getRefreshFailures() {
+		return refreshFailures.get();
+	}
+
+	/**
+	 * The error of the last failed background refresh, or null.
+	 */
+	public RuntimeException getLastRefreshError() {
+		return lastRefreshError;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	private static final class Entry {
+		final int generation;
+		final Region region;
+		final double[][][] polygons;
+		final double minLon, minLat, maxLon, maxLat;
+
+		Entry(int generation, Region region, double[][][] polygons) {
+			this.generation = generation;
+			this.region = region;
+			this.polygons = polygons;
+			double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+			double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+			for (double[][] polygon : polygons) {
+				double[] shell = polygon[0];
+				for (int i = 0; i < shell.length; i += 2) {
+					minX = Math.min(minX, shell[i]);
+					maxX = Math.max(maxX, shell[i]);
+					minY = Math.min(minY, shell[i + 1]);
+					maxY = Math.max(maxY, shell[i + 1]);
+				}
+			}
+			this.minLon = minX;
+			this.minLat = minY;
+			this.maxLon = maxX;
+			this.maxLat = maxY;
+		}
+
+		boolean contains(double lon, double lat) {
+			if (lon < minLon || lon > maxLon || lat < minLat || lat > maxLat) {
+				return false;
+			}
+			for (double[][] polygon : polygons) {
+				if (inRing(polygon[0], lon, lat)) {
+					boolean inHole = false;
+					for (int h = 1; h < polygon.length && !inHole; h++) {
+						inHole = inRing(polygon[h], lon, lat);
+					}
+					if (!inHole) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Ray casting, in plain longitude/latitude: edges are straight lines
+		 * on a flat map, not great circles as on the server.
+		 */
+		private static boolean inRing(double[] ring, double lon, double lat) {
+			boolean inside = false;
+			int n = ring.length / 2;
+			for (int i = 0, j = n - 1; i < n; j = i++) {
+				double xi = ring[i * 2], yi = ring[i * 2 + 1];
+				double xj = ring[j * 2], yj = ring[j * 2 + 1];
+				if ((yi > lat) != (yj > lat) && lon < (xj - xi) * (lat - yi) / (yj - yi) + xi) {
+					inside = !inside;
+				}
+			}
+			return inside;
+		}
+	}
+
+	/**
+	 * An immutable set of entries with their grid.
+	 */
+	private static final class Snapshot {
+		final Map<Key, Entry> entries;
+		final long builtNanos;
+		final Entry[][] cells = new Entry[COLUMNS * ROWS][];
+
+		/**
+		 * @param builtNanos when the refresh that read the entries started
+		 */
+		Snapshot(Map<Key, Entry> entries, long builtNanos) {
+			this.entries = entries;
+			this.builtNanos = builtNanos;
+			@SuppressWarnings("unchecked")
+			List<Entry>[] building = new List[cells.length];
+			for (Entry entry : entries.values()) {
+				for (int row = row(entry.minLat); row <= row(entry.maxLat); row++) {
+					for (int column = column(entry.minLon); column <= column(entry.maxLon); column++) {
+						int cell = row * COLUMNS + column;
+						if (building[cell] == null) {
+							building[cell] = new ArrayList<Entry>(2);
+						}
+						building[cell].add(entry);
+					}
+				}
+			}
+			for (int cell = 0; cell < cells.length; cell++) {
+				if (building[cell] != null) {
+					cells[cell] = building[cell].toArray(new Entry[0]);
+				}
+			}
+		}
+
+		List<Region> lookup(double lon, double lat) {
+			Entry[] candidates = cells[row(lat) * COLUMNS + column(lon)];
+			if (candidates == null) {
+				return Collections.emptyList();
+			}
+			List<Region> regions = null;
+			for (Entry entry : candidates) {
+				if (entry.contains(lon, lat)) {
+					if (regions == null) {
+						regions = new ArrayList<Region>(2);
+					}
+					regions.add(entry.region);
+				}
+			}
+			return regions == null ? Collections.<Region>emptyList() : regions;
+		}
+
+		private static int column(double lon) {
+			return clamp((int) Math.floor((lon + 180) / CELL_DEGREES), COLUMNS);
+		}
+
+		private static int row(double lat) {
+			return clamp((int) Math.floor((lat + 90) / CELL_DEGREES), ROWS);
+		}
+
+		private static int clamp(int index, int size) {
+			return index < 0 ? 0 : index >= size ? size - 1 : index;
+		}
+	}
+}
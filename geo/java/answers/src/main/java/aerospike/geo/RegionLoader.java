@@ -0,0 +1,108 @@
+package aerospike.geo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.common.Workers;
+
+/**
+ * Loads the country GeoJSON files, several files at a time.
+ * <p>
+ * Each file is read into memory once and run through
+ * {@link GeoJsonScanner}, which hands over the id, name and geometry of
+ * every feature without building a JSON tree. The geometry text goes to
+ * the server unchanged.
+ */
+public class RegionLoader {
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final String ns;
+	private final String regionSet;
+	private final String regionBin;
+	private final int concurrency;
+
+	private final AtomicLong bytesRead = new AtomicLong();
+	private final AtomicLong regions = new AtomicLong();
+	private long elapsedNanos;
+
+	public RegionLoader(AerospikeClient client, WritePolicy writePolicy, String ns, String regionSet,
+			String regionBin, int concurrency) {
+		this.client = client;
+		this.writePolicy = writePolicy;
+		this.ns = ns;
+		this.regionSet = regionSet;
+		this.regionBin = regionBin;
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Loads every {@code .json} file in the directory as regions of
+	 * {@code type}, keyed by the feature id.
+	 *
+	 * @return the number of regions written
+	 */
+	public long load(String directory, String type) {
+		File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".json"));
+		if (files == null) {
+			throw new IllegalArgumentException("Not a directory: " + directory);
+		}
+		bytesRead.set(0);
+		regions.set(0);
+		long start = System.nanoTime();
+		try (Workers workers = new Workers(concurrency)) {
+			for (File file : files) {
+				workers.submit(() -> loadFile(file, type));
+			}
+		} finally {
+			elapsedNanos = System.nanoTime() - start;
+		}
+		return regions.get();
+	}
+
+	private void loadFile(File file, String type) {
+		byte[] data;
+		try {
+			data = Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		bytesRead.addAndGet(data.length);
+		GeoJsonScanner.scan(data, feature -> {
+			client.put(writePolicy, new Key(ns, regionSet, feature.getId()),
+					new Bin("id", feature.getId()),
+					new Bin("name", feature.getName()),
+					new Bin("type", type),
+					new Bin(regionBin, Value.getAsGeoJSON(feature.getGeometry()))
+					);
+			regions.incrementAndGet();
+		});
+	}
+
+	public long getRegionsWritten() {
+		return regions.get();
+	}
+
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1000000;
+	}
+
+	/**
+	 * Input consumed per second over the last load, in MB.
+	 */
+	public double getMegabytesPerSecond() {
+		return elapsedNanos == 0 ? 0 : bytesRead.get() / (1024.0 * 1024.0) / (elapsedNanos / 1e9);
+	}
+}
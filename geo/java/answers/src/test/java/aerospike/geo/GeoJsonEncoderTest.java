@@ -0,0 +1,73 @@
+package aerospike.geo;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GeoJsonEncoderTest {
+
+	private static void assertSameAsFormat(double value) {
+		StringBuilder sb = new StringBuilder();
+		GeoJsonEncoder.appendCoordinate(sb, value);
+		assertEquals("coordinate " + value, String.format(Locale.ROOT, "%f", value), sb.toString());
+	}
+
+	@Test
+	public void roundsLikeFormatOnDecimalTies() {
+		// the seventh decimal is a 5 that the binary value falls just short of
+		assertSameAsFormat(130.8369785);
+		assertSameAsFormat(33.5297315);
+		assertSameAsFormat(179.9999995);
+		assertSameAsFormat(-179.9999995);
+		assertSameAsFormat(0.0000005);
+	}
+
+	@Test
+	public void signsAndEdges() {
+		assertSameAsFormat(0.0);
+		assertSameAsFormat(-0.0);
+		assertSameAsFormat(-1e-9);
+		assertSameAsFormat(-33.86785);
+		assertSameAsFormat(151.20732);
+		assertSameAsFormat(1e6);
+		assertSameAsFormat(-1.5e15);
+	}
+
+	@Test
+	public void matchesFormatForRandomSevenDecimalCoordinates() {
+		Random random = new Random(42);
+		for (int i = 0; i < 500000; i++) {
+			long units = (long) (random.nextDouble() * 3600000000L) - 1800000000L;
+			assertSameAsFormat(units / 1e7);
+		}
+	}
+
+	@Test
+	public void matchesFormatForRandomDoubles() {
+		Random random = new Random(7);
+		for (int i = 0; i < 200000; i++) {
+			assertSameAsFormat((random.nextDouble() - 0.5) * 360);
+		}
+	}
+
+	@Test
+	public void point() {
+		assertEquals("{ \"type\": \"Point\", \"coordinates\": [151.207320, -33.867850] }",
+				new GeoJsonEncoder().point(151.20732, -33.86785));
+	}
+
+	@Test
+	public void polygonIsClosed() {
+		assertEquals("{ \"type\": \"Polygon\", \"coordinates\": [[[0.000000, 0.000000], [1.000000, 0.000000], "
+				+ "[1.000000, 1.000000], [0.000000, 0.000000]]] }",
+				new GeoJsonEncoder().polygon(new double[] { 0, 0, 1, 0, 1, 1 }));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNaN() {
+		GeoJsonEncoder.appendCoordinate(new StringBuilder(), Double.NaN);
+	}
+}
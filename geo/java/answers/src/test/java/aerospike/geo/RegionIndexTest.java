@@ -0,0 +1,167 @@
+package aerospike.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.Value;
+import com.aerospike.client.policy.ScanPolicy;
+
+import aerospike.standin.StandInClient;
+
+public class RegionIndexTest {
+
+	/**
+	 * A stand-in whose scans fail while {@code failScans} is set.
+	 */
+	private static class FailingClient extends StandInClient {
+		volatile boolean failScans;
+
+		@Override
+		public void scanAll(ScanPolicy policy, String namespace, String setName, ScanCallback callback,
+				String... binNames) throws AerospikeException {
+			if (failScans) {
+				throw new AerospikeException(ResultCode.SERVER_NOT_AVAILABLE);
+			}
+			super.scanAll(policy, namespace, setName, callback, binNames);
+		}
+	}
+
+	private static final String NS = "test";
+	private static final String SET = "region";
+	private static final String BIN = "geo-region";
+
+	private final FailingClient client = new FailingClient();
+	private final RegionIndex index = new RegionIndex(client, NS, SET, BIN);
+
+	private void putRegion(String id, String type, double[]... rings) {
+		StringBuilder json = new StringBuilder("{ \"type\": \"Polygon\", \"coordinates\": [");
+		for (int r = 0; r < rings.length; r++) {
+			json.append(r == 0 ? "[" : ", [");
+			for (int i = 0; i < rings[r].length; i += 2) {
+				json.append(i == 0 ? "" : ", ").append('[').append(rings[r][i]).append(", ")
+						.append(rings[r][i + 1]).append(']');
+			}
+			json.append(']');
+		}
+		json.append("] }");
+		client.put(null, new Key(NS, SET, id), new Bin("id", id), new Bin("name", id.toLowerCase()),
+				new Bin("type", type), new Bin(BIN, Value.getAsGeoJSON(json.toString())));
+	}
+
+	@Before
+	public void regions() {
+		// a square with a square hole, and a triangle beside it
+		putRegion("SQR", "country",
+				new double[] { 0, 0, 10, 0, 10, 10, 0, 10, 0, 0 },
+				new double[] { 4, 4, 6, 4, 6, 6, 4, 6, 4, 4 });
+		putRegion("TRI", "country", new double[] { 10, 0, 20, 0, 10, 10, 10, 0 });
+	}
+
+	@After
+	public void close() {
+		index.close();
+		client.close();
+	}
+
+	private static String ids(List<RegionIndex.Region> regions) {
+		StringBuilder ids = new StringBuilder();
+		for (RegionIndex.Region region : regions) {
+			ids.append(ids.length() == 0 ? "" : ",").append(region.getId());
+		}
+		return ids.toString();
+	}
+
+	@Test
+	public void findsTheRegionsContainingThePoint() {
+		assertEquals(2, index.refresh());
+		assertEquals(2, index.getRegionCount());
+		assertEquals("SQR", ids(index.lookup(2, 2)));
+		assertEquals("TRI", ids(index.lookup(12, 2)));
+		assertEquals("", ids(index.lookup(5, 5))); // in the hole
+		assertEquals("", ids(index.lookup(18, 9))); // in the box of the triangle only
+		assertEquals(4, index.getHits());
+		assertEquals(0, index.getFallbacks());
+	}
+
+	@Test
+	public void pointOutsideEveryRegionIsAnsweredLocally() {
+		index.refresh();
+		client.resetRoundTrips();
+		for (int i = 0; i < 10; i++) {
+			assertTrue(index.lookup(-150, -40).isEmpty());
+		}
+		assertEquals(0, client.getRoundTrips());
+		assertEquals(10, index.getHits());
+		assertEquals(1.0, index.getHitRate(), 0.0);
+	}
+
+	@Test
+	public void fallsBackToTheServerBeforeTheFirstRefresh() {
+		assertFalse(index.isFresh());
+		assertEquals("SQR", ids(index.lookup(2, 2)));
+		assertEquals(1, index.getFallbacks());
+		assertEquals(0, index.getHits());
+	}
+
+	@Test
+	public void fallsBackToTheServerAfterAFailedRefresh() {
+		index.refresh();
+		client.failScans = true;
+		try {
+			index.refresh();
+			fail("expected the refresh to fail");
+		} catch (AerospikeException e) {
+			// expected
+		}
+		assertFalse(index.isFresh());
+		client.resetRoundTrips();
+		assertEquals("TRI", ids(index.lookup(12, 2)));
+		assertEquals(1, client.getRoundTrips());
+		assertEquals(1, index.getFallbacks());
+
+		client.failScans = false;
+		index.refresh();
+		assertTrue(index.isFresh());
+	}
+
+	@Test
+	public void staleIndexAnswersWithoutFallback() {
+		index.refresh();
+		client.failScans = true;
+		try {
+			index.refresh();
+		} catch (AerospikeException e) {
+			// expected
+		}
+		index.setFallback(false);
+		assertEquals("SQR", ids(index.lookup(2, 2)));
+		assertEquals(1, index.getStaleLookups());
+		assertEquals(0, index.getHits());
+		assertEquals(0.0, index.getHitRate(), 0.0);
+	}
+
+	@Test
+	public void refreshReadsOnlyChangedRegions() {
+		index.refresh();
+		assertEquals(0, index.refresh());
+		putRegion("TRI", "country", new double[] { 10, 0, 30, 0, 10, 10, 10, 0 });
+		assertEquals(1, index.refresh());
+		assertEquals("TRI", ids(index.lookup(22, 2)));
+		client.delete(null, new Key(NS, SET, "SQR"));
+		assertEquals(1, index.refresh());
+		assertEquals(1, index.getRegionCount());
+	}
+}
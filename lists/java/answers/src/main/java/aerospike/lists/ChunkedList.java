@@ -0,0 +1,197 @@
+package aerospike.lists;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * One logical list spread over records of at most {@code chunkSize}
+ * elements, so it can grow past the record size limit and an append
+ * rewrites one bounded record instead of the whole list.
+ * <p>
+ * The list has a head record, {@code name}, holding its size, and chunk
+ * records {@code name:0}, {@code name:1}, ... Element {@code i} is at
+ * position {@code i % chunkSize} of chunk {@code i / chunkSize}; every
+ * chunk but the last is full.
+ * <p>
+ * An append reserves its positions by adding to the size on the head
+ * record, then sets the elements in their chunks: two round trips,
+ * whatever the length of the list. Appends from any number of clients
+ * may run at once. {@link #pop()} takes the last element under a
+ * generation check on the head record; an append still in flight when
+ * it runs may have reserved a position that is not written yet, so pop
+ * is meant for a list with one consumer at a time.
+ */
+public class ChunkedList {
+	private static final String SIZE_BIN = "size";
+	private static final String ITEMS_BIN = "items";
+	private static final int MAX_ATTEMPTS = 10;
+
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final String ns;
+	private final String set;
+	private final String name;
+	private final int chunkSize;
+	private final Key head;
+
+	public ChunkedList(AerospikeClient client, WritePolicy writePolicy, String ns, String set, String name,
+			int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("chunkSize must be at least 1");
+		}
+		this.client = client;
+		this.writePolicy = writePolicy;
+		this.ns = ns;
+		this.set = set;
+		this.name = name;
+		this.chunkSize = chunkSize;
+		this.head = new Key(ns, set, name);
+	}
+
+	private Key chunk(long index) {
+		return new Key(ns, set, name + ":" + index);
+	}
+
+	/**
+	 * @return the size of the list after the append
+	 */
+	public long append(Value value) {
+		return appendItems(Collections.singletonList(value));
+	}
+
+	/**
+	 * Appends the values in order; they may interleave with the values of
+	 * other appends running at the same time, but stay contiguous.
+	 *
+	 * @return the size of the list after the append
+	 */
+	public long appendItems(List<Value> values) {
+		if (values.isEmpty()) {
+			return size();
+		}
+		Record record = client.operate(writePolicy, head,
+				Operation.add(new Bin(SIZE_BIN, values.size())),
+				Operation.get(SIZE_BIN));
+		long end = record.getLong(SIZE_BIN);
+		long index = end - values.size();
+		int from = 0;
+		while (from < values.size()) {
+			int position = (int) (index % chunkSize);
+			int count = Math.min(values.size() - from, chunkSize - position);
+			Operation[] sets = new Operation[count];
+			for (int i = 0; i < count; i++) {
+				sets[i] = ListOperation.set(ITEMS_BIN, position + i, values.get(from + i));
+			}
+			client.operate(writePolicy, chunk(index / chunkSize), sets);
+			index += count;
+			from += count;
+		}
+		return end;
+	}
+
+	public long size() {
+		Record record = client.get(null, head, SIZE_BIN);
+		return record == null ? 0 : record.getLong(SIZE_BIN);
+	}
+
+	/**
+	 * The element at {@code index}, negative counting back from the end.
+	 */
+	public Object get(long index) {
+		long resolved = index < 0 ? size() + index : index;
+		if (resolved < 0) {
+			throw new AerospikeException(ResultCode.OP_NOT_APPLICABLE, "List index out of bounds");
+		}
+		Record record = client.operate(writePolicy, chunk(resolved / chunkSize),
+				ListOperation.get(ITEMS_BIN, (int) (resolved % chunkSize)));
+		if (record == null) {
+			throw new AerospikeException(ResultCode.OP_NOT_APPLICABLE, "List index out of bounds");
+		}
+		return record.getValue(ITEMS_BIN);
+	}
+
+	/**
+	 * Up to {@code count} elements from {@code index}, one round trip per
+	 * chunk they span.
+	 */
+	public List<Object> getRange(long index, int count) {
+		long end = Math.min(index + count, size());
+		List<Object> range = new ArrayList<Object>();
+		while (index < end) {
+			int position = (int) (index % chunkSize);
+			int n = (int) Math.min(end - index, chunkSize - position);
+			Record record = client.operate(writePolicy, chunk(index / chunkSize),
+					ListOperation.getRange(ITEMS_BIN, position, n));
+			if (record != null) {
+				range.addAll(record.getList(ITEMS_BIN));
+			}
+			index += n;
+		}
+		return range;
+	}
+
+	/**
+	 * Removes and returns the last element, null if the list is empty. The
+	 * tail chunk is deleted when it empties.
+	 */
+	public Object pop() {
+		for (int attempt = 1; ; attempt++) {
+			Record record = client.get(null, head, SIZE_BIN);
+			long size = record == null ? 0 : record.getLong(SIZE_BIN);
+			if (size == 0) {
+				return null;
+			}
+			WritePolicy policy = new WritePolicy();
+			policy.sendKey = writePolicy.sendKey;
+			policy.expiration = writePolicy.expiration;
+			policy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+			policy.generation = record.generation;
+			try {
+				client.operate(policy, head, Operation.add(new Bin(SIZE_BIN, -1)));
+			} catch (AerospikeException e) {
+				if (e.getResultCode() != ResultCode.GENERATION_ERROR || attempt == MAX_ATTEMPTS) {
+					throw e;
+				}
+				continue;
+			}
+			long last = size - 1;
+			Key tail = chunk(last / chunkSize);
+			if (last % chunkSize == 0) {
+				// the only element of the tail chunk: read it and drop the chunk
+				Object value = client.get(null, tail, ITEMS_BIN).getList(ITEMS_BIN).get(0);
+				client.delete(writePolicy, tail);
+				return value;
+			}
+			return client.operate(writePolicy, tail, ListOperation.pop(ITEMS_BIN, (int) (last % chunkSize)))
+					.getValue(ITEMS_BIN);
+		}
+	}
+
+	/**
+	 * Deletes the head record and every chunk.
+	 */
+	public void clear() {
+		long chunks = (size() + chunkSize - 1) / chunkSize;
+		for (long i = 0; i < chunks; i++) {
+			client.delete(writePolicy, chunk(i));
+		}
+		client.delete(writePolicy, head);
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+}
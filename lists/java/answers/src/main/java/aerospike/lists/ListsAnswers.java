@@ -1,53 +1,61 @@
 package aerospike.lists;
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 
 import com.aerospike.client.AerospikeClient;
 import com.aerospike.client.AerospikeException;
 import com.aerospike.client.Bin;
-import com.aerospike.client.Info;
 import com.aerospike.client.Key;
 import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
 import com.aerospike.client.Value;
 import com.aerospike.client.cdt.ListOperation;
-import com.aerospike.client.cluster.Node;
-import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.Policy;
 import com.aerospike.client.policy.QueryPolicy;
 import com.aerospike.client.policy.WritePolicy;
-import com.aerospike.client.query.Filter;
 import com.aerospike.client.query.IndexCollectionType;
 import com.aerospike.client.query.IndexType;
-import com.aerospike.client.query.RecordSet;
 import com.aerospike.client.query.Statement;
-import com.aerospike.client.task.IndexTask;
+
+import aerospike.common.ClientRegistry;
+import aerospike.common.LongListValue;
+import aerospike.common.ParallelQuery;
+import aerospike.common.RecordRenderer;
+import aerospike.common.Workers;
+import aerospike.standin.StandInClient;
 
 /**
  * @author Peter Milne
  */
 public class ListsAnswers {
 	private AerospikeClient client;
+	private final RecordRenderer printer = RecordRenderer.console(RecordRenderer.Format.TEXT);
 	private String ns; // Aerospike namespace
 	private String set; // Aerospike set name
 
 	public ListsAnswers()
 			throws AerospikeException {
-		// Establish a connection to Aerospike cluster
-		ClientPolicy cPolicy = new ClientPolicy();
-		cPolicy.timeout = 500;
-		this.client = new AerospikeClient(cPolicy, "10.211.55.101", 3000);
+		// Share the process-wide connection to the cluster in aerospike.properties
+		this.client = ClientRegistry.acquire();
+	}
+
+	public ListsAnswers(AerospikeClient client) {
+		// Use an existing client, e.g. the in-process stand-in
+		this.client = client;
 	}
 
 	public static void main(String[] args) throws AerospikeException {
 		try {
 
-			ListsAnswers as = new ListsAnswers();
+			ListsAnswers as = args.length > 0 && args[0].equals("standin")
+					? new ListsAnswers(new StandInClient())
+					: new ListsAnswers();
 
 			as.work();
 
@@ -75,16 +83,17 @@ public class ListsAnswers {
 				
 				Key key = new Key(ns, set, "a-record-with-a-list");
 
+				// write and read back in one round trip
 				Bin list = new Bin(listBin, aListOfLongs); 
-				client.put(writePolicy, key, list);
-				Record record = client.get(null, key, listBin);
+				Record record = client.operate(writePolicy, key, Operation.put(list), Operation.get(listBin));
 				
 				printRecord(key, record);
 
-				// Add 1 element to the list and print the result
-				client.operate(writePolicy, key, ListOperation.append(listBin, Value.get(99L)));
-				
-				record = client.get(null, key, listBin);
+				// Add 1 element to the list and print the result,
+				// the new size and the list come back from the same operate
+				record = client.operate(writePolicy, key, 
+						ListOperation.append(listBin, Value.get(99L)),
+						Operation.get(listBin));
 				printRecord(key, record);
 
 				// Add values to the list and read the whole list.
@@ -92,10 +101,9 @@ public class ListsAnswers {
 				inputList.add(Value.get(55));
 				inputList.add(Value.get(77));
 				
-				client.operate(writePolicy, key, 
-						ListOperation.appendItems(listBin, inputList));
-				
-				record = client.get(null, key, listBin);
+				record = client.operate(writePolicy, key, 
+						ListOperation.appendItems(listBin, inputList),
+						Operation.get(listBin));
 				printRecord(key, record);		
 					
 				// Pop value from end of list and also return new size of list.
@@ -105,89 +113,84 @@ public class ListsAnswers {
 
 				printRecord(key, record);	
 				
+				// A list too long for one record, spread over chunks of 100 elements
+				ChunkedList chunked = new ChunkedList(client, writePolicy, ns, set, "a-chunked-list", 100);
+				chunked.clear();
+				List<Value> values = new ArrayList<Value>();
+				for (int i = 0; i < 250; i++) {
+					values.add(Value.get(i));
+				}
+				chunked.appendItems(values);
+				chunked.append(Value.get(99L));
+				System.out.println(String.format("\nChunked list: size %d, element 150 = %s, popped %s, size %d",
+						chunked.size(), chunked.get(150), chunked.pop(), chunked.size()));
+				
+				// An ordered list: the server finds a value range or a rank by binary search.
+				// Kept out of listBin, whose index would make it a hit in the query below
+				OrderedListBin ordered = new OrderedListBin(client, writePolicy, "ordered-list");
+				Key orderedKey = new Key(ns, set, "a-record-with-an-ordered-list");
+				client.delete(writePolicy, orderedKey); // drop a copy that still has a listBin
+				Random orderedRand = new Random(300);
+				List<Value> orderedValues = new ArrayList<Value>();
+				for (int i = 0; i < 100; i++) {
+					orderedValues.add(Value.get(orderedRand.nextInt(200) + 250L));
+				}
+				ordered.write(orderedKey, orderedValues);
+				System.out.println(String.format("\nOrdered list values between 300 and 350: %s",
+						ordered.getByValueRange(orderedKey, Value.get(300), Value.get(351))));
+				System.out.println(String.format("\tthe 5 largest: %s", ordered.getLargest(orderedKey, 5)));
+				
 				// Query the records with list values between 300 and 350
 				
 				// Create index on list bin, if it does not exist
-				createIndex("listBinIndex", listBin, IndexType.NUMERIC);
+				ClientRegistry.catalog(client)
+						.declare(ns, set, "listBinIndex", listBin, IndexType.NUMERIC, IndexCollectionType.LIST)
+						.createMissing();
 				
-				// Create many records with values in a list
-				Random rand = new Random(300);
-				for (int i = 0; i < 100; i++){
-					Key newKey = new Key(ns, set, "a-record-with-a-list-"+i);
-					List<Long> aList = new ArrayList<Long>();
-					for ( int j = 0; j < 100; j++){
-						Long newInt = rand.nextInt(200) + 250L;
-						aList.add(newInt);
+				// Create many records with values in a list,
+				// on virtual threads if -Daerospike.concurrency is set
+				try (Workers workers = Workers.fromSystemProperty()) {
+					for (int i = 0; i < 100; i++){
+						final int index = i;
+						workers.submit(() -> {
+							Key newKey = new Key(ns, set, "a-record-with-a-list-"+index);
+							Random rand = new Random(300 + index);
+							long[] aList = new long[100];
+							for ( int j = 0; j < 100; j++){
+								aList[j] = rand.nextInt(200) + 250L;
+							}
+							// packed from the array, without a Long per element
+							client.put(writePolicy, newKey, new Bin(listBin, new LongListValue(aList)));
+						});
 					}
-					client.put(writePolicy, newKey, new Bin(listBin, aList));
 				}
 				
 				// Execute the Query
 				Statement stmt = new Statement();
 				stmt.setNamespace(ns);
 				stmt.setSetName(set);
-				stmt.setFilters(Filter.range(listBin, IndexCollectionType.LIST, 300, 350));
 				
-				RecordSet recordSet = client.query(null, stmt);
-				try {
-					System.out.println("\nRecords with values between 300 and 350:");
-					while (recordSet != null & recordSet.next()){
-						System.out.println("\t" + recordSet.getKey().userKey);
-					}
-				} finally {
-					if (recordSet != null) recordSet.close();
-				}
+				// split into value ranges, one per worker, each record once
+				System.out.println("\nRecords with values between 300 and 350:");
+				ParallelQuery query = new ParallelQuery(client, ParallelQuery.subQueryPolicy(5000),
+						Integer.getInteger(Workers.CONCURRENCY_PROPERTY, 1));
+				query.range(stmt, listBin, IndexCollectionType.LIST, 300, 350,
+						(key, record) -> System.out.println("\t" + key.userKey));
+				System.out.println(String.format("\t%d records (%d duplicates dropped) in %d ms",
+						query.getRecords(), query.getDuplicates(), query.getElapsedMillis()));
 				
-				client.close();
+				ClientRegistry.release(client);
 			}
 		}	
 	}
 
-	public void createIndex(String indexName, String binName, IndexType indexType){
-		// check to see if the index exists
-		Node node = client.getNodes()[0];
-		String result = Info.request(node, "sindex/"+ns);
-		boolean indexExists = result.contains(indexName) && 
-				result.contains(set) &&
-				result.contains(binName);
-		
-		// create index
-		if (!indexExists){
-			IndexTask task = client.createIndex(null, ns, set, indexName, binName, indexType, IndexCollectionType.LIST);
-			task.waitTillComplete();
-		}
-	}
-	
 	public void printRecord(Key key, Record record)
 	{
-		System.out.println("Key");
-		if (key == null)
-		{
-			System.out.println("\tkey == null");
-		}
-		else 
-		{
-			System.out.println(String.format("\tNamespace: %s", key.namespace));
-			System.out.println(String.format("\t      Set: %s", key.setName));
-			System.out.println(String.format("\t      Key: %s", key.userKey));
-			System.out.println(String.format("\t   Digest: %s", key.digest.toString()));
-		}
-		System.out.println("Record");
-		if (record == null)
-		{
-			System.out.println("\trecord == null");
-		}
-		else
-		{
-			System.out.println(String.format("\tGeneration: %d", record.generation));
-			System.out.println(String.format("\tExpiration: %d", record.expiration));
-			System.out.println(String.format("\t       TTL: %d", record.getTimeToLive()));
-			System.out.println("Bins");
-
-			for (Map.Entry<String, Object> entry : record.bins.entrySet())
-			{
-				System.out.println(String.format("\t%s = %s", entry.getKey(), entry.getValue().toString()));
-			}
+		try {
+			printer.render(key, record);
+			printer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
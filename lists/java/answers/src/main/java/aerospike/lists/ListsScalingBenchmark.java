@@ -0,0 +1,62 @@
+package aerospike.lists;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.WritePolicy;
+
+import aerospike.common.Workers;
+import aerospike.standin.StandInClient;
+
+/**
+ * Shows how the record generation and put loop of {@link ListsAnswers}
+ * scales as it is spread across more virtual threads, on the in-process
+ * stand-in server with a simulated round trip.
+ * <p>
+ * Usage: ListsScalingBenchmark [records] [round trip micros]
+ */
+public class ListsScalingBenchmark {
+	private static final String NS = "test";
+	private static final String SET = "lists";
+	private static final String LIST_BIN = "list-of-things";
+
+	public static void main(String[] args) throws Exception {
+		int records = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		long latency = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+		StandInClient client = new StandInClient();
+		client.setNetworkLatency(latency);
+		WritePolicy writePolicy = new WritePolicy();
+		writePolicy.sendKey = true;
+
+		long baseline = 0;
+		for (int concurrency = 1; concurrency <= 1024; concurrency *= 4) {
+			long start = System.nanoTime();
+			try (Workers workers = new Workers(concurrency)) {
+				for (int i = 0; i < records; i++) {
+					final int index = i;
+					workers.submit(() -> {
+						Key key = new Key(NS, SET, "a-record-with-a-list-" + index);
+						Random rand = new Random(300 + index);
+						List<Long> aList = new ArrayList<Long>();
+						for (int j = 0; j < 100; j++) {
+							aList.add(rand.nextInt(200) + 250L);
+						}
+						client.put(writePolicy, key, new Bin(LIST_BIN, aList));
+					});
+				}
+			}
+			long elapsed = System.nanoTime() - start;
+			long perSecond = records * 1000000000L / elapsed;
+			if (baseline == 0) {
+				baseline = perSecond;
+			}
+			System.out.println(String.format("concurrency %4d: %7d records/sec, %5.1fx",
+					concurrency, perSecond, (double) perSecond / baseline));
+		}
+		client.close();
+	}
+}
@@ -0,0 +1,105 @@
+package aerospike.lists;
+
+import java.util.List;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.cdt.ListOperation;
+import com.aerospike.client.cdt.ListOrder;
+import com.aerospike.client.cdt.ListPolicy;
+import com.aerospike.client.cdt.ListReturnType;
+import com.aerospike.client.cdt.ListWriteFlags;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * A list bin kept in value order by the server ({@link ListOrder#ORDERED}),
+ * with reads by value range and by rank.
+ * <p>
+ * The server finds a value range or a rank in an ordered list by binary
+ * search, so a range read costs O(log n) plus the values returned, and only
+ * those values cross the network. On an unordered list the same reads scan
+ * every element, and fetching the whole list to filter it on the client
+ * ships all of it.
+ */
+public class OrderedListBin {
+	private static final ListPolicy ORDERED = new ListPolicy(ListOrder.ORDERED, ListWriteFlags.DEFAULT);
+
+	private final AerospikeClient client;
+	private final WritePolicy writePolicy;
+	private final String binName;
+
+	public OrderedListBin(AerospikeClient client, WritePolicy writePolicy, String binName) {
+		this.client = client;
+		this.writePolicy = writePolicy;
+		this.binName = binName;
+	}
+
+	/**
+	 * Replaces the bin with an ordered list of the values.
+	 *
+	 * @return the size of the list
+	 */
+	public long write(Key key, List<Value> values) {
+		Record record = client.operate(writePolicy, key,
+				Operation.put(Bin.asNull(binName)),
+				ListOperation.appendItems(ORDERED, binName, values));
+		return record.getLong(binName);
+	}
+
+	/**
+	 * Adds a value in its place in the order.
+	 *
+	 * @return the size of the list
+	 */
+	public long add(Key key, Value value) {
+		return client.operate(writePolicy, key, ListOperation.append(ORDERED, binName, value)).getLong(binName);
+	}
+
+	public long addAll(Key key, List<Value> values) {
+		return client.operate(writePolicy, key, ListOperation.appendItems(ORDERED, binName, values))
+				.getLong(binName);
+	}
+
+	/**
+	 * Values from {@code begin} (inclusive) to {@code end} (exclusive), in
+	 * order; a null end means no upper limit.
+	 */
+	public List<?> getByValueRange(Key key, Value begin, Value end) {
+		return list(client.operate(writePolicy, key,
+				ListOperation.getByValueRange(binName, begin, end, ListReturnType.VALUE)));
+	}
+
+	/**
+	 * How many values lie from {@code begin} (inclusive) to {@code end}
+	 * (exclusive).
+	 */
+	public long countByValueRange(Key key, Value begin, Value end) {
+		Record record = client.operate(writePolicy, key,
+				ListOperation.getByValueRange(binName, begin, end, ListReturnType.COUNT));
+		return record == null ? 0 : record.getLong(binName);
+	}
+
+	/**
+	 * {@code count} values from rank {@code rank}, the smallest being rank
+	 * 0 and the largest -1.
+	 */
+	public List<?> getByRankRange(Key key, int rank, int count) {
+		return list(client.operate(writePolicy, key,
+				ListOperation.getByRankRange(binName, rank, count, ListReturnType.VALUE)));
+	}
+
+	/**
+	 * The {@code count} largest values, smallest first.
+	 */
+	public List<?> getLargest(Key key, int count) {
+		return getByRankRange(key, -count, count);
+	}
+
+	private List<?> list(Record record) {
+		return record == null ? null : record.getList(binName);
+	}
+}
@@ -0,0 +1,79 @@
+package aerospike.maps;
+
+import java.util.Map;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * A map bin written and read through a {@link FieldSchema}: callers put
+ * and get maps keyed by field name, the record holds them keyed by id.
+ * <p>
+ * Another client may have registered more fields since the schema was
+ * read, and written records with their ids. Given the
+ * {@link SchemaRegistry}, a map with an id the schema does not know makes
+ * it read the schema again before decoding.
+ */
+public class CompactMapBin {
+	private final AerospikeClient client;
+	private final SchemaRegistry registry;
+	private volatile FieldSchema schema;
+	private final String binName;
+
+	public CompactMapBin(AerospikeClient client, FieldSchema schema, String binName) {
+		this(client, null, schema, binName);
+	}
+
+	/**
+	 * @param registry where to read a newer version of the schema, or null
+	 */
+	public CompactMapBin(AerospikeClient client, SchemaRegistry registry, FieldSchema schema, String binName) {
+		this.client = client;
+		this.registry = registry;
+		this.schema = schema;
+		this.binName = binName;
+	}
+
+	public FieldSchema getSchema() {
+		return schema;
+	}
+
+	public Bin bin(Map<String, ?> map) {
+		return new Bin(binName, schema.encode(map));
+	}
+
+	public void put(WritePolicy policy, Key key, Map<String, ?> map) {
+		client.put(policy, key, bin(map));
+	}
+
+	/**
+	 * The map, keyed by field name, or null if the record or bin is
+	 * missing.
+	 */
+	public Map<String, Object> get(Policy policy, Key key) {
+		return decode(client.get(policy, key, binName));
+	}
+
+	public Map<String, Object> decode(Record record) {
+		if (record == null) {
+			return null;
+		}
+		Map<?, ?> encoded = record.getMap(binName);
+		if (encoded == null) {
+			return null;
+		}
+		FieldSchema current = schema;
+		if (!current.knowsAll(encoded) && registry != null) {
+			FieldSchema reloaded = registry.reload(current.getName());
+			if (reloaded != null) {
+				schema = reloaded;
+				current = reloaded;
+			}
+		}
+		return current.decode(encoded);
+	}
+}
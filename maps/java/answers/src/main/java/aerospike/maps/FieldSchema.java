@@ -0,0 +1,119 @@
+package aerospike.maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.Value;
+
+/**
+ * Maps the field names of a map bin to small integer keys.
+ * <p>
+ * A map written with its field names as keys repeats every name in every
+ * record. Encoded, each known field is keyed by its position in the
+ * schema instead, which packs as a single byte for the first 128 fields.
+ * Fields the schema does not know keep their name, so nothing is lost if
+ * a record carries an extra field.
+ * <p>
+ * Schemas are shared through a {@link SchemaRegistry}, which only ever
+ * appends fields, so an id keeps its meaning for as long as the records
+ * written with it.
+ */
+public class FieldSchema {
+	private final String name;
+	private final List<String> fields;
+	private final Map<String, Long> ids;
+
+	public FieldSchema(String name, List<String> fields) {
+		this.name = name;
+		this.fields = Collections.unmodifiableList(new ArrayList<String>(fields));
+		this.ids = new HashMap<String, Long>(fields.size() * 2);
+		for (int i = 0; i < fields.size(); i++) {
+			ids.put(fields.get(i), (long) i);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<String> getFields() {
+		return fields;
+	}
+
+	public boolean contains(String field) {
+		return ids.containsKey(field);
+	}
+
+	/**
+	 * The map key of a field, for map operations on an encoded bin, e.g.
+	 * {@code MapOperation.getByKey(bin, schema.key("preis"), ...)}.
+	 */
+	public Value key(String field) {
+		Long id = ids.get(field);
+		return id == null ? Value.get(field) : Value.get(id.longValue());
+	}
+
+	/**
+	 * Replaces known field names with their ids.
+	 */
+	public Map<Object, Object> encode(Map<String, ?> map) {
+		Map<Object, Object> encoded = new HashMap<Object, Object>(map.size() * 2);
+		for (Map.Entry<String, ?> entry : map.entrySet()) {
+			Long id = ids.get(entry.getKey());
+			encoded.put(id == null ? entry.getKey() : id, entry.getValue());
+		}
+		return encoded;
+	}
+
+	/**
+	 * Whether every id in the map is in this schema; a map written with a
+	 * newer version of the schema may have ids it does not know.
+	 */
+	public boolean knowsAll(Map<?, ?> encoded) {
+		for (Object key : encoded.keySet()) {
+			if (key instanceof Long) {
+				long id = (Long) key;
+				if (id < 0 || id >= fields.size()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces ids with their field names; the inverse of
+	 * {@link #encode(Map)}.
+	 */
+	public Map<String, Object> decode(Map<?, ?> encoded) {
+		Map<String, Object> map = new HashMap<String, Object>(encoded.size() * 2);
+		for (Map.Entry<?, ?> entry : encoded.entrySet()) {
+			Object key = entry.getKey();
+			if (key instanceof Long) {
+				int id = ((Long) key).intValue();
+				if (id < 0 || id >= fields.size()) {
+					throw new IllegalArgumentException("Field id " + id + " is not in schema " + name);
+				}
+				map.put(fields.get(id), entry.getValue());
+			} else {
+				map.put(String.valueOf(key), entry.getValue());
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * The size of a map once packed for the wire, in bytes.
+	 */
+	public static int packedSize(Map<?, ?> map) {
+		return Value.get(map).estimateSize();
+	}
+
+	@Override
+	public String toString() {
+		return name + fields;
+	}
+}
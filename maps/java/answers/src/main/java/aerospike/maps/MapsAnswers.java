@@ -1,5 +1,7 @@
 package aerospike.maps;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
@@ -7,8 +9,8 @@ import java.util.Random;
 import com.aerospike.client.AerospikeClient;
 import com.aerospike.client.AerospikeException;
 import com.aerospike.client.Bin;
-import com.aerospike.client.Info;
 import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
 import com.aerospike.client.Record;
 import com.aerospike.client.Value;
 import com.aerospike.client.cdt.MapOperation;
@@ -16,15 +18,18 @@ import com.aerospike.client.cdt.MapOrder;
 import com.aerospike.client.cdt.MapPolicy;
 import com.aerospike.client.cdt.MapReturnType;
 import com.aerospike.client.cdt.MapWriteMode;
-import com.aerospike.client.cluster.Node;
-import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.WritePolicy;
 import com.aerospike.client.query.Filter;
 import com.aerospike.client.query.IndexCollectionType;
 import com.aerospike.client.query.IndexType;
-import com.aerospike.client.query.RecordSet;
 import com.aerospike.client.query.Statement;
-import com.aerospike.client.task.IndexTask;
+
+import aerospike.common.ClientRegistry;
+import aerospike.common.OptimisticUpdater;
+import aerospike.common.ParallelQuery;
+import aerospike.common.RecordRenderer;
+import aerospike.common.Workers;
+import aerospike.standin.StandInClient;
 
 
 /**
@@ -32,22 +37,28 @@ import com.aerospike.client.task.IndexTask;
  */
 public class MapsAnswers {
 	private AerospikeClient client;
+	private final RecordRenderer printer = RecordRenderer.console(RecordRenderer.Format.TEXT);
 	private String ns = "test"; // Aerospike namespace
 	private String set = "maps"; // Aerospike set name
 	private String mapBin = "map-of-things"; // Aerospike Bin name for a map
 
 	public MapsAnswers()
 			throws AerospikeException {
-		// Establish a connection to Aerospike cluster
-		ClientPolicy cPolicy = new ClientPolicy();
-		cPolicy.timeout = 500;
-		this.client = new AerospikeClient(cPolicy, "10.211.55.101", 3000);
+		// Share the process-wide connection to the cluster in aerospike.properties
+		this.client = ClientRegistry.acquire();
+	}
+
+	public MapsAnswers(AerospikeClient client) {
+		// Use an existing client, e.g. the in-process stand-in
+		this.client = client;
 	}
 
 	public static void main(String[] args) throws AerospikeException {
 		try {
 
-			MapsAnswers as = new MapsAnswers();
+			MapsAnswers as = args.length > 0 && args[0].equals("standin")
+					? new MapsAnswers(new StandInClient())
+					: new MapsAnswers();
 
 			as.work();
 
@@ -96,22 +107,33 @@ public class MapsAnswers {
 				
 				Key key = new Key(ns, set, "a-record-with-a-map");
 
+				// write and read back in one round trip
 				Bin map = new Bin(mapBin, aMapOfObjects); 
-				client.put(writePolicy, key, map);
-				Record record = client.get(null, key, mapBin);
+				Record record = client.operate(writePolicy, key, Operation.put(map), Operation.get(mapBin));
 				
 				printRecord(key, record);
 
+				// The same map with its field names replaced by small ids from a shared schema
+				SchemaRegistry schemas = new SchemaRegistry(client, ns, "schemas");
+				FieldSchema fares = schemas.register("fares", aMapOfObjects.keySet().toArray(new String[0]));
+				CompactMapBin compact = new CompactMapBin(client, schemas, fares, mapBin);
+				Key compactKey = new Key(ns, set, "a-record-with-a-compact-map");
+				compact.put(writePolicy, compactKey, aMapOfObjects);
+				System.out.println(String.format("\nCompact map: %s", compact.get(null, compactKey)));
+				System.out.println(String.format("\t%d bytes keyed by name, %d bytes keyed by id",
+						FieldSchema.packedSize(aMapOfObjects), FieldSchema.packedSize(fares.encode(aMapOfObjects))));
+
 				// Add 1 element to the map and print the result
 
 				MapPolicy mapPolicy = new MapPolicy(
 						MapOrder.KEY_ORDERED, 
-						MapWriteMode.UPDATE_ONLY
+						MapWriteMode.UPDATE // UPDATE_ONLY fails for a key that is not in the map yet
 						);
 				
-				client.operate(writePolicy, key, MapOperation.put(mapPolicy, mapBin, Value.get("cat"), Value.get(7)));
-				
-				record = client.get(null, key, mapBin);
+				// the new size and the map come back from the same operate
+				record = client.operate(writePolicy, key, 
+						MapOperation.put(mapPolicy, mapBin, Value.get("cat"), Value.get(7)),
+						Operation.get(mapBin));
 				printRecord(key, record);
 
 				// Add elements to the map and read the whole map.
@@ -121,10 +143,9 @@ public class MapsAnswers {
 					put(Value.get("mice"), Value.get("B"));
 				}};
 								
-				client.operate(writePolicy, key, 
-						MapOperation.putItems(mapPolicy, mapBin, anotherMap));
-				
-				record = client.get(null, key, mapBin);
+				record = client.operate(writePolicy, key, 
+						MapOperation.putItems(mapPolicy, mapBin, anotherMap),
+						Operation.get(mapBin));
 				printRecord(key, record);		
 					
 				// Delete a key/value from the map and also return new size of map.
@@ -132,25 +153,47 @@ public class MapsAnswers {
 						MapOperation.removeByKey(mapBin, Value.get("dogs"), MapReturnType.KEY),
 						MapOperation.size(mapBin));
 
-				printRecord(key, record);	
-				
+				printRecord(key, record);
+
+				// Change two fields of the map and a second bin together, only if
+				// nobody else wrote the record since it was read. The map is written
+				// back key ordered, as the map operations above made it
+				OptimisticUpdater updater = new OptimisticUpdater(client, writePolicy, 10, 100);
+				updater.update(key, current -> {
+					Map<Object, Object> fare = new HashMap<Object, Object>(current.getMap(mapBin));
+					fare.put("preis", 899.0);
+					fare.put("ersionsnummer", (Long) fare.get("ersionsnummer") + 1);
+					return new Bin[] { new Bin(mapBin, Value.get(fare, MapOrder.KEY_ORDERED)),
+							new Bin("changed-by", "maps-answers") };
+				});
+				printRecord(key, client.get(null, key));
+				System.out.println("Updates: " + updater.summary());
+
 				// Queries on secondary indexes
 				
-				// Create many records with values in a map
-				Random rand = new Random(300);
-				for (int i = 0; i < 100; i++){
-					Key newKey = new Key(ns, set, "a-record-with-a-map-"+i);
-					Map<Value, Value> aMap = new HashMap<Value, Value>();
-					for ( int j = 0; j < 100; j++){
-						aMap.put(Value.get("dogs"+j), Value.get(rand.nextInt(100) + 250));
-						aMap.put(Value.get("mice"+j), Value.get(rand.nextInt(100) + 250));
+				// Create many records with values in a map,
+				// on virtual threads if -Daerospike.concurrency is set
+				try (Workers workers = Workers.fromSystemProperty()) {
+					for (int i = 0; i < 100; i++){
+						final int index = i;
+						workers.submit(() -> {
+							Key newKey = new Key(ns, set, "a-record-with-a-map-"+index);
+							Random rand = new Random(300 + index);
+							Map<Value, Value> aMap = new HashMap<Value, Value>();
+							for ( int j = 0; j < 100; j++){
+								aMap.put(Value.get("dogs"+j), Value.get(rand.nextInt(100) + 250));
+								aMap.put(Value.get("mice"+j), Value.get(rand.nextInt(100) + 250));
+							}
+							client.put(writePolicy, newKey, new Bin(mapBin, aMap));
+						});
 					}
-					client.put(writePolicy, newKey, new Bin(mapBin, aMap));
 				}
 
-				// Create indexes on map bin, if they do not exist
-				createIndex("mapKeyIndex", mapBin, IndexType.STRING, IndexCollectionType.MAPKEYS);
-				createIndex("mapValueIndex", mapBin, IndexType.NUMERIC, IndexCollectionType.MAPVALUES);
+				// Create indexes on map bin, if they do not exist, both at once
+				ClientRegistry.catalog(client)
+						.declare(ns, set, "mapKeyIndex", mapBin, IndexType.STRING, IndexCollectionType.MAPKEYS)
+						.declare(ns, set, "mapValueIndex", mapBin, IndexType.NUMERIC, IndexCollectionType.MAPVALUES)
+						.createMissing();
 				
 				// Query the records with map values between 300 and 350
 				
@@ -158,17 +201,15 @@ public class MapsAnswers {
 				Statement stmt = new Statement();
 				stmt.setNamespace(ns);
 				stmt.setSetName(set);
-				stmt.setFilters(Filter.range(mapBin, IndexCollectionType.MAPVALUES, 300, 350));
 				
-				RecordSet recordSet = client.query(null, stmt);
-				try {
-					System.out.println("\nRecords with map values between 300 and 350:");
-					while (recordSet != null & recordSet.next()){
-						System.out.println("\t" + recordSet.getKey().userKey);
-					}
-				} finally {
-					if (recordSet != null) recordSet.close();
-				}
+				// split into value ranges, one per worker, each record once
+				System.out.println("\nRecords with map values between 300 and 350:");
+				ParallelQuery query = new ParallelQuery(client, ParallelQuery.subQueryPolicy(5000),
+						Integer.getInteger(Workers.CONCURRENCY_PROPERTY, 1));
+				query.range(stmt, mapBin, IndexCollectionType.MAPVALUES, 300, 350,
+						(key, record) -> System.out.println("\t" + key.userKey));
+				System.out.println(String.format("\t%d records (%d duplicates dropped) in %d ms",
+						query.getRecords(), query.getDuplicates(), query.getElapsedMillis()));
 				
 				// Query the records with map key equal to "dogs7"
 				
@@ -178,66 +219,24 @@ public class MapsAnswers {
 				stmt.setSetName(set);
 				stmt.setFilters(Filter.contains(mapBin, IndexCollectionType.MAPKEYS, "dogs7"));
 				
-				recordSet = client.query(null, stmt);
-				try {
-					System.out.println("\nRecords with map keys equal to dogs7:");
-					while (recordSet != null & recordSet.next()){
-						System.out.println("\t" + recordSet.getKey().userKey);
-					}
-				} finally {
-					if (recordSet != null) recordSet.close();
-				}
+				// an equality can't be split by value, so split by node
+				System.out.println("\nRecords with map keys equal to dogs7:");
+				query.byNode(stmt, (key, record) -> System.out.println("\t" + key.userKey));
+				System.out.println(String.format("\t%d records (%d duplicates dropped) in %d ms",
+						query.getRecords(), query.getDuplicates(), query.getElapsedMillis()));
 				
-				client.close();
+				ClientRegistry.release(client);
 			}
 		}	
 	}
 
-	public void createIndex(String indexName, String binName, IndexType indexType, IndexCollectionType collectionType){
-		// check to see if the index exists
-		Node node = client.getNodes()[0];
-		String result = Info.request(node, "sindex/"+ns);
-		boolean indexExists = result.contains(indexName) && 
-				result.contains(set) &&
-				result.contains(binName);
-		
-		// create index
-		if (!indexExists){
-			IndexTask task = client.createIndex(null, ns, set, indexName, binName, indexType, collectionType);
-			task.waitTillComplete();
-		}
-	}
-	
 	public void printRecord(Key key, Record record)
 	{
-		System.out.println("Key");
-		if (key == null)
-		{
-			System.out.println("\tkey == null");
-		}
-		else 
-		{
-			System.out.println(String.format("\tNamespace: %s", key.namespace));
-			System.out.println(String.format("\t      Set: %s", key.setName));
-			System.out.println(String.format("\t      Key: %s", key.userKey));
-			System.out.println(String.format("\t   Digest: %s", key.digest.toString()));
-		}
-		System.out.println("Record");
-		if (record == null)
-		{
-			System.out.println("\trecord == null");
-		}
-		else
-		{
-			System.out.println(String.format("\tGeneration: %d", record.generation));
-			System.out.println(String.format("\tExpiration: %d", record.expiration));
-			System.out.println(String.format("\t       TTL: %d", record.getTimeToLive()));
-			System.out.println("Bins");
-
-			for (Map.Entry<String, Object> entry : record.bins.entrySet())
-			{
-				System.out.println(String.format("\t%s = %s", entry.getKey(), entry.getValue().toString()));
-			}
+		try {
+			printer.render(key, record);
+			printer.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
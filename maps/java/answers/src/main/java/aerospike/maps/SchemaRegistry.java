@@ -0,0 +1,126 @@
+package aerospike.maps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.RecordExistsAction;
+import com.aerospike.client.policy.WritePolicy;
+
+/**
+ * Keeps {@link FieldSchema}s in the database, one record per schema in the
+ * registry set, so every client encodes a field with the same id.
+ * <p>
+ * A schema only grows: registering fields it lacks appends them, written
+ * with {@link RecordExistsAction#CREATE_ONLY} for a new schema and
+ * {@link GenerationPolicy#EXPECT_GEN_EQUAL} otherwise, retrying if another
+ * client changed it first. Schemas are cached once read; a field that is
+ * not in the cached copy makes {@link #register} read it again.
+ */
+public class SchemaRegistry {
+	private static final String FIELDS_BIN = "fields";
+	private static final int MAX_ATTEMPTS = 10;
+
+	private final AerospikeClient client;
+	private final String ns;
+	private final String set;
+	private final ConcurrentHashMap<String, FieldSchema> schemas = new ConcurrentHashMap<String, FieldSchema>();
+
+	public SchemaRegistry(AerospikeClient client, String ns, String set) {
+		this.client = client;
+		this.ns = ns;
+		this.set = set;
+	}
+
+	/**
+	 * The schema, with ids for all the given fields.
+	 */
+	public FieldSchema register(String name, String... fields) {
+		FieldSchema cached = schemas.get(name);
+		if (cached != null && containsAll(cached, fields)) {
+			return cached;
+		}
+		Key key = new Key(ns, set, name);
+		for (int attempt = 1; ; attempt++) {
+			Record record = client.get(null, key, FIELDS_BIN);
+			List<String> known = new ArrayList<String>();
+			if (record != null) {
+				for (Object field : record.getList(FIELDS_BIN)) {
+					known.add((String) field);
+				}
+			}
+			List<String> all = new ArrayList<String>(known);
+			for (String field : fields) {
+				if (!all.contains(field)) {
+					all.add(field);
+				}
+			}
+			if (record != null && all.size() == known.size()) {
+				return cache(new FieldSchema(name, known));
+			}
+			WritePolicy policy = new WritePolicy();
+			policy.sendKey = true;
+			if (record == null) {
+				policy.recordExistsAction = RecordExistsAction.CREATE_ONLY;
+			} else {
+				policy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+				policy.generation = record.generation;
+			}
+			try {
+				client.put(policy, key, new Bin(FIELDS_BIN, all));
+				return cache(new FieldSchema(name, all));
+			} catch (AerospikeException e) {
+				int code = e.getResultCode();
+				if ((code != ResultCode.GENERATION_ERROR && code != ResultCode.KEY_EXISTS_ERROR)
+						|| attempt == MAX_ATTEMPTS) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * The schema as registered, or null if there is none.
+	 */
+	public FieldSchema get(String name) {
+		FieldSchema cached = schemas.get(name);
+		if (cached != null) {
+			return cached;
+		}
+		Record record = client.get(null, new Key(ns, set, name), FIELDS_BIN);
+		if (record == null) {
+			return null;
+		}
+		List<String> fields = new ArrayList<String>();
+		for (Object field : record.getList(FIELDS_BIN)) {
+			fields.add((String) field);
+		}
+		return cache(new FieldSchema(name, fields));
+	}
+
+	/**
+	 * The schema as registered now, read again from the database, or null
+	 * if there is none.
+	 */
+	public FieldSchema reload(String name) {
+		schemas.remove(name);
+		return get(name);
+	}
+
+	private FieldSchema cache(FieldSchema schema) {
+		schemas.put(schema.getName(), schema);
+		return schema;
+	}
+
+	private static boolean containsAll(FieldSchema schema, String[] fields) {
+		return schema.getFields().containsAll(Arrays.asList(fields));
+	}
+}
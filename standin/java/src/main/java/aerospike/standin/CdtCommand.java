@@ -0,0 +1,66 @@
+package aerospike.standin;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.util.Unpacker;
+
+/**
+ * A list or map operation decoded from the packed bytes the client sends.
+ * <p>
+ * Older clients pack a 16 bit command followed by an array of arguments,
+ * newer clients pack one array whose first element is the command. Both
+ * layouts are accepted. Nested contexts are not supported.
+ */
+final class CdtCommand {
+	final int command;
+	final List<Object> args;
+
+	private CdtCommand(int command, List<Object> args) {
+		this.command = command;
+		this.args = args;
+	}
+
+	static CdtCommand decode(Operation op) {
+		byte[] bytes = (byte[]) op.value.getObject();
+		int first = bytes[0] & 0xFF;
+		if ((first & 0xF0) == 0x90 || first == 0xdc || first == 0xdd) {
+			List<Object> list = Unpacker.unpackObjectList(bytes, 0, bytes.length);
+			if (list.get(0) instanceof List) {
+				throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Stand-in does not support CDT contexts");
+			}
+			return new CdtCommand(((Number) list.get(0)).intValue(), list.subList(1, list.size()));
+		}
+		int command = ((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF);
+		List<Object> args = bytes.length > 2
+				? Unpacker.unpackObjectList(bytes, 2, bytes.length - 2)
+				: Collections.emptyList();
+		return new CdtCommand(command, args);
+	}
+
+	int size() {
+		return args.size();
+	}
+
+	Object arg(int i) {
+		return StandInClient.normalize(args.get(i));
+	}
+
+	int intArg(int i) {
+		return ((Number) args.get(i)).intValue();
+	}
+
+	long longArg(int i) {
+		return ((Number) args.get(i)).longValue();
+	}
+
+	/**
+	 * Optional count argument; absent means "to the end".
+	 */
+	int countArg(int i, int remaining) {
+		return args.size() > i ? Math.min(intArg(i), remaining) : remaining;
+	}
+}
@@ -0,0 +1,182 @@
+package aerospike.standin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+
+/**
+ * The GeoJSON shapes the server understands: Point, Polygon, MultiPolygon
+ * and the Aerospike specific AeroCircle. Polygons are tested on a plain
+ * longitude/latitude plane, which is close enough for the exercises.
+ */
+abstract class GeoShape {
+	private static final double EARTH_RADIUS = 6371000; // meters
+	private static final Map<String, GeoShape> cache = new ConcurrentHashMap<String, GeoShape>();
+
+	/**
+	 * Parses a GeoJSON string, remembering the result since stored regions
+	 * are tested again on every query.
+	 */
+	static GeoShape parse(String json) {
+		GeoShape shape = cache.get(json);
+		if (shape == null) {
+			shape = doParse(json);
+			cache.put(json, shape);
+		}
+		return shape;
+	}
+
+	static void clearCache() {
+		cache.clear();
+	}
+
+	private static GeoShape doParse(String json) {
+		JSONObject object;
+		try {
+			object = (JSONObject) new JSONParser().parse(json);
+		} catch (ParseException e) {
+			throw new AerospikeException(ResultCode.GEO_INVALID_GEOJSON, e.getMessage());
+		}
+		String type = (String) object.get("type");
+		JSONArray coordinates = (JSONArray) object.get("coordinates");
+		switch (type) {
+		case "Point":
+			return new Point(number(coordinates.get(0)), number(coordinates.get(1)));
+		case "AeroCircle": {
+			JSONArray center = (JSONArray) coordinates.get(0);
+			return new Circle(number(center.get(0)), number(center.get(1)), number(coordinates.get(1)));
+		}
+		case "Polygon":
+			return new Region(List.of(rings(coordinates)));
+		case "MultiPolygon": {
+			List<double[][][]> polygons = new ArrayList<double[][][]>();
+			for (Object polygon : coordinates) {
+				polygons.add(rings((JSONArray) polygon));
+			}
+			return new Region(polygons);
+		}
+		default:
+			throw new AerospikeException(ResultCode.GEO_INVALID_GEOJSON, "Unsupported GeoJSON type " + type);
+		}
+	}
+
+	/**
+	 * True when this shape, used as a query region, matches a stored shape.
+	 */
+	abstract boolean matches(GeoShape stored);
+
+	static final class Point extends GeoShape {
+		final double lon;
+		final double lat;
+
+		Point(double lon, double lat) {
+			this.lon = lon;
+			this.lat = lat;
+		}
+
+		@Override
+		boolean matches(GeoShape stored) {
+			// a point query finds the regions that contain it
+			return stored instanceof Region && ((Region) stored).contains(lon, lat);
+		}
+	}
+
+	static final class Circle extends GeoShape {
+		final double lon;
+		final double lat;
+		final double radius;
+
+		Circle(double lon, double lat, double radius) {
+			this.lon = lon;
+			this.lat = lat;
+			this.radius = radius;
+		}
+
+		@Override
+		boolean matches(GeoShape stored) {
+			return stored instanceof Point && distance(lon, lat, ((Point) stored).lon, ((Point) stored).lat) <= radius;
+		}
+	}
+
+	static final class Region extends GeoShape {
+		final List<double[][][]> polygons; // polygon -> ring -> vertex -> lon, lat
+
+		Region(List<double[][][]> polygons) {
+			this.polygons = polygons;
+		}
+
+		@Override
+		boolean matches(GeoShape stored) {
+			// a region query finds the points inside it
+			return stored instanceof Point && contains(((Point) stored).lon, ((Point) stored).lat);
+		}
+
+		boolean contains(double lon, double lat) {
+			for (double[][][] polygon : polygons) {
+				if (inRing(polygon[0], lon, lat)) {
+					boolean inHole = false;
+					for (int i = 1; i < polygon.length && !inHole; i++) {
+						inHole = inRing(polygon[i], lon, lat);
+					}
+					if (!inHole) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Even-odd ray casting.
+	 */
+	static boolean inRing(double[][] ring, double lon, double lat) {
+		boolean inside = false;
+		for (int i = 0, j = ring.length - 1; i < ring.length; j = i++) {
+			double xi = ring[i][0], yi = ring[i][1];
+			double xj = ring[j][0], yj = ring[j][1];
+			if ((yi > lat) != (yj > lat) && lon < (xj - xi) * (lat - yi) / (yj - yi) + xi) {
+				inside = !inside;
+			}
+		}
+		return inside;
+	}
+
+	/**
+	 * Great circle distance in meters (haversine).
+	 */
+	static double distance(double lon1, double lat1, double lon2, double lat2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLon = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+				* Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * EARTH_RADIUS * Math.asin(Math.sqrt(a));
+	}
+
+	private static double[][][] rings(JSONArray polygon) {
+		double[][][] rings = new double[polygon.size()][][];
+		for (int r = 0; r < rings.length; r++) {
+			JSONArray ring = (JSONArray) polygon.get(r);
+			rings[r] = new double[ring.size()][];
+			for (int v = 0; v < ring.size(); v++) {
+				JSONArray vertex = (JSONArray) ring.get(v);
+				rings[r][v] = new double[] { number(vertex.get(0)), number(vertex.get(1)) };
+			}
+		}
+		return rings;
+	}
+
+	private static double number(Object value) {
+		return ((Number) value).doubleValue();
+	}
+}
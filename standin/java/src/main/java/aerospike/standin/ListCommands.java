@@ -0,0 +1,412 @@
+package aerospike.standin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+
+/**
+ * Server side behaviour of the list operations the exercises use.
+ * Modify commands return what the server returns (usually the new size),
+ * or {@link #NO_RESULT} when the server returns nothing.
+ * <p>
+ * An ordered list is stored as an {@link OrderedList} and kept sorted in
+ * the server's value order; appends insert in place and positional writes
+ * are refused, as on the server.
+ */
+final class ListCommands {
+	static final Object NO_RESULT = new Object();
+
+	static final int SET_TYPE = 0;
+	static final int APPEND = 1;
+	static final int APPEND_ITEMS = 2;
+	static final int INSERT = 3;
+	static final int INSERT_ITEMS = 4;
+	static final int POP = 5;
+	static final int POP_RANGE = 6;
+	static final int REMOVE = 7;
+	static final int REMOVE_RANGE = 8;
+	static final int SET = 9;
+	static final int TRIM = 10;
+	static final int CLEAR = 11;
+	static final int INCREMENT = 12;
+	static final int SIZE = 16;
+	static final int GET = 17;
+	static final int GET_RANGE = 18;
+	static final int GET_BY_VALUE_INTERVAL = 25;
+	static final int GET_BY_RANK_RANGE = 26;
+
+	// ListOrder.ORDERED, in the attributes of set type and of a list policy
+	private static final int ORDERED = 1;
+
+	// ListReturnType
+	private static final int RETURN_NONE = 0;
+	private static final int RETURN_INDEX = 1;
+	private static final int RETURN_RANK = 3;
+	private static final int RETURN_COUNT = 5;
+	private static final int RETURN_VALUE = 7;
+
+	/**
+	 * A list bin created or set as ordered.
+	 */
+	static final class OrderedList extends ArrayList<Object> {
+		private static final long serialVersionUID = 1L;
+
+		OrderedList() {
+		}
+
+		OrderedList(List<Object> values) {
+			super(values);
+			sort(ORDER);
+		}
+
+		void insertSorted(Object value) {
+			add(lowerBound(this, value), value);
+		}
+	}
+
+	/**
+	 * The server's order of values: nil, boolean, integer, string, list,
+	 * map, bytes, double; values of the same type in their natural order.
+	 */
+	static final Comparator<Object> ORDER = new Comparator<Object>() {
+		@SuppressWarnings("unchecked")
+		@Override
+		public int compare(Object a, Object b) {
+			int ra = rank(a);
+			int rb = rank(b);
+			if (ra != rb) {
+				return Integer.compare(ra, rb);
+			}
+			if (a instanceof List) {
+				List<Object> la = (List<Object>) a;
+				List<Object> lb = (List<Object>) b;
+				for (int i = 0; i < Math.min(la.size(), lb.size()); i++) {
+					int c = compare(la.get(i), lb.get(i));
+					if (c != 0) {
+						return c;
+					}
+				}
+				return Integer.compare(la.size(), lb.size());
+			}
+			if (a instanceof Comparable) {
+				return ((Comparable<Object>) a).compareTo(b);
+			}
+			return 0;
+		}
+
+		private int rank(Object value) {
+			if (value == null) {
+				return 0;
+			}
+			if (value instanceof Boolean) {
+				return 1;
+			}
+			if (value instanceof Long) {
+				return 2;
+			}
+			if (value instanceof String) {
+				return 3;
+			}
+			if (value instanceof List) {
+				return 4;
+			}
+			if (value instanceof Map) {
+				return 5;
+			}
+			if (value instanceof byte[]) {
+				return 6;
+			}
+			return 7;
+		}
+	};
+
+	private ListCommands() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static Object apply(Map<String, Object> bins, String binName, CdtCommand cmd) {
+		Object current = bins.get(binName);
+		if (current != null && !(current instanceof List)) {
+			throw new AerospikeException(ResultCode.BIN_TYPE_ERROR);
+		}
+		List<Object> list = (List<Object>) current;
+
+		switch (cmd.command) {
+		case SIZE:
+			return list == null ? null : (long) list.size();
+		case GET:
+			return list == null ? null : list.get(index(list, cmd.intArg(0)));
+		case GET_RANGE: {
+			if (list == null) {
+				return null;
+			}
+			int from = index(list, cmd.intArg(0));
+			return new ArrayList<Object>(list.subList(from, from + cmd.countArg(1, list.size() - from)));
+		}
+		case GET_BY_VALUE_INTERVAL:
+			return list == null ? null : byValueInterval(list, cmd);
+		case GET_BY_RANK_RANGE:
+			return list == null ? null : byRankRange(list, cmd);
+		default:
+			break;
+		}
+
+		if (list == null) {
+			// a list policy travels with append, as the attributes after the values
+			boolean ordered = (cmd.command == APPEND || cmd.command == APPEND_ITEMS)
+					&& cmd.size() > 1 && (cmd.intArg(1) & ORDERED) != 0;
+			list = ordered ? new OrderedList() : new ArrayList<Object>();
+			bins.put(binName, list);
+		}
+		if (list instanceof OrderedList) {
+			return applyOrdered(bins, binName, (OrderedList) list, cmd);
+		}
+		switch (cmd.command) {
+		case SET_TYPE:
+			if ((cmd.intArg(0) & ORDERED) != 0) {
+				bins.put(binName, new OrderedList(list));
+			}
+			return NO_RESULT;
+		case APPEND:
+			list.add(cmd.arg(0));
+			return (long) list.size();
+		case APPEND_ITEMS:
+			list.addAll((List<Object>) cmd.arg(0));
+			return (long) list.size();
+		case INSERT:
+			list.add(insertIndex(list, cmd.intArg(0)), cmd.arg(1));
+			return (long) list.size();
+		case INSERT_ITEMS:
+			list.addAll(insertIndex(list, cmd.intArg(0)), (List<Object>) cmd.arg(1));
+			return (long) list.size();
+		case POP:
+			return list.remove(index(list, cmd.intArg(0)));
+		case POP_RANGE: {
+			int from = index(list, cmd.intArg(0));
+			List<Object> range = list.subList(from, from + cmd.countArg(1, list.size() - from));
+			List<Object> popped = new ArrayList<Object>(range);
+			range.clear();
+			return popped;
+		}
+		case REMOVE:
+			list.remove(index(list, cmd.intArg(0)));
+			return 1L;
+		case REMOVE_RANGE: {
+			int from = index(list, cmd.intArg(0));
+			List<Object> range = list.subList(from, from + cmd.countArg(1, list.size() - from));
+			long removed = range.size();
+			range.clear();
+			return removed;
+		}
+		case SET: {
+			int index = cmd.intArg(0);
+			if (index >= list.size()) {
+				pad(list, index + 1);
+			}
+			list.set(index(list, index), cmd.arg(1));
+			return NO_RESULT;
+		}
+		case TRIM: {
+			int from = index(list, cmd.intArg(0));
+			int to = from + cmd.countArg(1, list.size() - from);
+			long removed = list.size() - (to - from);
+			list.subList(to, list.size()).clear();
+			list.subList(0, from).clear();
+			return removed;
+		}
+		case CLEAR:
+			list.clear();
+			return NO_RESULT;
+		case INCREMENT: {
+			int index = index(list, cmd.intArg(0));
+			long delta = cmd.size() > 1 ? cmd.longArg(1) : 1;
+			long value = (list.get(index) == null ? 0 : ((Number) list.get(index)).longValue()) + delta;
+			list.set(index, value);
+			return value;
+		}
+		default:
+			throw new AerospikeException(ResultCode.PARAMETER_ERROR,
+					"Stand-in does not support list command " + cmd.command);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object applyOrdered(Map<String, Object> bins, String binName, OrderedList list, CdtCommand cmd) {
+		switch (cmd.command) {
+		case SET_TYPE:
+			if ((cmd.intArg(0) & ORDERED) == 0) {
+				bins.put(binName, new ArrayList<Object>(list));
+			}
+			return NO_RESULT;
+		case APPEND:
+			list.insertSorted(cmd.arg(0));
+			return (long) list.size();
+		case APPEND_ITEMS:
+			for (Object value : (List<Object>) cmd.arg(0)) {
+				list.insertSorted(value);
+			}
+			return (long) list.size();
+		case INSERT:
+		case INSERT_ITEMS:
+		case SET:
+			throw new AerospikeException(ResultCode.OP_NOT_APPLICABLE, "Positional write on an ordered list");
+		case INCREMENT: {
+			int index = index(list, cmd.intArg(0));
+			long delta = cmd.size() > 1 ? cmd.longArg(1) : 1;
+			long value = (list.get(index) == null ? 0 : ((Number) list.get(index)).longValue()) + delta;
+			list.remove(index);
+			list.insertSorted(value);
+			return value;
+		}
+		default:
+			// removals keep the order
+			List<Object> plain = new ArrayList<Object>(list);
+			bins.put(binName, plain);
+			Object result = apply(bins, binName, cmd);
+			bins.put(binName, new OrderedList(plain));
+			return result;
+		}
+	}
+
+	/**
+	 * Values from begin (inclusive) to end (exclusive, or the largest value
+	 * when absent). An ordered list is searched, an unordered one scanned.
+	 */
+	private static Object byValueInterval(List<Object> list, CdtCommand cmd) {
+		int returnType = cmd.intArg(0);
+		Object begin = cmd.arg(1);
+		Object end = cmd.size() > 2 ? cmd.arg(2) : null;
+		List<Integer> indexes = new ArrayList<Integer>();
+		if (list instanceof OrderedList) {
+			int to = end == null ? list.size() : lowerBound(list, end);
+			for (int i = lowerBound(list, begin); i < to; i++) {
+				indexes.add(i);
+			}
+		} else {
+			for (int i = 0; i < list.size(); i++) {
+				Object value = list.get(i);
+				if (ORDER.compare(value, begin) >= 0 && (end == null || ORDER.compare(value, end) < 0)) {
+					indexes.add(i);
+				}
+			}
+		}
+		return select(list, returnType, indexes);
+	}
+
+	/**
+	 * {@code count} values (or the rest) from the value of rank
+	 * {@code rank}, negative counting back from the largest.
+	 */
+	private static Object byRankRange(List<Object> list, CdtCommand cmd) {
+		int returnType = cmd.intArg(0);
+		List<Integer> byRank = new ArrayList<Integer>(list.size());
+		for (int i = 0; i < list.size(); i++) {
+			byRank.add(i);
+		}
+		if (!(list instanceof OrderedList)) {
+			byRank.sort((a, b) -> ORDER.compare(list.get(a), list.get(b)));
+		}
+		int rank = cmd.intArg(1);
+		int from = rank < 0 ? Math.max(0, list.size() + rank) : Math.min(rank, list.size());
+		int count = cmd.countArg(2, list.size() - from);
+		return select(list, returnType, byRank.subList(from, from + count));
+	}
+
+	/**
+	 * Shapes the selected elements, given by index and in rank order, by
+	 * return type.
+	 */
+	private static Object select(List<Object> list, int returnType, List<Integer> indexes) {
+		switch (returnType) {
+		case RETURN_NONE:
+			return NO_RESULT;
+		case RETURN_COUNT:
+			return (long) indexes.size();
+		case RETURN_VALUE: {
+			List<Object> values = new ArrayList<Object>(indexes.size());
+			for (int index : indexes) {
+				values.add(list.get(index));
+			}
+			return values;
+		}
+		case RETURN_INDEX: {
+			List<Object> sorted = new ArrayList<Object>(indexes);
+			sorted.sort(null);
+			List<Object> result = new ArrayList<Object>(sorted.size());
+			for (Object index : sorted) {
+				result.add(((Integer) index).longValue());
+			}
+			return result;
+		}
+		case RETURN_RANK: {
+			List<Integer> byRank = new ArrayList<Integer>(list.size());
+			for (int i = 0; i < list.size(); i++) {
+				byRank.add(i);
+			}
+			byRank.sort((a, b) -> ORDER.compare(list.get(a), list.get(b)));
+			int[] rankOf = new int[list.size()];
+			for (int r = 0; r < byRank.size(); r++) {
+				rankOf[byRank.get(r)] = r;
+			}
+			List<Object> ranks = new ArrayList<Object>(indexes.size());
+			for (int index : indexes) {
+				ranks.add((long) rankOf[index]);
+			}
+			return ranks;
+		}
+		default:
+			throw new AerospikeException(ResultCode.PARAMETER_ERROR,
+					"Stand-in does not support list return type " + returnType);
+		}
+	}
+
+	/**
+	 * The first position in a sorted list whose value is not below
+	 * {@code value}.
+	 */
+	static int lowerBound(List<Object> list, Object value) {
+		int low = 0;
+		int high = list.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (ORDER.compare(list.get(mid), value) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Resolves an index, negative counting back from the end.
+	 */
+	static int index(List<?> list, int index) {
+		int resolved = index < 0 ? list.size() + index : index;
+		if (resolved < 0 || resolved >= list.size()) {
+			throw new AerospikeException(ResultCode.OP_NOT_APPLICABLE, "List index out of bounds");
+		}
+		return resolved;
+	}
+
+	/**
+	 * Inserting past the end pads the list with nils, as the server does.
+	 */
+	private static int insertIndex(List<Object> list, int index) {
+		if (index < 0) {
+			return index(list, index);
+		}
+		pad(list, index);
+		return index;
+	}
+
+	private static void pad(List<Object> list, int size) {
+		while (list.size() < size) {
+			list.add(null);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package aerospike.standin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+
+/**
+ * Server side behaviour of the map operations the exercises use.
+ * Modify commands return the new map size, like the server does.
+ */
+final class MapCommands {
+	static final int SET_TYPE = 64;
+	static final int ADD = 65;
+	static final int ADD_ITEMS = 66;
+	static final int PUT = 67;
+	static final int PUT_ITEMS = 68;
+	static final int REPLACE = 69;
+	static final int REPLACE_ITEMS = 70;
+	static final int INCREMENT = 73;
+	static final int DECREMENT = 74;
+	static final int CLEAR = 75;
+	static final int REMOVE_BY_KEY = 76;
+	static final int REMOVE_BY_KEY_LIST = 81;
+	static final int SIZE = 96;
+	static final int GET_BY_KEY = 97;
+	static final int GET_BY_KEY_LIST = 107;
+
+	// MapReturnType
+	private static final int RETURN_NONE = 0;
+	private static final int RETURN_COUNT = 5;
+	private static final int RETURN_KEY = 6;
+	private static final int RETURN_VALUE = 7;
+	private static final int RETURN_KEY_VALUE = 8;
+
+	private MapCommands() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static Object apply(Map<String, Object> bins, String binName, CdtCommand cmd) {
+		Object current = bins.get(binName);
+		if (current != null && !(current instanceof Map)) {
+			throw new AerospikeException(ResultCode.BIN_TYPE_ERROR);
+		}
+		Map<Object, Object> map = (Map<Object, Object>) current;
+
+		switch (cmd.command) {
+		case SIZE:
+			return map == null ? null : (long) map.size();
+		case GET_BY_KEY:
+			return map == null ? null : select(map, cmd.intArg(0), List.of(cmd.arg(1)), false);
+		case GET_BY_KEY_LIST:
+			return map == null ? null : select(map, cmd.intArg(0), (List<Object>) cmd.arg(1), false);
+		default:
+			break;
+		}
+
+		if (map == null) {
+			map = new HashMap<Object, Object>();
+			bins.put(binName, map);
+		}
+		switch (cmd.command) {
+		case SET_TYPE:
+			return ListCommands.NO_RESULT;
+		case ADD:
+			add(map, cmd.arg(0), cmd.arg(1));
+			return (long) map.size();
+		case PUT:
+			map.put(cmd.arg(0), cmd.arg(1));
+			return (long) map.size();
+		case REPLACE:
+			replace(map, cmd.arg(0), cmd.arg(1));
+			return (long) map.size();
+		case ADD_ITEMS:
+			for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) cmd.arg(0)).entrySet()) {
+				add(map, entry.getKey(), entry.getValue());
+			}
+			return (long) map.size();
+		case PUT_ITEMS:
+			map.putAll((Map<Object, Object>) cmd.arg(0));
+			return (long) map.size();
+		case REPLACE_ITEMS:
+			for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) cmd.arg(0)).entrySet()) {
+				replace(map, entry.getKey(), entry.getValue());
+			}
+			return (long) map.size();
+		case INCREMENT:
+		case DECREMENT: {
+			Object key = cmd.arg(0);
+			long delta = cmd.size() > 1 ? cmd.longArg(1) : 1;
+			Object existing = map.get(key);
+			long value = (existing == null ? 0 : ((Number) existing).longValue())
+					+ (cmd.command == INCREMENT ? delta : -delta);
+			map.put(key, value);
+			return value;
+		}
+		case CLEAR:
+			map.clear();
+			return ListCommands.NO_RESULT;
+		case REMOVE_BY_KEY:
+			return select(map, cmd.intArg(0), List.of(cmd.arg(1)), true);
+		case REMOVE_BY_KEY_LIST:
+			return select(map, cmd.intArg(0), (List<Object>) cmd.arg(1), true);
+		default:
+			throw new AerospikeException(ResultCode.PARAMETER_ERROR,
+					"Stand-in does not support map command " + cmd.command);
+		}
+	}
+
+	private static void add(Map<Object, Object> map, Object key, Object value) {
+		if (map.containsKey(key)) {
+			throw new AerospikeException(ResultCode.ELEMENT_EXISTS);
+		}
+		map.put(key, value);
+	}
+
+	private static void replace(Map<Object, Object> map, Object key, Object value) {
+		if (!map.containsKey(key)) {
+			throw new AerospikeException(ResultCode.ELEMENT_NOT_FOUND);
+		}
+		map.put(key, value);
+	}
+
+	/**
+	 * Selects (and optionally removes) the given keys, shaped by return type.
+	 */
+	private static Object select(Map<Object, Object> map, int returnType, List<Object> keys, boolean remove) {
+		List<Object> found = new ArrayList<Object>();
+		Map<Object, Object> entries = new HashMap<Object, Object>();
+		for (Object key : keys) {
+			if (map.containsKey(key)) {
+				Object value = remove ? map.remove(key) : map.get(key);
+				found.add(key);
+				entries.put(key, value);
+			}
+		}
+		boolean single = keys.size() == 1;
+		switch (returnType) {
+		case RETURN_NONE:
+			return ListCommands.NO_RESULT;
+		case RETURN_COUNT:
+			return (long) found.size();
+		case RETURN_KEY:
+			return single ? (found.isEmpty() ? null : found.get(0)) : found;
+		case RETURN_VALUE: {
+			if (single) {
+				return found.isEmpty() ? null : entries.get(found.get(0));
+			}
+			List<Object> values = new ArrayList<Object>();
+			for (Object key : found) {
+				values.add(entries.get(key));
+			}
+			return values;
+		}
+		case RETURN_KEY_VALUE:
+			return entries;
+		default:
+			throw new AerospikeException(ResultCode.PARAMETER_ERROR,
+					"Stand-in does not support map return type " + returnType);
+		}
+	}
+}
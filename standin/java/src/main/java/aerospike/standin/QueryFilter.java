@@ -0,0 +1,99 @@
+package aerospike.standin;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.command.ParticleType;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexCollectionType;
+
+/**
+ * Evaluates a secondary index {@link Filter} against a stored bin.
+ * <p>
+ * The client keeps the filter fields private because it only ever
+ * serializes them, so they are read reflectively here.
+ */
+final class QueryFilter {
+	final String binName;
+	private final IndexCollectionType collectionType;
+	private final int valueType;
+	private final Value begin;
+	private final Value end;
+	private final GeoShape region;
+
+	private QueryFilter(Filter filter) {
+		this.binName = (String) field(filter, "name");
+		IndexCollectionType type = (IndexCollectionType) field(filter, "colType");
+		this.collectionType = type == null ? IndexCollectionType.DEFAULT : type;
+		this.valueType = (Integer) field(filter, "valType");
+		this.begin = (Value) field(filter, "begin");
+		this.end = (Value) field(filter, "end");
+		this.region = valueType == ParticleType.GEOJSON ? GeoShape.parse(begin.toString()) : null;
+	}
+
+	static QueryFilter of(Filter filter) {
+		return filter == null ? null : new QueryFilter(filter);
+	}
+
+	/**
+	 * How many times a record matches. Like the server, a collection index
+	 * yields the record once for every matching element.
+	 */
+	int matches(Object binValue) {
+		if (binValue == null) {
+			return 0;
+		}
+		switch (collectionType) {
+		case LIST:
+			return binValue instanceof List ? count((List<?>) binValue) : 0;
+		case MAPKEYS:
+			return binValue instanceof Map ? count(((Map<?, ?>) binValue).keySet()) : 0;
+		case MAPVALUES:
+			return binValue instanceof Map ? count(((Map<?, ?>) binValue).values()) : 0;
+		default:
+			return matchesValue(binValue) ? 1 : 0;
+		}
+	}
+
+	private int count(Collection<?> values) {
+		int count = 0;
+		for (Object value : values) {
+			if (matchesValue(value)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private boolean matchesValue(Object value) {
+		switch (valueType) {
+		case ParticleType.INTEGER:
+			if (!(value instanceof Long)) {
+				return false;
+			}
+			long v = (Long) value;
+			return v >= ((Number) begin.getObject()).longValue() && v <= ((Number) end.getObject()).longValue();
+		case ParticleType.STRING:
+			return value instanceof String && value.equals(begin.toString());
+		case ParticleType.GEOJSON:
+			return value instanceof Value && region.matches(GeoShape.parse(value.toString()));
+		default:
+			return false;
+		}
+	}
+
+	private static Object field(Filter filter, String name) {
+		try {
+			Field field = Filter.class.getDeclaredField(name);
+			field.setAccessible(true);
+			return field.get(filter);
+		} catch (ReflectiveOperationException e) {
+			throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Stand-in cannot read filter: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,830 @@
+package aerospike.standin;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRead;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.ScanCallback;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.command.ParticleType;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.listener.WriteListener;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.GenerationPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.RecordExistsAction;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.IndexTask;
+import com.aerospike.client.task.Task;
+
+/**
+ * An in-memory stand-in for an Aerospike cluster that runs inside the
+ * client process. It extends {@link AerospikeClient}, so any code written
+ * against the client can be pointed at it without a network or a server.
+ * <p>
+ * Records are held per partition (4096, derived from the key digest) and
+ * every write holds its partition lock for the configured service time, so
+ * hot keys serialize the same way they do on a real node. Every call counts
+ * as one round trip and pays the configured network latency outside the lock.
+ * <p>
+ * List and map operations, and secondary index queries (range, equality,
+ * collection and geo filters) are evaluated in memory. Queries scan the
+ * set, so they work whether or not the index was created. The stand-in has
+ * no nodes: {@link #getNodes()} is empty, and index creation completes at
+ * once.
+ * <p>
+ * Asynchronous commands do not block the caller: they are completed on a
+ * small pool of stand-in threads once the simulated round trip has elapsed,
+ * and the event loop argument is ignored.
+ */
+public class StandInClient extends AerospikeClient {
+	public static final int PARTITIONS = 4096;
+	private static final long CITRUSLEAF_EPOCH = 1262304000L; // seconds, 2010-01-01
+
+	private final ConcurrentHashMap<RecordId, StoredRecord> records = new ConcurrentHashMap<RecordId, StoredRecord>();
+	private final Object[] partitionLocks = new Object[PARTITIONS];
+	private final AtomicLong roundTrips = new AtomicLong();
+	private volatile long networkNanos = 0;
+	private volatile long serviceNanos = 0;
+	private volatile boolean open = true;
+	private volatile int defaultTtl = 0;
+	private final ScheduledExecutorService completions;
+	private final Map<String, String> indexes = new ConcurrentHashMap<String, String>();
+
+	public StandInClient() {
+		super(new ClientPolicy());
+		for (int i = 0; i < PARTITIONS; i++) {
+			partitionLocks[i] = new Object();
+		}
+		completions = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "standin-async");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Simulated network round trip, paid once per call outside any lock.
+	 */
+	public void setNetworkLatency(long micros) {
+		this.networkNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+	}
+
+	/**
+	 * Simulated server work, paid per record while holding its partition lock.
+	 */
+	public void setServiceTime(long micros) {
+		this.serviceNanos = TimeUnit.MICROSECONDS.toNanos(micros);
+	}
+
+	/**
+	 * The namespace default TTL in seconds, applied by writes whose policy
+	 * expiration is 0; 0, the default, never expires.
+	 */
+	public void setDefaultTtl(int seconds) {
+		this.defaultTtl = Math.max(0, seconds);
+	}
+
+	public long getRoundTrips() {
+		return roundTrips.get();
+	}
+
+	public void resetRoundTrips() {
+		roundTrips.set(0);
+	}
+
+	public int size() {
+		return records.size();
+	}
+
+	public void clear() {
+		records.clear();
+		GeoShape.clearCache();
+	}
+
+	public static int partitionId(byte[] digest) {
+		return ((digest[0] & 0xFF) | ((digest[1] & 0xFF) << 8)) % PARTITIONS;
+	}
+
+	/**
+	 * Index names created so far, mapped to "namespace:set:bin".
+	 */
+	public Map<String, String> getIndexes() {
+		return indexes;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return open;
+	}
+
+	@Override
+	public Node[] getNodes() {
+		return new Node[0];
+	}
+
+	@Override
+	public void close() {
+		open = false;
+		completions.shutdown();
+	}
+
+	@Override
+	public void put(WritePolicy policy, Key key, Bin... bins) throws AerospikeException {
+		roundTrip();
+		Operation[] ops = new Operation[bins.length];
+		for (int i = 0; i < bins.length; i++) {
+			ops[i] = Operation.put(bins[i]);
+		}
+		execute(policy, key, ops);
+	}
+
+	@Override
+	public Record get(Policy policy, Key key) throws AerospikeException {
+		roundTrip();
+		return read(key, null);
+	}
+
+	@Override
+	public Record get(Policy policy, Key key, String... binNames) throws AerospikeException {
+		roundTrip();
+		return read(key, binNames);
+	}
+
+	@Override
+	public Record getHeader(Policy policy, Key key) throws AerospikeException {
+		roundTrip();
+		return read(key, new String[0]);
+	}
+
+	@Override
+	public Record[] get(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		roundTrip();
+		Record[] result = new Record[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			result[i] = read(keys[i], null);
+		}
+		return result;
+	}
+
+	@Override
+	public Record[] get(BatchPolicy policy, Key[] keys, String... binNames) throws AerospikeException {
+		roundTrip();
+		Record[] result = new Record[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			result[i] = read(keys[i], binNames);
+		}
+		return result;
+	}
+
+	@Override
+	public void get(BatchPolicy policy, List<BatchRead> records) throws AerospikeException {
+		roundTrip();
+		for (BatchRead batchRead : records) {
+			String[] binNames = batchRead.readAllBins ? null
+					: batchRead.binNames == null ? new String[0] : batchRead.binNames;
+			batchRead.record = read(batchRead.key, binNames);
+		}
+	}
+
+	@Override
+	public boolean exists(Policy policy, Key key) throws AerospikeException {
+		roundTrip();
+		return read(key, new String[0]) != null;
+	}
+
+	@Override
+	public boolean[] exists(BatchPolicy policy, Key[] keys) throws AerospikeException {
+		roundTrip();
+		boolean[] result = new boolean[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			result[i] = read(keys[i], new String[0]) != null;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean delete(WritePolicy policy, Key key) throws AerospikeException {
+		roundTrip();
+		RecordId id = new RecordId(key);
+		synchronized (lockFor(key)) {
+			serviceTime();
+			StoredRecord existing = live(id);
+			if (existing == null) {
+				return false;
+			}
+			checkGeneration(policy, existing);
+			records.remove(id);
+			return true;
+		}
+	}
+
+	@Override
+	public Record operate(WritePolicy policy, Key key, Operation... operations) throws AerospikeException {
+		roundTrip();
+		return execute(policy, key, operations);
+	}
+
+	@Override
+	public void put(EventLoop eventLoop, final WriteListener listener, final WritePolicy policy, final Key key,
+			final Bin... bins) throws AerospikeException {
+		final Operation[] ops = new Operation[bins.length];
+		for (int i = 0; i < bins.length; i++) {
+			ops[i] = Operation.put(bins[i]);
+		}
+		later(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					execute(policy, key, ops);
+				} catch (AerospikeException e) {
+					listener.onFailure(e);
+					return;
+				}
+				listener.onSuccess(key);
+			}
+		});
+	}
+
+	@Override
+	public void get(EventLoop eventLoop, final RecordListener listener, Policy policy, final Key key,
+			final String... binNames) throws AerospikeException {
+		later(new Runnable() {
+			@Override
+			public void run() {
+				listener.onSuccess(key, read(key, binNames));
+			}
+		});
+	}
+
+	@Override
+	public void operate(EventLoop eventLoop, final RecordListener listener, final WritePolicy policy, final Key key,
+			final Operation... operations) throws AerospikeException {
+		later(new Runnable() {
+			@Override
+			public void run() {
+				Record record;
+				try {
+					record = execute(policy, key, operations);
+				} catch (AerospikeException e) {
+					listener.onFailure(e);
+					return;
+				}
+				listener.onSuccess(key, record);
+			}
+		});
+	}
+
+	@Override
+	public RecordSet query(QueryPolicy policy, Statement statement) throws AerospikeException {
+		roundTrip();
+		Filter[] filters = statement.getFilters();
+		QueryFilter filter = QueryFilter.of(filters == null || filters.length == 0 ? null : filters[0]);
+		String[] binNames = statement.getBinNames();
+		List<KeyRecord> results = new ArrayList<KeyRecord>();
+		for (Map.Entry<RecordId, StoredRecord> entry : records.entrySet()) {
+			StoredRecord stored = entry.getValue();
+			if (!stored.namespace.equals(statement.getNamespace()) ||
+					(statement.getSetName() != null && !statement.getSetName().equals(stored.setName))) {
+				continue;
+			}
+			int matches;
+			Record record;
+			synchronized (partitionLocks[partitionId(stored.digest)]) {
+				matches = filter == null ? 1 : filter.matches(stored.bins.get(filter.binName));
+				record = matches == 0 ? null : read(stored.key(), binNames);
+			}
+			for (int i = 0; i < matches && record != null; i++) {
+				serviceTime();
+				results.add(new KeyRecord(stored.key(), record));
+			}
+		}
+		return new StandInRecordSet(results);
+	}
+
+	@Override
+	public void scanAll(ScanPolicy policy, String namespace, String setName, ScanCallback callback,
+			String... binNames) throws AerospikeException {
+		roundTrip();
+		for (StoredRecord stored : records.values()) {
+			if (!stored.namespace.equals(namespace) || (setName != null && !setName.equals(stored.setName))) {
+				continue;
+			}
+			Key key = stored.key();
+			Record record = read(key, binNames == null || binNames.length == 0 ? null : binNames);
+			if (record != null) {
+				callback.scanCallback(key, record);
+			}
+		}
+	}
+
+	@Override
+	public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName,
+			String binName, IndexType indexType) throws AerospikeException {
+		return createIndex(policy, namespace, setName, indexName, binName, indexType, IndexCollectionType.DEFAULT);
+	}
+
+	@Override
+	public IndexTask createIndex(Policy policy, String namespace, String setName, String indexName,
+			String binName, IndexType indexType, IndexCollectionType indexCollectionType) throws AerospikeException {
+		roundTrip();
+		if (indexes.putIfAbsent(indexName, namespace + ":" + setName + ":" + binName) != null) {
+			throw new AerospikeException(ResultCode.INDEX_ALREADY_EXISTS);
+		}
+		return completedIndexTask();
+	}
+
+	@Override
+	public void dropIndex(Policy policy, String namespace, String setName, String indexName) throws AerospikeException {
+		roundTrip();
+		indexes.remove(indexName);
+	}
+
+	/**
+	 * An IndexTask that reports completion without asking a node. The task
+	 * classes are built to poll a cluster, so this builds one with empty
+	 * arguments and marks it done.
+	 */
+	private static IndexTask completedIndexTask() {
+		try {
+			Constructor<?> constructor = IndexTask.class.getConstructors()[0];
+			Class<?>[] types = constructor.getParameterTypes();
+			Object[] args = new Object[types.length];
+			for (int i = 0; i < types.length; i++) {
+				if (types[i] == boolean.class) {
+					args[i] = true;
+				} else if (types[i] == int.class) {
+					args[i] = 0;
+				}
+			}
+			IndexTask task = (IndexTask) constructor.newInstance(args);
+			Field done = Task.class.getDeclaredField("done");
+			done.setAccessible(true);
+			done.setBoolean(task, true);
+			return task;
+		} catch (ReflectiveOperationException e) {
+			throw new AerospikeException(ResultCode.PARAMETER_ERROR, "Stand-in cannot build index task: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Runs an asynchronous command after the simulated round trip, without
+	 * holding up the calling thread.
+	 */
+	private void later(Runnable command) {
+		if (!open) {
+			throw new AerospikeException(ResultCode.SERVER_NOT_AVAILABLE, "Stand-in is closed");
+		}
+		roundTrips.incrementAndGet();
+		completions.schedule(command, networkNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Applies a list of operations to one record atomically, the way the
+	 * server does for a single operate command.
+	 */
+	protected Record execute(WritePolicy policy, Key key, Operation[] operations) {
+		if (policy == null) {
+			policy = new WritePolicy();
+		}
+		boolean write = false;
+		for (Operation op : operations) {
+			if (isWrite(op.type)) {
+				write = true;
+				break;
+			}
+		}
+		RecordId id = new RecordId(key);
+		synchronized (lockFor(key)) {
+			serviceTime();
+			StoredRecord existing = live(id);
+			if (!write) {
+				if (existing == null) {
+					throw new AerospikeException(ResultCode.KEY_NOT_FOUND_ERROR);
+				}
+				return apply(existing, operations);
+			}
+			StoredRecord target = prepareWrite(policy, key, existing);
+			// the result carries the generation and expiration after the write, as the server's does
+			target.generation++;
+			target.expiration = expiration(policy.expiration, existing);
+			Record result = apply(target, operations);
+			if (target.bins.isEmpty()) {
+				records.remove(id);
+			} else {
+				records.put(id, target);
+			}
+			return result;
+		}
+	}
+
+	private StoredRecord prepareWrite(WritePolicy policy, Key key, StoredRecord existing) {
+		RecordExistsAction action = policy.recordExistsAction;
+		if (existing == null) {
+			if (action == RecordExistsAction.UPDATE_ONLY || action == RecordExistsAction.REPLACE_ONLY) {
+				throw new AerospikeException(ResultCode.KEY_NOT_FOUND_ERROR);
+			}
+			return new StoredRecord(key);
+		}
+		if (action == RecordExistsAction.CREATE_ONLY) {
+			throw new AerospikeException(ResultCode.KEY_EXISTS_ERROR);
+		}
+		checkGeneration(policy, existing);
+		StoredRecord target = existing.copy();
+		if (action == RecordExistsAction.REPLACE || action == RecordExistsAction.REPLACE_ONLY) {
+			target.bins.clear();
+		}
+		if (policy.sendKey && key.userKey != null) {
+			target.userKey = key.userKey;
+		}
+		return target;
+	}
+
+	private void checkGeneration(WritePolicy policy, StoredRecord existing) {
+		if (policy == null) {
+			return;
+		}
+		if (policy.generationPolicy == GenerationPolicy.EXPECT_GEN_EQUAL && policy.generation != existing.generation) {
+			throw new AerospikeException(ResultCode.GENERATION_ERROR);
+		}
+		if (policy.generationPolicy == GenerationPolicy.EXPECT_GEN_GT && policy.generation <= existing.generation) {
+			throw new AerospikeException(ResultCode.GENERATION_ERROR);
+		}
+	}
+
+	private Record apply(StoredRecord target, Operation[] operations) {
+		Map<String, Object> result = new LinkedHashMap<String, Object>();
+		for (Operation op : operations) {
+			switch (op.type) {
+			case READ:
+				if (op.binName == null) {
+					for (Map.Entry<String, Object> entry : target.bins.entrySet()) {
+						result.put(entry.getKey(), copy(entry.getValue()));
+					}
+				} else {
+					addResult(result, op.binName, copy(target.bins.get(op.binName)));
+				}
+				break;
+			case READ_HEADER:
+				break;
+			case WRITE:
+				Object value = normalize(op.value);
+				if (value == null) {
+					target.bins.remove(op.binName);
+				} else {
+					target.bins.put(op.binName, value);
+				}
+				break;
+			case ADD:
+				target.bins.put(op.binName, add(target.bins.get(op.binName), op.value.getObject()));
+				break;
+			case APPEND:
+				target.bins.put(op.binName, concat(target.bins.get(op.binName), op.value.getObject(), false));
+				break;
+			case PREPEND:
+				target.bins.put(op.binName, concat(target.bins.get(op.binName), op.value.getObject(), true));
+				break;
+			case TOUCH:
+				break;
+			default:
+				Object opResult = applyOther(target, op);
+				if (opResult != ListCommands.NO_RESULT) {
+					addResult(result, op.binName, opResult);
+				}
+			}
+		}
+		return new Record(result, target.generation, target.expiration);
+	}
+
+	/**
+	 * Extension point for operation types beyond the basic key-value set.
+	 */
+	protected Object applyOther(StoredRecord target, Operation op) {
+		switch (op.type) {
+		case CDT_READ:
+		case CDT_MODIFY:
+			return ListCommands.apply(target.bins, op.binName, CdtCommand.decode(op));
+		case MAP_READ:
+		case MAP_MODIFY:
+			return MapCommands.apply(target.bins, op.binName, CdtCommand.decode(op));
+		default:
+			throw new AerospikeException(ResultCode.PARAMETER_ERROR,
+					"Stand-in does not support operation " + op.type);
+		}
+	}
+
+	protected boolean isWrite(Operation.Type type) {
+		switch (type) {
+		case READ:
+		case READ_HEADER:
+		case CDT_READ:
+		case MAP_READ:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	private Record read(Key key, String[] binNames) {
+		RecordId id = new RecordId(key);
+		synchronized (lockFor(key)) {
+			StoredRecord existing = live(id);
+			if (existing == null) {
+				return null;
+			}
+			Map<String, Object> bins = new LinkedHashMap<String, Object>();
+			if (binNames == null) {
+				for (Map.Entry<String, Object> entry : existing.bins.entrySet()) {
+					bins.put(entry.getKey(), copy(entry.getValue()));
+				}
+			} else {
+				for (String binName : binNames) {
+					Object value = existing.bins.get(binName);
+					if (value != null) {
+						bins.put(binName, copy(value));
+					}
+				}
+			}
+			boolean headerOnly = binNames != null && binNames.length == 0;
+			return new Record(headerOnly ? null : bins, existing.generation, existing.expiration);
+		}
+	}
+
+	private StoredRecord live(RecordId id) {
+		StoredRecord existing = records.get(id);
+		if (existing != null && existing.expiration > 0 && existing.expiration <= now()) {
+			records.remove(id);
+			return null;
+		}
+		return existing;
+	}
+
+	protected Object lockFor(Key key) {
+		return partitionLocks[partitionId(key.digest)];
+	}
+
+	protected void roundTrip() {
+		if (!open) {
+			throw new AerospikeException(ResultCode.SERVER_NOT_AVAILABLE, "Stand-in is closed");
+		}
+		roundTrips.incrementAndGet();
+		pause(networkNanos);
+	}
+
+	protected void serviceTime() {
+		pause(serviceNanos);
+	}
+
+	private static void pause(long nanos) {
+		if (nanos <= 0) {
+			return;
+		}
+		long deadline = System.nanoTime() + nanos;
+		if (nanos > 100000) {
+			LockSupport.parkNanos(nanos);
+		}
+		while (System.nanoTime() < deadline) {
+			// spin out the remainder, parkNanos is too coarse for short pauses
+		}
+	}
+
+	/**
+	 * The void time a write leaves on its record, as the server sets it: a
+	 * positive expiration is seconds from now, -1 never expires, -2 keeps
+	 * the record's void time, and 0 (or -2 on a new record) applies the
+	 * namespace default TTL.
+	 */
+	private int expiration(int policyExpiration, StoredRecord existing) {
+		if (policyExpiration > 0) {
+			return (int) (now() + policyExpiration);
+		}
+		if (policyExpiration == -1) {
+			return 0;
+		}
+		if (policyExpiration == -2 && existing != null) {
+			return existing.expiration;
+		}
+		int ttl = defaultTtl;
+		return ttl > 0 ? (int) (now() + ttl) : 0;
+	}
+
+	private static long now() {
+		return System.currentTimeMillis() / 1000 - CITRUSLEAF_EPOCH;
+	}
+
+	private static void addResult(Map<String, Object> result, String binName, Object value) {
+		if (!result.containsKey(binName)) {
+			result.put(binName, value);
+			return;
+		}
+		// Multiple results for one bin are returned as a list, as the client does
+		Object previous = result.get(binName);
+		if (previous instanceof OpResults) {
+			((OpResults) previous).add(value);
+		} else {
+			OpResults list = new OpResults();
+			list.add(previous);
+			list.add(value);
+			result.put(binName, list);
+		}
+	}
+
+	private static Object add(Object current, Object delta) {
+		if (current == null) {
+			return normalize(delta);
+		}
+		if (current instanceof Double || delta instanceof Double || delta instanceof Float) {
+			return ((Number) current).doubleValue() + ((Number) delta).doubleValue();
+		}
+		if (!(current instanceof Long)) {
+			throw new AerospikeException(ResultCode.BIN_TYPE_ERROR);
+		}
+		return (Long) current + ((Number) delta).longValue();
+	}
+
+	private static Object concat(Object current, Object value, boolean prepend) {
+		if (current == null) {
+			return value;
+		}
+		if (!(current instanceof String)) {
+			throw new AerospikeException(ResultCode.BIN_TYPE_ERROR);
+		}
+		return prepend ? value + (String) current : (String) current + value;
+	}
+
+	/**
+	 * Converts a client value into the form the client would read back from
+	 * a server: integers as Long, floats as Double, nested values unwrapped.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static Object normalize(Object value) {
+		if (value instanceof Value) {
+			Value v = (Value) value;
+			if (v.getType() == ParticleType.GEOJSON) {
+				return v;
+			}
+			return normalize(v.getObject());
+		}
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Float) {
+			return ((Float) value).doubleValue();
+		}
+		if (value instanceof List) {
+			List<Object> list = new ArrayList<Object>(((List<Object>) value).size());
+			for (Object element : (List<Object>) value) {
+				list.add(normalize(element));
+			}
+			return list;
+		}
+		if (value instanceof Map) {
+			Map<Object, Object> map = new HashMap<Object, Object>();
+			for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+				map.put(normalize(entry.getKey()), normalize(entry.getValue()));
+			}
+			return map;
+		}
+		if (value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		}
+		return value;
+	}
+
+	/**
+	 * Defensive copy so callers cannot mutate stored collections.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static Object copy(Object value) {
+		if (value instanceof List) {
+			List<Object> list = value instanceof ListCommands.OrderedList
+					? new ListCommands.OrderedList()
+					: new ArrayList<Object>(((List<Object>) value).size());
+			for (Object element : (List<Object>) value) {
+				list.add(copy(element));
+			}
+			return list;
+		}
+		if (value instanceof Map) {
+			Map<Object, Object> map = new HashMap<Object, Object>();
+			for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+				map.put(entry.getKey(), copy(entry.getValue()));
+			}
+			return map;
+		}
+		if (value instanceof byte[]) {
+			return ((byte[]) value).clone();
+		}
+		return value;
+	}
+
+	/**
+	 * Marks a bin result that holds the values of several operations.
+	 */
+	private static class OpResults extends ArrayList<Object> {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Identity of a record: namespace plus digest, as on the server.
+	 */
+	protected static final class RecordId {
+		final String namespace;
+		final byte[] digest;
+		private final int hash;
+
+		RecordId(Key key) {
+			this.namespace = key.namespace;
+			this.digest = key.digest;
+			this.hash = 31 * namespace.hashCode() + Arrays.hashCode(digest);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof RecordId)) {
+				return false;
+			}
+			RecordId other = (RecordId) obj;
+			return namespace.equals(other.namespace) && Arrays.equals(digest, other.digest);
+		}
+	}
+
+	/**
+	 * A record as stored by the stand-in.
+	 */
+	protected static final class StoredRecord {
+		final String namespace;
+		final String setName;
+		final byte[] digest;
+		Value userKey;
+		final Map<String, Object> bins;
+		int generation;
+		int expiration;
+
+		StoredRecord(Key key) {
+			this(key.namespace, key.setName, key.digest, key.userKey, new LinkedHashMap<String, Object>(), 0, 0);
+		}
+
+		private StoredRecord(String namespace, String setName, byte[] digest, Value userKey,
+				Map<String, Object> bins, int generation, int expiration) {
+			this.namespace = namespace;
+			this.setName = setName;
+			this.digest = digest;
+			this.userKey = userKey;
+			this.bins = bins;
+			this.generation = generation;
+			this.expiration = expiration;
+		}
+
+		StoredRecord copy() {
+			Map<String, Object> binsCopy = new LinkedHashMap<String, Object>();
+			for (Map.Entry<String, Object> entry : bins.entrySet()) {
+				binsCopy.put(entry.getKey(), copy(entry.getValue()));
+			}
+			return new StoredRecord(namespace, setName, digest, userKey, binsCopy, generation, expiration);
+		}
+
+		Key key() {
+			return new Key(namespace, digest, setName, userKey);
+		}
+	}
+}
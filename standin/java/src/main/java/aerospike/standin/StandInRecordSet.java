@@ -0,0 +1,25 @@
+package aerospike.standin;
+
+import java.util.List;
+
+import com.aerospike.client.query.KeyRecord;
+import com.aerospike.client.query.RecordSet;
+
+/**
+ * A query result that is complete before it is handed to the caller.
+ */
+final class StandInRecordSet extends RecordSet {
+
+	StandInRecordSet(List<KeyRecord> results) {
+		super(null, results.size() + 1);
+		for (KeyRecord result : results) {
+			put(result);
+		}
+		put(END);
+	}
+
+	@Override
+	public void close() {
+		// nothing is running in the background
+	}
+}